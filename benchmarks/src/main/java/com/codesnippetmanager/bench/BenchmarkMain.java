@@ -0,0 +1,152 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.Json;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ * Runs the suite with the GC profiler attached, so every result also reports bytes allocated
+ * per operation (gc.alloc.rate.norm), and writes the results as JMH JSON. The run is then
+ * compared against the baseline file: any benchmark that got more than THRESHOLD slower, or
+ * allocates more than THRESHOLD more per operation, is listed and the exit status is 1.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar [jmh options] [--baseline=file] [--record-baseline]
+ *
+ * --record-baseline writes the run to the baseline file instead of comparing against it.
+ * Without it a missing baseline file is an error, checked before anything runs.
+ */
+public class BenchmarkMain {
+    private static final double THRESHOLD = 0.10;
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path baseline = Paths.get("benchmarks", "baseline.json");
+        boolean record = false;
+        List<String> jmhArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--record-baseline")) {
+                record = true;
+            } else if (arg.startsWith("--baseline=")) {
+                baseline = Paths.get(arg.substring("--baseline=".length()));
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        } catch (CommandLineOptionException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (!record && !Files.exists(baseline)) {
+            System.err.println("No baseline at " + baseline + "; record one with --record-baseline");
+            System.exit(2);
+            return;
+        }
+        Path output = record ? baseline : Paths.get("benchmarks", "results", "results-" + System.currentTimeMillis() + ".json");
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(output.toString())
+            .build();
+        Collection<RunResult> results = new Runner(options).run();
+        System.out.println("Results written to " + output);
+        if (record) return;
+
+        List<String> regressions = compare(results, readScores(baseline));
+        if (regressions.isEmpty()) {
+            System.out.println("No regressions against " + baseline);
+            return;
+        }
+        System.out.println("Regressions against " + baseline + ":");
+        for (String regression : regressions) {
+            System.out.println("  " + regression);
+        }
+        System.exit(1);
+    }
+
+    private static List<String> compare(Collection<RunResult> results, Map<String, double[]> baseline) {
+        List<String> regressions = new ArrayList<>();
+        for (RunResult result : results) {
+            String name = nameOf(result.getParams());
+            double[] before = baseline.get(name);
+            if (before == null) continue;
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+            check(regressions, name, "time", before[0], result.getPrimaryResult().getScore());
+            if (allocation != null && !Double.isNaN(before[1])) {
+                check(regressions, name, "allocation", before[1], allocation.getScore());
+            }
+        }
+        return regressions;
+    }
+
+    private static void check(List<String> regressions, String name, String metric, double before, double after) {
+        if (before > 0 && after > before * (1 + THRESHOLD)) {
+            regressions.add(String.format("%s %s %.3f -> %.3f (+%.0f%%)", name, metric, before, after,
+                (after / before - 1) * 100));
+        }
+    }
+
+    // Benchmark name plus its parameters, e.g. SearchBenchmark.ranked{outcome=hit, size=1000}
+    private static String nameOf(BenchmarkParams params) {
+        Map<String, String> values = new TreeMap<>();
+        for (String key : params.getParamsKeys()) {
+            values.put(key, params.getParam(key));
+        }
+        return nameOf(params.getBenchmark(), values);
+    }
+
+    private static String nameOf(String benchmark, Map<String, String> values) {
+        return benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1) + values;
+    }
+
+    // Name to {score, allocation per op} from a JMH JSON results file
+    @SuppressWarnings("unchecked")
+    private static Map<String, double[]> readScores(Path file) throws IOException {
+        Map<String, double[]> scores = new HashMap<>();
+        for (Object entry : (List<Object>) Json.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))) {
+            Map<String, Object> result = (Map<String, Object>) entry;
+            Map<String, String> values = new TreeMap<>();
+            Map<String, Object> params = (Map<String, Object>) result.get("params");
+            if (params != null) {
+                for (Map.Entry<String, Object> param : params.entrySet()) {
+                    values.put(param.getKey(), String.valueOf(param.getValue()));
+                }
+            }
+            double allocation = Double.NaN;
+            Map<String, Object> secondary = (Map<String, Object>) result.get("secondaryMetrics");
+            if (secondary != null && secondary.get(ALLOCATION) != null) {
+                allocation = scoreOf(secondary.get(ALLOCATION));
+            }
+            double score = scoreOf(result.get("primaryMetric"));
+            scores.put(nameOf((String) result.get("benchmark"), values), new double[] {score, allocation});
+        }
+        return scores;
+    }
+
+    // JMH writes an undefined score as the string "NaN"
+    @SuppressWarnings("unchecked")
+    private static double scoreOf(Object metric) {
+        Object score = ((Map<String, Object>) metric).get("score");
+        return score instanceof Double ? (Double) score : Double.NaN;
+    }
+}
@@ -0,0 +1,226 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.ShardedSnippetManager;
+import com.codesnippetmanager.SnippetManager;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ * Deterministic synthetic libraries. Each code body is one to five short functions drawn from
+ * per-language templates, with identifiers built from a shared vocabulary, so bodies look
+ * like real source to the tokenizers and the duplicate detector while still varying enough
+ * that near-duplicates stay rare. Creation times are spread over the year before START.
+ */
+final class Corpus {
+    // A word found in roughly a fifth of the snippets, and one found in none
+    static final String HIT_QUERY = "session";
+    static final String MISS_QUERY = "zqxjkvw";
+    // Short punctuation the indexes cannot narrow, so both are answered by a full scan
+    static final String SCAN_HIT_QUERY = "=>";
+    static final String SCAN_MISS_QUERY = "~^";
+    // A function name the Java and JavaScript templates declare
+    static final String DEFINITION_QUERY = "loadSession";
+
+    private static final int BATCH_SIZE = 512;
+    private static final long START = 1_700_000_000_000L;
+    private static final long YEAR = 365L * 24 * 60 * 60 * 1000;
+
+    private static final String[] VERBS = {
+        "load", "parse", "find", "build", "merge", "sort", "filter", "render", "update", "validate",
+        "read", "write", "encode", "decode", "resolve", "schedule", "retry", "flush", "split", "count"
+    };
+    private static final String[] NOUNS = {
+        "user", "order", "cache", "config", "token", "buffer", "request", "session", "index", "node",
+        "event", "record", "file", "queue", "tree", "graph", "matrix", "payload", "header", "account",
+        "invoice", "message", "channel", "route", "snapshot", "metric", "batch", "entry", "path", "key"
+    };
+    private static final String[] TAGS = {
+        "algorithms", "sorting", "search", "io", "networking", "concurrency", "parsing", "json",
+        "database", "sql", "testing", "recursion", "collections", "strings", "math", "caching",
+        "http", "security", "logging", "streams", "utility", "graphs", "trees", "dynamic-programming",
+        "regex", "serialization", "validation", "performance", "cli", "config"
+    };
+    private static final String[] LANGUAGES = {"Java", "Python", "JavaScript", "Go", "SQL"};
+    private static final String[][] TEMPLATES = {
+        {
+            "public static List<$Noun> $name(List<$Noun> items, int limit) {\n"
+                + "    List<$Noun> result = new ArrayList<>();\n"
+                + "    for ($Noun item : items) {\n"
+                + "        if (item.get$Other() != null && result.size() < limit) {\n"
+                + "            result.add(item);\n"
+                + "        }\n"
+                + "    }\n"
+                + "    return result;\n"
+                + "}\n",
+            "private final Map<String, $Noun> $nouns = new ConcurrentHashMap<>();\n\n"
+                + "public $Noun $name(String key) throws IOException {\n"
+                + "    $Noun cached = $nouns.get(key);\n"
+                + "    if (cached != null) return cached;\n"
+                + "    $Noun loaded = $other.fetch(key, $n);\n"
+                + "    $nouns.put(key, loaded);\n"
+                + "    return loaded;\n"
+                + "}\n",
+            "static int $name(int[] values, int target) {\n"
+                + "    int low = 0, high = values.length - 1;\n"
+                + "    while (low <= high) {\n"
+                + "        int mid = (low + high) >>> 1;\n"
+                + "        if (values[mid] < target) low = mid + 1;\n"
+                + "        else if (values[mid] > target) high = mid - 1;\n"
+                + "        else return mid;\n"
+                + "    }\n"
+                + "    return -(low + $n);\n"
+                + "}\n"
+        },
+        {
+            "def $name_py($nouns, limit=$n):\n"
+                + "    result = []\n"
+                + "    for $noun in $nouns:\n"
+                + "        if $noun.$other is not None:\n"
+                + "            result.append($noun)\n"
+                + "        if len(result) >= limit:\n"
+                + "            break\n"
+                + "    return result\n",
+            "class $NounStore:\n"
+                + "    def __init__(self, path):\n"
+                + "        self.path = path\n"
+                + "        self.$nouns = {}\n\n"
+                + "    def $name_py(self, key):\n"
+                + "        with open(self.path) as f:\n"
+                + "            for line in f:\n"
+                + "                k, _, v = line.partition('=')\n"
+                + "                self.$nouns[k.strip()] = v.strip()\n"
+                + "        return self.$nouns.get(key, $n)\n"
+        },
+        {
+            "async function $name($noun, options = {}) {\n"
+                + "  const response = await fetch(`/api/$nouns/${$noun.id}`, options);\n"
+                + "  if (!response.ok) {\n"
+                + "    throw new Error(`$name failed: ${response.status}`);\n"
+                + "  }\n"
+                + "  const body = await response.json();\n"
+                + "  return body.$other ?? $n;\n"
+                + "}\n",
+            "export const $name = ($nouns) =>\n"
+                + "  $nouns\n"
+                + "    .filter((x) => x.$other > $n)\n"
+                + "    .map((x) => ({ ...x, $noun: x.$other * 2 }))\n"
+                + "    .sort((a, b) => a.$noun - b.$noun);\n"
+        },
+        {
+            "func $Name(ctx context.Context, $nouns []$Noun) ([]$Noun, error) {\n"
+                + "\tout := make([]$Noun, 0, len($nouns))\n"
+                + "\tfor _, $noun := range $nouns {\n"
+                + "\t\tif err := ctx.Err(); err != nil {\n"
+                + "\t\t\treturn nil, err\n"
+                + "\t\t}\n"
+                + "\t\tif $noun.$Other > $n {\n"
+                + "\t\t\tout = append(out, $noun)\n"
+                + "\t\t}\n"
+                + "\t}\n"
+                + "\treturn out, nil\n"
+                + "}\n"
+        },
+        {
+            "SELECT $noun.id, $noun.$other, COUNT(*) AS total\n"
+                + "FROM $nouns $noun\n"
+                + "JOIN $others o ON o.$noun_id = $noun.id\n"
+                + "WHERE $noun.created_at > NOW() - INTERVAL '$n days'\n"
+                + "GROUP BY $noun.id, $noun.$other\n"
+                + "ORDER BY total DESC\n"
+                + "LIMIT $n;\n"
+        }
+    };
+
+    private final Random random;
+
+    Corpus(long seed) {
+        random = new Random(seed);
+    }
+
+    CodeSnippet next() {
+        int language = random.nextInt(LANGUAGES.length);
+        String verb = pick(VERBS);
+        String noun = pick(NOUNS);
+        StringBuilder code = new StringBuilder(1024);
+        int functions = 1 + random.nextInt(5);
+        for (int i = 0; i < functions; i++) {
+            if (i > 0) code.append('\n');
+            code.append(fill(pick(TEMPLATES[language]), i == 0 ? verb : pick(VERBS), i == 0 ? noun : pick(NOUNS)));
+        }
+        Set<String> tags = new HashSet<>();
+        int tagCount = random.nextInt(4);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(pick(TAGS));
+        }
+        String title = capitalize(verb) + " " + noun + " " + pick(NOUNS);
+        String description = "Shows how to " + verb + " a " + noun + " with a " + pick(NOUNS) + " in "
+            + LANGUAGES[language] + ".";
+        long createdAt = START - (long) (random.nextDouble() * YEAR);
+        return new CodeSnippet(0, title, description, code.toString(), LANGUAGES[language], tags, createdAt, createdAt);
+    }
+
+    List<CodeSnippet> next(int count) {
+        List<CodeSnippet> snippets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            snippets.add(next());
+        }
+        return snippets;
+    }
+
+    // A manager journaling to an empty directory, filled with size snippets
+    SnippetManager open(Path directory, int size) throws IOException {
+        return fill(new SnippetManager(directory), size);
+    }
+
+    // The same library spread over shards, each journaling to its own subdirectory
+    SnippetManager open(Path directory, int size, int shards) throws IOException {
+        return fill(new ShardedSnippetManager(directory, shards), size);
+    }
+
+    private SnippetManager fill(SnippetManager manager, int size) {
+        for (int added = 0; added < size; added += BATCH_SIZE) {
+            manager.addAll(next(Math.min(BATCH_SIZE, size - added)));
+        }
+        return manager;
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.isDirectory(file)) {
+                    delete(file);
+                } else {
+                    Files.delete(file);
+                }
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private String fill(String template, String verb, String noun) {
+        String other = pick(NOUNS);
+        return template
+            .replace("$name_py", verb + "_" + noun)
+            .replace("$Name", capitalize(verb) + capitalize(noun))
+            .replace("$name", verb + capitalize(noun))
+            .replace("$Nouns", capitalize(noun) + "s")
+            .replace("$nouns", noun + "s")
+            .replace("$Noun", capitalize(noun))
+            .replace("$noun", noun)
+            .replace("$others", other + "s")
+            .replace("$Other", capitalize(other))
+            .replace("$other", other)
+            .replace("$n", String.valueOf(1 + random.nextInt(1000)));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.SnippetManager;
+import com.codesnippetmanager.SnippetSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Add and delete are each paired with an undo so the library stays at its nominal size
+ * however many invocations an iteration runs; subtract a step of UndoRedoBenchmark to
+ * isolate them. Every operation includes its journal append. A fresh session per iteration keeps
+ * undo history from growing across the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class MutationBenchmark {
+    private static final int DRAFTS = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    private Path directory;
+    private SnippetManager manager;
+    private SnippetSession session;
+    private List<CodeSnippet> drafts;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        Corpus corpus = new Corpus(42);
+        manager = corpus.open(directory, size);
+        drafts = corpus.next(DRAFTS);
+        ids = manager.getAllSnippets().stream().mapToLong(CodeSnippet::getId).toArray();
+    }
+
+    @Setup(Level.Iteration)
+    public void openSession() {
+        session = manager.openSession();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    @Benchmark
+    public long addAndUndo() {
+        long id = session.addSnippet(drafts.get(next++ & (DRAFTS - 1)));
+        session.undo();
+        return id;
+    }
+
+    @Benchmark
+    public void edit() {
+        int i = next++;
+        session.editSnippet(ids[i % ids.length], drafts.get(i & (DRAFTS - 1)));
+    }
+
+    @Benchmark
+    public void deleteAndUndo() {
+        session.deleteSnippet(ids[next++ % ids.length]);
+        session.undo();
+    }
+}
@@ -0,0 +1,78 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.SearchHit;
+import com.codesnippetmanager.SnippetManager;
+import com.codesnippetmanager.SnippetPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class SearchBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"hit", "miss"})
+    String outcome;
+
+    private Path directory;
+    private SnippetManager manager;
+    private String query;
+    private String scanQuery;
+    private String definitionQuery;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        manager = new Corpus(42).open(directory, size);
+        query = outcome.equals("hit") ? Corpus.HIT_QUERY : Corpus.MISS_QUERY;
+        scanQuery = outcome.equals("hit") ? Corpus.SCAN_HIT_QUERY : Corpus.SCAN_MISS_QUERY;
+        definitionQuery = outcome.equals("hit") ? Corpus.DEFINITION_QUERY : Corpus.MISS_QUERY;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> substring() {
+        return manager.searchSnippets(query);
+    }
+
+    @Benchmark
+    public SnippetPage substringFirstPage() {
+        return manager.searchPage(query, null, 20);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> unindexed() {
+        return manager.searchSnippets(scanQuery);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> definitions() {
+        return manager.findDefinitions(definitionQuery);
+    }
+
+    @Benchmark
+    public List<SearchHit> ranked() {
+        return manager.rankedSearch(query, 10);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> fuzzy() {
+        return manager.fuzzySearch(query, 10);
+    }
+}
@@ -0,0 +1,70 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.SearchHit;
+import com.codesnippetmanager.SnippetManager;
+import com.codesnippetmanager.SnippetPage;
+import com.codesnippetmanager.SnippetStatistics;
+import com.codesnippetmanager.SortKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The same queries over one library spread across 1 to 8 shards, to show how fan-out scales with cores
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ShardBenchmark {
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    private Path directory;
+    private SnippetManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        manager = new Corpus(42).open(directory, size, shards);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> substring() {
+        return manager.searchSnippets(Corpus.HIT_QUERY);
+    }
+
+    @Benchmark
+    public List<CodeSnippet> unindexed() {
+        return manager.searchSnippets(Corpus.SCAN_HIT_QUERY);
+    }
+
+    @Benchmark
+    public List<SearchHit> ranked() {
+        return manager.rankedSearch(Corpus.HIT_QUERY, 10);
+    }
+
+    @Benchmark
+    public SnippetPage sortedPage() {
+        return manager.getSortedPage(SortKey.TITLE, false, null, 20);
+    }
+
+    @Benchmark
+    public SnippetStatistics statistics() {
+        return manager.getStatistics();
+    }
+}
@@ -0,0 +1,56 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.SnippetManager;
+import com.codesnippetmanager.SnippetPage;
+import com.codesnippetmanager.SortKey;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class SortBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"TITLE", "LANGUAGE", "CREATED_AT", "LAST_MODIFIED"})
+    SortKey key;
+
+    private Path directory;
+    private SnippetManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        manager = new Corpus(42).open(directory, size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    // What a sorted listing screen costs: the first page, then the page after it
+    @Benchmark
+    public SnippetPage firstTwoPages() {
+        SnippetPage page = manager.getSortedPage(key, false, null, 20);
+        return manager.getSortedPage(key, false, page.getNextCursor(), 20);
+    }
+
+    @Benchmark
+    public void fullIteration(Blackhole blackhole) {
+        for (CodeSnippet snippet : manager.getSortedSnippets(key, false)) {
+            blackhole.consume(snippet);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.SnippetManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class StatisticsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    private Path directory;
+    private SnippetManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        manager = new Corpus(42).open(directory, size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    @Benchmark
+    public Map<String, Integer> languageStats() {
+        return manager.getLanguageStats();
+    }
+
+    @Benchmark
+    public Map<String, Integer> tagStats() {
+        return manager.getTagStats();
+    }
+
+    @Benchmark
+    public Map<String, Long> codeSizeHistogram() {
+        return manager.getStatistics().getCodeSizeHistogram();
+    }
+
+    @Benchmark
+    public NavigableMap<LocalDate, Long> languageByDay() {
+        return manager.getStatistics().getLanguageByDay("Java");
+    }
+
+    @Benchmark
+    public Map<String, Long> coOccurringTags() {
+        return manager.getStatistics().getCoOccurringTags("algorithms");
+    }
+}
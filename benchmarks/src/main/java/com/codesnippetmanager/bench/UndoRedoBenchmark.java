@@ -0,0 +1,63 @@
+package com.codesnippetmanager.bench;
+
+import com.codesnippetmanager.CodeSnippet;
+import com.codesnippetmanager.SnippetManager;
+import com.codesnippetmanager.SnippetSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Undoes a session's whole history of depth edits and redoes it again, so each invocation
+ * ends where it started. A score covers all 2 * depth steps; divide by that for one step.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class UndoRedoBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"1", "64", "1024"})
+    int depth;
+
+    private Path directory;
+    private SnippetManager manager;
+    private SnippetSession session;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snippet-bench");
+        Corpus corpus = new Corpus(42);
+        manager = corpus.open(directory, size);
+        List<CodeSnippet> drafts = corpus.next(depth);
+        List<CodeSnippet> library = manager.getAllSnippets();
+        session = manager.openSession();
+        for (int i = 0; i < depth; i++) {
+            session.editSnippet(library.get(i % library.size()).getId(), drafts.get(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Corpus.delete(directory);
+    }
+
+    @Benchmark
+    public void undoRedo() {
+        for (int i = 0; i < depth; i++) {
+            session.undo();
+        }
+        for (int i = 0; i < depth; i++) {
+            session.redo();
+        }
+    }
+}
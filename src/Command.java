@@ -1,4 +0,0 @@
-public interface Command {
-    void execute();
-    void undo();
-} 
\ No newline at end of file
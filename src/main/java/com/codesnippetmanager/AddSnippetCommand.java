@@ -0,0 +1,78 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class AddSnippetCommand implements Command {
+    private SnippetStore store;
+    private long id;
+    private long revision;
+    // Held only while the snippet is out of the store: before execute() and after undo()
+    private CodeSnippet snippet;
+
+    public AddSnippetCommand(SnippetStore store, CodeSnippet snippet) {
+        this(store, snippet.getId(), snippet.getRevision(), snippet);
+    }
+
+    private AddSnippetCommand(SnippetStore store, long id, long revision, CodeSnippet snippet) {
+        this.store = store;
+        this.id = id;
+        this.revision = revision;
+        this.snippet = snippet;
+    }
+
+    @Override
+    public void execute() {
+        store.put(snippet);
+        snippet = null;
+    }
+
+    @Override
+    public void undo() {
+        snippet = store.get(id);
+        store.remove(id);
+    }
+
+    @Override
+    public boolean canUndo() {
+        CodeSnippet current = store.get(id);
+        return current != null && current.getRevision() == revision;
+    }
+
+    @Override
+    public boolean canRedo() {
+        return !store.contains(id);
+    }
+
+    @Override
+    public void writeTo(DataOutput out, boolean undo) throws IOException {
+        if (undo) {
+            out.writeByte(CommandJournal.OP_DELETE);
+            out.writeLong(id);
+        } else {
+            out.writeByte(CommandJournal.OP_ADD);
+            SnippetCodec.write(out, store.get(id));
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        return 48 + (snippet == null ? 0 : snippet.estimatedSize());
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(CommandJournal.OP_ADD);
+        out.writeLong(id);
+        out.writeLong(revision);
+        out.writeBoolean(snippet != null);
+        if (snippet != null) SnippetCodec.writeVersion(out, snippet);
+    }
+
+    static AddSnippetCommand readState(DataInput in, SnippetStore store) throws IOException {
+        long id = in.readLong();
+        long revision = in.readLong();
+        return new AddSnippetCommand(store, id, revision, in.readBoolean() ? SnippetCodec.readVersion(in) : null);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Adds a batch of snippets as a single undo step and a single journal record
+public class AddSnippetsCommand implements Command {
+    private SnippetStore store;
+    private long[] ids;
+    private long[] revisions;
+    // Held only while the batch is out of the store: before execute() and after undo()
+    private List<CodeSnippet> snippets;
+
+    public AddSnippetsCommand(SnippetStore store, List<CodeSnippet> snippets) {
+        this.store = store;
+        this.snippets = new ArrayList<>(snippets);
+        ids = new long[snippets.size()];
+        revisions = new long[snippets.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = snippets.get(i).getId();
+            revisions[i] = snippets.get(i).getRevision();
+        }
+    }
+
+    private AddSnippetsCommand(SnippetStore store, long[] ids, long[] revisions, List<CodeSnippet> snippets) {
+        this.store = store;
+        this.ids = ids;
+        this.revisions = revisions;
+        this.snippets = snippets;
+    }
+
+    @Override
+    public void execute() {
+        store.putAll(snippets);
+        snippets = null;
+    }
+
+    @Override
+    public void undo() {
+        List<CodeSnippet> removed = new ArrayList<>(ids.length);
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            removed.add(store.get(id));
+            idList.add(id);
+        }
+        store.removeAll(idList);
+        snippets = removed;
+    }
+
+    // Takes in another executed batch, so undo and redo treat both as one step
+    void append(AddSnippetsCommand part) {
+        if (snippets != null || part.snippets != null) {
+            throw new IllegalStateException("Only executed batches can be joined");
+        }
+        int length = ids.length;
+        ids = Arrays.copyOf(ids, length + part.ids.length);
+        revisions = Arrays.copyOf(revisions, length + part.revisions.length);
+        System.arraycopy(part.ids, 0, ids, length, part.ids.length);
+        System.arraycopy(part.revisions, 0, revisions, length, part.revisions.length);
+    }
+
+    @Override
+    public boolean canUndo() {
+        for (int i = 0; i < ids.length; i++) {
+            CodeSnippet current = store.get(ids[i]);
+            if (current == null || current.getRevision() != revisions[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean canRedo() {
+        for (long id : ids) {
+            if (store.contains(id)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void writeTo(DataOutput out, boolean undo) throws IOException {
+        out.writeByte(CommandJournal.OP_BATCH);
+        out.writeInt(ids.length);
+        for (long id : ids) {
+            if (undo) {
+                out.writeByte(CommandJournal.OP_DELETE);
+                out.writeLong(id);
+            } else {
+                out.writeByte(CommandJournal.OP_ADD);
+                SnippetCodec.write(out, store.get(id));
+            }
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        long size = 64 + 16L * ids.length;
+        if (snippets != null) {
+            for (CodeSnippet snippet : snippets) {
+                size += snippet.estimatedSize();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(CommandJournal.OP_BATCH);
+        out.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            out.writeLong(ids[i]);
+            out.writeLong(revisions[i]);
+        }
+        out.writeBoolean(snippets != null);
+        if (snippets != null) {
+            for (CodeSnippet snippet : snippets) {
+                SnippetCodec.writeVersion(out, snippet);
+            }
+        }
+    }
+
+    static AddSnippetsCommand readState(DataInput in, SnippetStore store) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt batch size: " + count);
+        long[] ids = new long[count];
+        long[] revisions = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readLong();
+            revisions[i] = in.readLong();
+        }
+        List<CodeSnippet> snippets = null;
+        if (in.readBoolean()) {
+            snippets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                snippets.add(SnippetCodec.readVersion(in));
+            }
+        }
+        return new AddSnippetsCommand(store, ids, revisions, snippets);
+    }
+}
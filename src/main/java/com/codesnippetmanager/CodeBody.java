@@ -0,0 +1,15 @@
+package com.codesnippetmanager;
+
+/*
+ * Code kept off the heap and decoded on demand. Implementations must be immutable and safe
+ * to call from any thread.
+ */
+interface CodeBody {
+    String load();
+
+    // The code as UTF-8 bytes, without decoding it first
+    byte[] bytes();
+
+    // Length of the decoded code in chars
+    int length();
+}
@@ -0,0 +1,129 @@
+package com.codesnippetmanager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * The indexes that read code bodies: substring, ranked, definition and duplicate search.
+ * A library loaded from a snapshot keeps its bodies mapped in the file, and indexing them
+ * means decoding every one, so these are filled only when first used, in one pass that
+ * decodes each body once for all four. Until then changes to the store are not passed on;
+ * the pass reads the store as it is by then. A library that starts empty builds them at
+ * once.
+ *
+ * build and the accessors must be called under the manager's read or write lock, like the
+ * indexes themselves; concurrent readers building at the same time wait for one another.
+ */
+final class CodeIndexes implements SnippetIndex {
+    private static final int BUILD_BATCH = 1024;
+
+    private final SnippetStore store;
+    private final SearchIndex search;
+    private final RankedIndex ranked;
+    private final SymbolIndex symbols;
+    private final DuplicateIndex duplicates;
+    private final SnippetIndex[] all;
+    private volatile boolean built;
+
+    CodeIndexes(SnippetStore store, double duplicateThreshold) {
+        this.store = store;
+        search = new SearchIndex(store);
+        ranked = new RankedIndex(store);
+        symbols = new SymbolIndex(store);
+        duplicates = new DuplicateIndex(store, duplicateThreshold);
+        all = new SnippetIndex[] {search, ranked, symbols, duplicates};
+    }
+
+    SearchIndex search() {
+        build();
+        return search;
+    }
+
+    RankedIndex ranked() {
+        build();
+        return ranked;
+    }
+
+    SymbolIndex symbols() {
+        build();
+        return symbols;
+    }
+
+    DuplicateIndex duplicates() {
+        build();
+        return duplicates;
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    /*
+     * Indexes everything in the store. Each body is decoded into a plain copy of its snippet
+     * that all four indexes read; they key on ids and doc ids, which the copy shares, and
+     * none keeps it.
+     */
+    void build() {
+        if (built) return;
+        synchronized (this) {
+            if (built) return;
+            List<CodeSnippet> batch = new ArrayList<>(BUILD_BATCH);
+            for (CodeSnippet snippet : store.values()) {
+                batch.add(snippet.getCodeHolder() instanceof String ? snippet : snippet.withDecodedCode());
+                if (batch.size() == BUILD_BATCH) {
+                    addToAll(batch);
+                    batch.clear();
+                }
+            }
+            addToAll(batch);
+            built = true;
+        }
+    }
+
+    private void addToAll(List<CodeSnippet> batch) {
+        for (SnippetIndex index : all) {
+            index.addAll(batch);
+        }
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        if (!built) return;
+        for (SnippetIndex index : all) {
+            index.add(snippet);
+        }
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        if (!built) return;
+        for (SnippetIndex index : all) {
+            index.remove(snippet);
+        }
+    }
+
+    @Override
+    public void replace(CodeSnippet oldSnippet, CodeSnippet newSnippet) {
+        if (!built) return;
+        for (SnippetIndex index : all) {
+            index.replace(oldSnippet, newSnippet);
+        }
+    }
+
+    @Override
+    public void addAll(Collection<CodeSnippet> snippets) {
+        if (!built) return;
+        for (SnippetIndex index : all) {
+            index.addAll(snippets);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<CodeSnippet> snippets) {
+        if (!built) return;
+        for (SnippetIndex index : all) {
+            index.removeAll(snippets);
+        }
+    }
+}
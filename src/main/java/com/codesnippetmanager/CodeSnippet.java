@@ -0,0 +1,262 @@
+package com.codesnippetmanager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Immutable in content; an edit produces a new version through withContentOf. Language and tags are
+ * interned because a library repeats the same few dozen of them, tags are kept as a sorted
+ * array and timestamps as epoch millis, so the only sizeable objects per snippet are its
+ * text fields.
+ *
+ * Every object also gets a unique revision, which the undo history compares instead of
+ * object identity: a version it rebuilds from a delta keeps the revision of the original.
+ *
+ * The code of a snippet loaded from a snapshot stays in the snapshot file as a CodeBody
+ * and is decoded each time getCode is called, so only the metadata lives on the heap.
+ * CodeTiering may also swap the code between a String and a compressed CodeBody; that
+ * changes how it is held, never what getCode returns.
+ */
+public final class CodeSnippet {
+    private static final String[] NO_TAGS = new String[0];
+    private static final AtomicLong REVISIONS = new AtomicLong();
+    private static final int MAX_HEAT = 15;
+
+    private final long id;
+    private final String title;
+    private final String description;
+
+    // A String, or a CodeBody holding the code off the heap or compressed
+    private volatile Object code;
+    // Reads of the code, halved by every CodeTiering sweep; racy updates only lose a count
+    private int heat;
+    private final String language;
+    private final String[] tags;
+    private final long createdAt;
+    private final long lastModified;
+    private final long revision;
+    private int hash;
+
+    public CodeSnippet(String title, String description, String code, String language, Set<String> tags) {
+        this(title, description, code, language, tags, System.currentTimeMillis());
+    }
+
+    private CodeSnippet(String title, String description, String code, String language, Set<String> tags, long now) {
+        this(0, title, description, code, language, tags, now, now);
+    }
+
+    public CodeSnippet(long id, String title, String description, String code, String language,
+                       Collection<String> tags, long createdAt, long lastModified) {
+        this(id, title, description, (Object) Objects.requireNonNull(code), language.intern(), sortedTags(tags),
+            createdAt, lastModified);
+    }
+
+    // A snippet whose code is read from body when needed; language and tags must already be
+    // interned, and tags sorted and unique
+    CodeSnippet(long id, String title, String description, CodeBody body, String language,
+                String[] tags, long createdAt, long lastModified) {
+        this(id, title, description, (Object) Objects.requireNonNull(body), language, tags, createdAt, lastModified);
+    }
+
+    private CodeSnippet(long id, String title, String description, Object code, String language,
+                        String[] tags, long createdAt, long lastModified) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.code = code;
+        this.language = language;
+        this.tags = tags.length == 0 ? NO_TAGS : tags;
+        this.createdAt = createdAt;
+        this.lastModified = lastModified;
+        this.revision = REVISIONS.incrementAndGet();
+    }
+
+    private CodeSnippet(long id, CodeSnippet content, long createdAt, long lastModified) {
+        this.id = id;
+        this.title = content.title;
+        this.description = content.description;
+        this.code = content.code;
+        this.language = content.language;
+        this.tags = content.tags;
+        this.createdAt = createdAt;
+        this.lastModified = lastModified;
+        this.revision = REVISIONS.incrementAndGet();
+        this.hash = content.hash;
+    }
+
+    private CodeSnippet(CodeSnippet base, String title, String description, String code, String language,
+                        String[] tags, long lastModified, long revision) {
+        this.id = base.id;
+        this.title = title;
+        this.description = description;
+        // A null code means the code is unchanged from base
+        this.code = code == null ? base.code : code;
+        this.language = language;
+        this.tags = tags;
+        this.createdAt = base.createdAt;
+        this.lastModified = lastModified;
+        this.revision = revision;
+    }
+
+    private static String[] sortedTags(Collection<String> tags) {
+        if (tags.isEmpty()) return NO_TAGS;
+        String[] result = new String[tags.size()];
+        int n = 0;
+        for (String tag : tags) {
+            result[n++] = tag.intern();
+        }
+        Arrays.sort(result);
+        // Drop duplicates a list of tags may contain
+        int unique = 1;
+        for (int i = 1; i < n; i++) {
+            if (!result[i].equals(result[unique - 1])) result[unique++] = result[i];
+        }
+        return unique == n ? result : Arrays.copyOf(result, unique);
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public String getCode() {
+        if (heat < MAX_HEAT) heat++;
+        return peekCode();
+    }
+
+    public int getCodeLength() {
+        Object current = code;
+        return current instanceof String ? ((String) current).length() : ((CodeBody) current).length();
+    }
+    public String getLanguage() { return language; }
+    public Set<String> getTags() { return new TagSet(tags); }
+    public int getTagCount() { return tags.length; }
+    public String getTag(int index) { return tags[index]; }
+    public long getCreatedAtMillis() { return createdAt; }
+    public long getLastModifiedMillis() { return lastModified; }
+    public LocalDateTime getCreatedAt() { return toLocal(createdAt); }
+    public LocalDateTime getLastModified() { return toLocal(lastModified); }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    // Assigned by SnippetManager when the snippet is stored
+    CodeSnippet withId(long id) {
+        return new CodeSnippet(id, this, createdAt, lastModified);
+    }
+
+    // This snippet's id and creation time with the content of draft, modified now
+    public CodeSnippet withContentOf(CodeSnippet draft) {
+        return new CodeSnippet(id, draft, createdAt, System.currentTimeMillis());
+    }
+
+    // Another version of this snippet rebuilt by SnippetDelta; tags must already be sorted and unique,
+    // and a null code keeps this snippet's code
+    CodeSnippet rebuild(String title, String description, String code, String language, String[] tags,
+                        long lastModified, long revision) {
+        return new CodeSnippet(this, title, description, code, language, tags, lastModified, revision);
+    }
+
+    long getRevision() { return revision; }
+
+    String[] tagArray() { return tags; }
+
+    // The code as UTF-8, copied straight from the snapshot when it was never decoded; null
+    // when the code has an unpaired surrogate, which UTF-8 cannot hold
+    byte[] getCodeBytes() {
+        Object current = code;
+        if (current instanceof CodeBody) return ((CodeBody) current).bytes();
+        String text = (String) current;
+        return SnippetCodec.hasUnpairedSurrogate(text) ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The code without counting as a read; for indexing, matching and serializing
+    String peekCode() {
+        Object current = code;
+        return current instanceof String ? (String) current : ((CodeBody) current).load();
+    }
+
+    // A copy holding the code as a String, for a pass that reads it several times; a new revision
+    CodeSnippet withDecodedCode() {
+        return new CodeSnippet(id, title, description, (Object) peekCode(), language, tags, createdAt, lastModified);
+    }
+
+    // For CodeTiering: how the code is held now, and a replacement holding the same code
+    Object getCodeHolder() { return code; }
+    void setCodeHolder(Object holder) { code = holder; }
+
+    // Returns the heat and halves it, so it reflects both how often and how recently the code was read
+    int coolDown() {
+        int current = heat;
+        heat = current >> 1;
+        return current;
+    }
+
+    // Rough bytes held on the heap by this object and its text, assuming one byte per character
+    long estimatedSize() {
+        Object current = code;
+        return 160 + title.length() + description.length() + (current instanceof String ? ((String) current).length() : 32)
+            + 8L * tags.length;
+    }
+
+    // Whether any field contains the lowercase query, ignoring case; the same test SnippetManager.searchSnippets makes
+    public boolean contains(String lowerQuery) {
+        return new SubstringMatcher(lowerQuery).matches(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CodeSnippet that = (CodeSnippet) o;
+        return hashCode() == that.hashCode() &&
+               Objects.equals(title, that.title) &&
+               Objects.equals(description, that.description) &&
+               Objects.equals(peekCode(), that.peekCode()) &&
+               Objects.equals(language, that.language) &&
+               Arrays.equals(tags, that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(title, description, peekCode(), language, Arrays.hashCode(tags));
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return SnippetRenderer.toString(this);
+    }
+
+    // Read-only view of the sorted tag array
+    private static final class TagSet extends AbstractSet<String> {
+        private final String[] tags;
+
+        TagSet(String[] tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && Arrays.binarySearch(tags, (String) o) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(tags).iterator();
+        }
+
+        @Override
+        public int size() {
+            return tags.length;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,618 @@
+package com.codesnippetmanager;
+
+import java.util.List;
+import java.util.Scanner;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.HashSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class CodeSnippetManager {
+    private static SnippetManager manager;
+    private static Scanner scanner;
+    private static final int RANKED_RESULTS = 10;
+    private static final int PAGE_SIZE = 20;
+    // Listings are written through one buffer, flushed before each prompt
+    private static final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024));
+
+    public static void main(String[] args) {
+        try {
+            manager = new SnippetManager(Paths.get("data"));
+        } catch (IOException e) {
+            System.out.println("Error loading snippets: " + e.getMessage());
+            return;
+        }
+        importLegacySnippets(Paths.get("data", "snippets.txt"));
+        scanner = new Scanner(System.in);
+        manager.setDuplicateListener(CodeSnippetManager::warnDuplicates);
+        
+        while (true) {
+            displayMenu();
+            int choice = getIntInput("Enter your choice: ");
+            
+            switch (choice) {
+                case 1:
+                    addSnippet();
+                    break;
+                case 2:
+                    viewAllSnippets();
+                    break;
+                case 3:
+                    editSnippet();
+                    break;
+                case 4:
+                    deleteSnippet();
+                    break;
+                case 5:
+                    searchSnippet();
+                    break;
+                case 6:
+                    sortSnippets();
+                    break;
+                case 7:
+                    if (manager.undo()) {
+                        System.out.println("Undo operation completed.");
+                    } else {
+                        System.out.println("Nothing to undo.");
+                    }
+                    break;
+                case 8:
+                    if (manager.redo()) {
+                        System.out.println("Redo operation completed.");
+                    } else {
+                        System.out.println("Nothing to redo.");
+                    }
+                    break;
+                case 9:
+                    exportOrImport();
+                    break;
+                case 10:
+                    viewRecentSnippets();
+                    break;
+                case 11:
+                    viewStatistics();
+                    break;
+                case 12:
+                    viewDuplicates();
+                    break;
+                case 13:
+                    viewMetrics();
+                    break;
+                case 14:
+                    System.out.println("Thank you for using Code Snippet Manager!");
+                    scanner.close();
+                    try {
+                        manager.close();
+                    } catch (IOException e) {
+                        System.out.println("Error saving snippets: " + e.getMessage());
+                    }
+                    return;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+
+    private static void displayMenu() {
+        System.out.println("\n=== Code Snippet Manager ===");
+        System.out.println("1. Add a new snippet");
+        System.out.println("2. View all snippets");
+        System.out.println("3. Edit a snippet");
+        System.out.println("4. Delete a snippet");
+        System.out.println("5. Search snippets");
+        System.out.println("6. Sort snippets");
+        System.out.println("7. Undo last operation");
+        System.out.println("8. Redo last operation");
+        System.out.println("9. Export or import snippets");
+        System.out.println("10. View recent snippets");
+        System.out.println("11. View statistics");
+        System.out.println("12. Find duplicate snippets");
+        System.out.println("13. View metrics");
+        System.out.println("14. Exit");
+    }
+
+    private static int getIntInput(String prompt) {
+        out.flush();
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return Integer.parseInt(scanner.nextLine().trim());
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid number.");
+            }
+        }
+    }
+
+    private static long getLongInput(String prompt) {
+        out.flush();
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return Long.parseLong(scanner.nextLine().trim());
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid number.");
+            }
+        }
+    }
+
+    private static String getStringInput(String prompt) {
+        out.flush();
+        System.out.print(prompt);
+        return scanner.nextLine().trim();
+    }
+
+    private static void addSnippet() {
+        String title = getStringInput("Enter snippet title: ");
+        String description = getStringInput("Enter snippet description: ");
+        System.out.println("Enter code (type 'END' on a new line to finish):");
+        StringBuilder code = new StringBuilder();
+        String line;
+        while (!(line = scanner.nextLine()).equals("END")) {
+            code.append(line).append("\n");
+        }
+        String language = getStringInput("Enter programming language: ");
+        System.out.println("Enter tags (comma-separated):");
+        Set<String> tags = new HashSet<>(List.of(getStringInput("").split(",")));
+        tags = tags.stream().map(String::trim).collect(Collectors.toSet());
+
+        CodeSnippet snippet = new CodeSnippet(title, description, code.toString(), language, tags);
+        manager.addSnippet(snippet);
+        System.out.println("Snippet added successfully!");
+    }
+
+    private static void viewAllSnippets() {
+        browse(cursor -> manager.getPage(cursor, PAGE_SIZE), "No snippets found.");
+    }
+
+    // Summaries of every snippet without prompting, so the user can pick an ID
+    private static void listSnippets() {
+        SnippetPage.Cursor cursor = null;
+        do {
+            SnippetPage page = manager.getPage(cursor, PAGE_SIZE);
+            for (CodeSnippet snippet : page.getSnippets()) {
+                printSummary(snippet);
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        out.flush();
+    }
+
+    /*
+     * Prints one-line summaries a page at a time, fetching the next page only when asked,
+     * and lets the user open any snippet in full by its ID.
+     */
+    private static void browse(Function<SnippetPage.Cursor, SnippetPage> pages, String emptyMessage) {
+        SnippetPage page = pages.apply(null);
+        if (page.getSnippets().isEmpty()) {
+            System.out.println(emptyMessage);
+            return;
+        }
+        while (true) {
+            for (CodeSnippet snippet : page.getSnippets()) {
+                printSummary(snippet);
+            }
+            if (!offerFullView(page.hasMore())) return;
+            page = pages.apply(page.getNextCursor());
+        }
+    }
+
+    // Returns true when the user asked for the next page
+    private static boolean offerFullView(boolean hasMore) {
+        String prompt = hasMore ? "Enter for more, an ID to view in full, or q to return: "
+            : "Enter an ID to view in full, or press Enter to return: ";
+        while (true) {
+            String input = getStringInput(prompt);
+            if (input.isEmpty()) return hasMore;
+            if (input.equalsIgnoreCase("q")) return false;
+            try {
+                CodeSnippet snippet = manager.getSnippet(Long.parseLong(input));
+                if (snippet == null) {
+                    System.out.println("Invalid snippet ID.");
+                } else {
+                    printFull(snippet);
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid number.");
+            }
+        }
+    }
+
+    private static void printSummary(CodeSnippet snippet) {
+        try {
+            SnippetRenderer.writeSummary(out, snippet);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.println();
+    }
+
+    private static void printFull(CodeSnippet snippet) {
+        out.println();
+        try {
+            SnippetRenderer.writeFull(out, snippet);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.println();
+    }
+
+    private static void editSnippet() {
+        if (manager.size() == 0) {
+            System.out.println("No snippets to edit.");
+            return;
+        }
+        listSnippets();
+        long id = getLongInput("Enter snippet ID to edit: ");
+        CodeSnippet oldSnippet = manager.getSnippet(id);
+        if (oldSnippet == null) {
+            System.out.println("Invalid snippet ID.");
+            return;
+        }
+
+        String title = getStringInput("Enter new title [" + oldSnippet.getTitle() + "]: ");
+        if (title.isEmpty()) title = oldSnippet.getTitle();
+
+        String description = getStringInput("Enter new description [" + oldSnippet.getDescription() + "]: ");
+        if (description.isEmpty()) description = oldSnippet.getDescription();
+
+        System.out.println("Enter new code (type 'END' on a new line to finish, or press Enter to keep existing):");
+        String line = scanner.nextLine();
+        String code = line.isEmpty() ? oldSnippet.getCode() : "";
+        if (!line.isEmpty()) {
+            StringBuilder codeBuilder = new StringBuilder(line + "\n");
+            while (!(line = scanner.nextLine()).equals("END")) {
+                codeBuilder.append(line).append("\n");
+            }
+            code = codeBuilder.toString();
+        }
+
+        String language = getStringInput("Enter new language [" + oldSnippet.getLanguage() + "]: ");
+        if (language.isEmpty()) language = oldSnippet.getLanguage();
+
+        System.out.println("Enter new tags (comma-separated) [" + String.join(", ", oldSnippet.getTags()) + "]:");
+        String tagsInput = getStringInput("");
+        Set<String> tags = tagsInput.isEmpty() ? oldSnippet.getTags() :
+            new HashSet<>(List.of(tagsInput.split(","))).stream().map(String::trim).collect(Collectors.toSet());
+
+        CodeSnippet newSnippet = new CodeSnippet(title, description, code, language, tags);
+        manager.editSnippet(id, newSnippet);
+        System.out.println("Snippet updated successfully!");
+    }
+
+    private static void deleteSnippet() {
+        if (manager.size() == 0) {
+            System.out.println("No snippets to delete.");
+            return;
+        }
+        listSnippets();
+        long id = getLongInput("Enter snippet ID to delete: ");
+        if (manager.getSnippet(id) == null) {
+            System.out.println("Invalid snippet ID.");
+            return;
+        }
+        manager.deleteSnippet(id);
+        System.out.println("Snippet deleted successfully!");
+    }
+
+    private static void searchSnippet() {
+        System.out.println("\nSearch mode:");
+        System.out.println("1. Ranked (best matches first; supports lang:, tag:, title:, \"phrases\", AND/OR/NOT)");
+        System.out.println("2. Substring (every snippet containing the text)");
+        System.out.println("3. Fuzzy (titles and tags, tolerates typos)");
+        System.out.println("4. Definitions (snippets declaring a class, function or method)");
+        int choice = getIntInput("Enter your choice: ");
+        switch (choice) {
+            case 1:
+                rankedSearch();
+                break;
+            case 2:
+                substringSearch();
+                break;
+            case 3:
+                fuzzySearch();
+                break;
+            case 4:
+                definitionSearch();
+                break;
+            default:
+                System.out.println("Invalid choice.");
+        }
+    }
+
+    private static void rankedSearch() {
+        String query = getStringInput("Enter search query: ");
+        List<SearchHit> hits;
+        try {
+            hits = manager.rankedSearch(query, RANKED_RESULTS);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid query: " + e.getMessage());
+            return;
+        }
+        if (hits.isEmpty()) {
+            System.out.println("No matching snippets found.");
+            return;
+        }
+        System.out.println("\n=== Top " + hits.size() + " Results ===");
+        for (SearchHit hit : hits) {
+            out.printf("%6.2f  ", hit.getScore());
+            printSummary(hit.getSnippet());
+        }
+        offerFullView(false);
+    }
+
+    private static void fuzzySearch() {
+        String query = getStringInput("Enter title words or a tag: ");
+        List<String> tags = manager.suggestTags(query, 5);
+        if (!tags.isEmpty()) {
+            System.out.println("Matching tags: " + String.join(", ", tags));
+        }
+        List<CodeSnippet> results = manager.fuzzySearch(query, RANKED_RESULTS);
+        if (results.isEmpty()) {
+            System.out.println("No matching snippets found.");
+            return;
+        }
+        System.out.println("\n=== Closest Matches ===");
+        browse(cursor -> new SnippetPage(results, false), "No matching snippets found.");
+    }
+
+    private static void definitionSearch() {
+        String name = getStringInput("Enter a class, function or method name: ");
+        List<CodeSnippet> results = manager.findDefinitions(name);
+        if (results.isEmpty()) {
+            System.out.println("No Java, Python or JavaScript snippet defines " + name + ".");
+            return;
+        }
+        System.out.println("\n=== Snippets Defining " + name + " ===");
+        browse(cursor -> new SnippetPage(results, false), "No matching snippets found.");
+    }
+
+    private static void substringSearch() {
+        String query = getStringInput("Enter search query: ");
+        browse(cursor -> manager.searchPage(query, cursor, PAGE_SIZE), "No matching snippets found.");
+    }
+
+    private static void sortSnippets() {
+        System.out.println("\nSort by:");
+        System.out.println("1. Title");
+        System.out.println("2. Language");
+        System.out.println("3. Creation Date");
+        System.out.println("4. Last Modified");
+        int choice = getIntInput("Enter your choice: ");
+
+        SortKey key;
+        switch (choice) {
+            case 1:
+                key = SortKey.TITLE;
+                break;
+            case 2:
+                key = SortKey.LANGUAGE;
+                break;
+            case 3:
+                key = SortKey.CREATED_AT;
+                break;
+            case 4:
+                key = SortKey.LAST_MODIFIED;
+                break;
+            default:
+                System.out.println("Invalid choice.");
+                return;
+        }
+        System.out.println("\n=== Sorted Snippets ===");
+        browse(cursor -> manager.getSortedPage(key, false, cursor, PAGE_SIZE), "No snippets found.");
+    }
+
+    // Older versions saved the library as one serialized file; it is imported once, then renamed
+    private static void importLegacySnippets(Path legacy) {
+        if (!Files.isRegularFile(legacy)) return;
+        try {
+            int imported = new LegacySnippetImporter(manager).importFile(legacy);
+            Files.move(legacy, legacy.resolveSibling(legacy.getFileName() + ".imported"));
+            System.out.println("Imported " + imported + " snippet(s) from " + legacy);
+        } catch (IOException e) {
+            System.out.println("Error importing " + legacy + ": " + e.getMessage());
+        }
+    }
+
+    private static void exportOrImport() {
+        System.out.println("\nExport or import:");
+        System.out.println("1. One snippet as text");
+        System.out.println("2. All snippets");
+        System.out.println("3. Substring search results");
+        System.out.println("4. Import an export file");
+        int choice = getIntInput("Enter your choice: ");
+
+        switch (choice) {
+            case 1:
+                exportSnippet();
+                break;
+            case 2:
+                exportSnippets(manager.getAllSnippets());
+                break;
+            case 3:
+                exportSnippets(manager.searchSnippets(getStringInput("Enter search text: ")));
+                break;
+            case 4:
+                importSnippets();
+                break;
+            default:
+                System.out.println("Invalid choice.");
+        }
+    }
+
+    private static void exportSnippets(List<CodeSnippet> snippets) {
+        if (snippets.isEmpty()) {
+            System.out.println("No snippets to export.");
+            return;
+        }
+        String filename = getStringInput("Enter filename to save (.jsonl, .jsonl.gz or .zip): ");
+        Path file = Paths.get(filename);
+        try {
+            int exported = new SnippetArchive(manager).exportFile(snippets, file, SnippetArchive.Format.forFile(file));
+            System.out.println("Exported " + exported + " snippet(s) to " + filename);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error exporting snippets: " + e.getMessage());
+        }
+    }
+
+    private static void importSnippets() {
+        String filename = getStringInput("Enter the export file to import: ");
+        try {
+            int imported = new SnippetArchive(manager).importFile(Paths.get(filename));
+            System.out.println("Imported " + imported + " snippet(s) from " + filename);
+        } catch (NoSuchFileException e) {
+            System.out.println("File not found: " + filename);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error importing snippets: " + e.getMessage());
+        }
+    }
+
+    private static void exportSnippet() {
+        if (manager.size() == 0) {
+            System.out.println("No snippets to export.");
+            return;
+        }
+        listSnippets();
+        long id = getLongInput("Enter snippet ID to export: ");
+        CodeSnippet snippet = manager.getSnippet(id);
+        if (snippet == null) {
+            System.out.println("Invalid snippet ID.");
+            return;
+        }
+
+        String filename = getStringInput("Enter filename to save (e.g., snippet.txt): ");
+        long start = System.nanoTime();
+        int exported = -1;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            SnippetRenderer.writeFull(writer, snippet);
+            exported = 1;
+            System.out.println("Snippet exported successfully to " + filename);
+        } catch (IOException e) {
+            System.out.println("Error exporting snippet: " + e.getMessage());
+        } finally {
+            manager.getMetrics().record(Operation.EXPORT, start, exported);
+        }
+    }
+
+    private static void viewRecentSnippets() {
+        List<CodeSnippet> recentSnippets = manager.getRecentSnippets();
+        if (recentSnippets.isEmpty()) {
+            System.out.println("No recent snippets.");
+            return;
+        }
+        System.out.println("\n=== Recent Snippets ===");
+        browse(cursor -> new SnippetPage(recentSnippets, false), "No recent snippets.");
+    }
+
+    private static void warnDuplicates(CodeSnippet snippet, List<DuplicateMatch> matches) {
+        System.out.println("Note: this code looks like a near-duplicate of:");
+        for (DuplicateMatch match : matches) {
+            System.out.printf("  ID %d - %s (%.0f%% similar)%n",
+                match.getSnippet().getId(), match.getSnippet().getTitle(), match.getSimilarity() * 100);
+        }
+    }
+
+    private static void viewDuplicates() {
+        List<List<CodeSnippet>> clusters = manager.findDuplicateClusters();
+        if (clusters.isEmpty()) {
+            System.out.println("No duplicate snippets found.");
+            return;
+        }
+        System.out.println("\n=== Duplicate Groups ===");
+        for (int i = 0; i < clusters.size(); i++) {
+            System.out.println("\nGroup " + (i + 1) + ":");
+            for (CodeSnippet snippet : clusters.get(i)) {
+                System.out.printf("  ID %d - %s (%s)%n", snippet.getId(), snippet.getTitle(), snippet.getLanguage());
+            }
+        }
+    }
+
+    private static void viewStatistics() {
+        Map<String, Integer> languageStats = manager.getLanguageStats();
+        Map<String, Integer> tagStats = manager.getTagStats();
+
+        System.out.println("\n=== Language Statistics ===");
+        if (languageStats.isEmpty()) {
+            System.out.println("No language statistics available.");
+        } else {
+            languageStats.forEach((lang, count) -> 
+                System.out.printf("%s: %d snippet(s)\n", lang, count));
+        }
+
+        System.out.println("\n=== Tag Statistics ===");
+        if (tagStats.isEmpty()) {
+            System.out.println("No tag statistics available.");
+        } else {
+            tagStats.forEach((tag, count) -> 
+                System.out.printf("%s: %d snippet(s)\n", tag, count));
+        }
+
+        SnippetStatistics statistics = manager.getStatistics();
+        if (statistics.getSnippetCount() == 0) {
+            return;
+        }
+
+        System.out.println("\n=== Code Size ===");
+        System.out.printf("Average: %.0f characters\n", statistics.getAverageCodeLength());
+        statistics.getCodeSizeHistogram().forEach((bucket, count) -> {
+            if (count > 0) {
+                System.out.printf("%s chars: %d snippet(s)\n", bucket, count);
+            }
+        });
+
+        System.out.println("\n=== Snippets Created Per Day ===");
+        new TreeMap<>(languageStats).keySet().forEach(lang ->
+            statistics.getLanguageByDay(lang).forEach((day, count) ->
+                System.out.printf("%s %s: %d snippet(s)\n", lang, day, count)));
+
+        System.out.println("\n=== Tags Used Together ===");
+        new TreeMap<>(tagStats).keySet().forEach(tag -> {
+            Map<String, Long> together = new TreeMap<>(statistics.getCoOccurringTags(tag));
+            if (!together.isEmpty()) {
+                System.out.printf("%s: %s\n", tag, together);
+            }
+        });
+    }
+
+    private static void viewMetrics() {
+        OperationMetrics metrics = manager.getMetrics();
+        System.out.println("\n=== Operation Metrics ===");
+        System.out.printf("%-14s %8s %7s %10s %10s %10s %10s %9s\n",
+            "Operation", "Count", "Errors", "Mean ms", "p50 ms", "p99 ms", "Max ms", "Results");
+        for (Operation operation : Operation.values()) {
+            Histogram latency = metrics.getLatency(operation);
+            if (latency.getCount() == 0) continue;
+            System.out.printf("%-14s %8d %7d %10.3f %10.3f %10.3f %10.3f %9.1f\n", operation.label(),
+                latency.getCount(), metrics.getErrorCount(operation), latency.getMean() / 1e6,
+                latency.getPercentile(0.5) / 1e6, latency.getPercentile(0.99) / 1e6, latency.getMax() / 1e6,
+                metrics.getResultSize(operation).getMean());
+        }
+        CodeTiering tiering = manager.getCodeTiering();
+        if (tiering.getSweptAt() != 0) {
+            System.out.printf("\nCode bodies: %d plain, %d deflated (%.1fx), %d in the snapshot file\n",
+                tiering.getPlainCount(), tiering.getDeflatedCount(), tiering.getCompressionRatio(), tiering.getMappedCount());
+            System.out.printf("Code on the heap: %.1f MB (%.1f MB expanded); cache hit rate %.1f%%\n",
+                tiering.getHeapBytes() / 1e6, tiering.getExpandedHeapBytes() / 1e6, tiering.getCacheHitRate() * 100);
+        }
+
+        String filename = getStringInput("\nEnter a filename to save a JSON snapshot, or press Enter to return: ");
+        if (filename.isEmpty()) return;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            metrics.writeJson(writer);
+            System.out.println("Metrics saved to " + filename);
+        } catch (IOException e) {
+            System.out.println("Error saving metrics: " + e.getMessage());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,359 @@
+package com.codesnippetmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Keeps rarely read code bodies deflated on the heap. Every read of a snippet's code warms
+ * it, and every sweep halves that heat, so heat reflects both how often and how recently
+ * the code was read. A sweep deflates each plain body whose heat has reached zero and
+ * expands each deflated one that has warmed up to HOT_HEAT again. Once DICTIONARY_SAMPLES
+ * bodies of one language have gone cold, the most common lines among them become that
+ * language's preset dictionary, which every later body of the language is deflated with.
+ *
+ * Reads of deflated bodies go through an LRU cache of recently expanded ones; a sweep takes
+ * out the bodies it expands for good and those no snippet holds any more. Bodies still
+ * in a snapshot file are off the heap already and are left alone, as are short bodies,
+ * ones with an unpaired surrogate, which UTF-8 cannot hold, and ones deflate cannot shrink
+ * by at least a tenth. The figures describe the library as of the last sweep, apart from
+ * the cache counters, which are live.
+ */
+public class CodeTiering implements Closeable {
+    private static final int HOT_HEAT = 8;
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+    private static final long CACHE_CHARS = 4L * 1024 * 1024;
+    private static final int MIN_DEFLATE_BYTES = 128;
+    private static final int DICTIONARY_SAMPLES = 32;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+
+    private final Supplier<List<CodeSnippet>> snippets;
+    private final ScheduledExecutorService sweeper;
+    // Only touched by sweep
+    private final Map<String, byte[]> dictionaries;
+    // Guarded by itself
+    private final LinkedHashMap<DeflatedCode, String> cache;
+    private long cacheChars;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private volatile int plainCount;
+    private volatile long plainChars;
+    private volatile int deflatedCount;
+    private volatile long deflatedBytes;
+    private volatile long expandedBytes;
+    private volatile int mappedCount;
+    private volatile long sweptAt;
+
+    public CodeTiering(Supplier<List<CodeSnippet>> snippets) {
+        this.snippets = snippets;
+        dictionaries = new HashMap<>();
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+        hits = new LongAdder();
+        misses = new LongAdder();
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snippet-code-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    // Bodies held as plain strings, and their total length in chars
+    public int getPlainCount() { return plainCount; }
+    public long getPlainChars() { return plainChars; }
+    // Bodies held deflated, their total deflated size and their total size as UTF-8
+    public int getDeflatedCount() { return deflatedCount; }
+    public long getDeflatedBytes() { return deflatedBytes; }
+    public long getExpandedBytes() { return expandedBytes; }
+    // Bodies still in the snapshot file
+    public int getMappedCount() { return mappedCount; }
+    // When the figures above were taken, or 0 before the first sweep
+    public long getSweptAt() { return sweptAt; }
+
+    public double getCompressionRatio() {
+        return deflatedBytes == 0 ? 1 : (double) expandedBytes / deflatedBytes;
+    }
+
+    // Rough heap bytes taken by code bodies, counting one byte per char, and what they would take all expanded
+    public long getHeapBytes() {
+        return plainChars + deflatedBytes + getCacheChars();
+    }
+
+    public long getExpandedHeapBytes() {
+        return plainChars + expandedBytes;
+    }
+
+    public long getCacheChars() {
+        synchronized (cache) {
+            return cacheChars;
+        }
+    }
+
+    public long getCacheHits() { return hits.sum(); }
+    public long getCacheMisses() { return misses.sum(); }
+
+    public double getCacheHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"sweptAt\":").append(String.valueOf(sweptAt));
+        out.append(",\"plain\":{\"count\":").append(String.valueOf(plainCount));
+        out.append(",\"chars\":").append(String.valueOf(plainChars)).append('}');
+        out.append(",\"deflated\":{\"count\":").append(String.valueOf(deflatedCount));
+        out.append(",\"bytes\":").append(String.valueOf(deflatedBytes));
+        out.append(",\"expandedBytes\":").append(String.valueOf(expandedBytes));
+        out.append(",\"ratio\":").append(String.valueOf(getCompressionRatio())).append('}');
+        out.append(",\"mapped\":{\"count\":").append(String.valueOf(mappedCount)).append('}');
+        out.append(",\"heapBytes\":").append(String.valueOf(getHeapBytes()));
+        out.append(",\"expandedHeapBytes\":").append(String.valueOf(getExpandedHeapBytes()));
+        out.append(",\"cache\":{\"chars\":").append(String.valueOf(getCacheChars()));
+        out.append(",\"hits\":").append(String.valueOf(getCacheHits()));
+        out.append(",\"misses\":").append(String.valueOf(getCacheMisses()));
+        out.append(",\"hitRate\":").append(String.valueOf(getCacheHitRate())).append("}}");
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            System.err.println("Error tiering snippet code: " + e.getMessage());
+        }
+    }
+
+    // Runs on the sweeper thread every SWEEP_INTERVAL_SECONDS; snippets are never locked
+    synchronized void sweep() {
+        List<CodeSnippet> all = snippets.get();
+        Map<String, List<CodeSnippet>> cold = new HashMap<>();
+        Set<DeflatedCode> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CodeSnippet snippet : all) {
+            int heat = snippet.coolDown();
+            Object holder = snippet.getCodeHolder();
+            if (holder instanceof String) {
+                if (heat == 0) cold.computeIfAbsent(snippet.getLanguage(), k -> new ArrayList<>()).add(snippet);
+            } else if (holder instanceof DeflatedCode) {
+                if (heat >= HOT_HEAT) {
+                    snippet.setCodeHolder(reexpand((DeflatedCode) holder));
+                } else {
+                    live.add((DeflatedCode) holder);
+                }
+            }
+        }
+        evictAllBut(live);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (Map.Entry<String, List<CodeSnippet>> language : cold.entrySet()) {
+                byte[] dictionary = dictionaries.get(language.getKey());
+                if (dictionary == null && language.getValue().size() >= DICTIONARY_SAMPLES) {
+                    dictionary = buildDictionary(language.getValue());
+                    dictionaries.put(language.getKey(), dictionary);
+                }
+                for (CodeSnippet snippet : language.getValue()) {
+                    Object holder = snippet.getCodeHolder();
+                    if (!(holder instanceof String)) continue;
+                    DeflatedCode deflated = deflate((String) holder, dictionary, deflater);
+                    if (deflated != null) snippet.setCodeHolder(deflated);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        int plain = 0;
+        long chars = 0;
+        int deflatedTotal = 0;
+        long deflatedSize = 0;
+        long expandedSize = 0;
+        int mapped = 0;
+        for (CodeSnippet snippet : all) {
+            Object holder = snippet.getCodeHolder();
+            if (holder instanceof String) {
+                plain++;
+                chars += ((String) holder).length();
+            } else if (holder instanceof DeflatedCode) {
+                DeflatedCode deflated = (DeflatedCode) holder;
+                deflatedTotal++;
+                deflatedSize += deflated.compressed.length;
+                expandedSize += deflated.byteLength;
+            } else {
+                mapped++;
+            }
+        }
+        plainCount = plain;
+        plainChars = chars;
+        deflatedCount = deflatedTotal;
+        deflatedBytes = deflatedSize;
+        expandedBytes = expandedSize;
+        mappedCount = mapped;
+        sweptAt = System.currentTimeMillis();
+    }
+
+    // Null when the body is too short, UTF-8 cannot hold it or deflate saves less than a tenth
+    private DeflatedCode deflate(String code, byte[] dictionary, Deflater deflater) {
+        if (SnippetCodec.hasUnpairedSurrogate(code)) return null;
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_DEFLATE_BYTES) return null;
+        deflater.reset();
+        if (dictionary != null) deflater.setDictionary(dictionary);
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[bytes.length - bytes.length / 10];
+        int length = deflater.deflate(buffer);
+        if (!deflater.finished()) return null;
+        return new DeflatedCode(this, Arrays.copyOf(buffer, length), bytes.length, code.length(), dictionary);
+    }
+
+    /*
+     * The lines that repeat most across the samples, weighted by length. Deflate reaches the
+     * end of a dictionary with the shortest distances, so the most valuable lines go last.
+     */
+    private static byte[] buildDictionary(List<CodeSnippet> samples) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (CodeSnippet sample : samples.subList(0, Math.min(samples.size(), DICTIONARY_SAMPLES * 4))) {
+            Object holder = sample.getCodeHolder();
+            if (!(holder instanceof String)) continue;
+            for (String line : ((String) holder).split("\n")) {
+                if (line.length() >= 4 && line.length() <= 200) counts.merge(line, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> line : counts.entrySet()) {
+            if (line.getValue() > 1) lines.add(line);
+        }
+        lines.sort((a, b) -> Long.compare((long) b.getValue() * b.getKey().length(), (long) a.getValue() * a.getKey().length()));
+        Deque<byte[]> chosen = new ArrayDeque<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> line : lines) {
+            byte[] bytes = (line.getKey() + "\n").getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > DICTIONARY_SIZE) continue;
+            chosen.push(bytes);
+            size += bytes.length;
+        }
+        byte[] dictionary = new byte[size];
+        int offset = 0;
+        for (byte[] bytes : chosen) {
+            System.arraycopy(bytes, 0, dictionary, offset, bytes.length);
+            offset += bytes.length;
+        }
+        return size == 0 ? null : dictionary;
+    }
+
+    private String expand(DeflatedCode code) {
+        synchronized (cache) {
+            String cached = cache.get(code);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        String expanded = new String(code.bytes(), StandardCharsets.UTF_8);
+        synchronized (cache) {
+            if (cache.put(code, expanded) == null) cacheChars += expanded.length();
+            Iterator<String> eldest = cache.values().iterator();
+            while (cacheChars > CACHE_CHARS && eldest.hasNext()) {
+                cacheChars -= eldest.next().length();
+                eldest.remove();
+            }
+        }
+        return expanded;
+    }
+
+    /*
+     * Expands a body for good, without counting as a read. Its cached copy is taken out of
+     * the cache and reused; otherwise it is inflated directly rather than cached.
+     */
+    private String reexpand(DeflatedCode code) {
+        synchronized (cache) {
+            String cached = cache.remove(code);
+            if (cached != null) {
+                cacheChars -= cached.length();
+                return cached;
+            }
+        }
+        return new String(code.bytes(), StandardCharsets.UTF_8);
+    }
+
+    // Drops cached copies of bodies no snippet holds deflated any more, such as edited or deleted ones
+    private void evictAllBut(Set<DeflatedCode> live) {
+        synchronized (cache) {
+            Iterator<Map.Entry<DeflatedCode, String>> entries = cache.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<DeflatedCode, String> entry = entries.next();
+                if (!live.contains(entry.getKey())) {
+                    cacheChars -= entry.getValue().length();
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    // A deflated body; compared by identity, which is what the cache keys on
+    private static final class DeflatedCode implements CodeBody {
+        private final CodeTiering tiering;
+        private final byte[] compressed;
+        private final int byteLength;
+        private final int length;
+        private final byte[] dictionary;
+
+        DeflatedCode(CodeTiering tiering, byte[] compressed, int byteLength, int length, byte[] dictionary) {
+            this.tiering = tiering;
+            this.compressed = compressed;
+            this.byteLength = byteLength;
+            this.length = length;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public String load() {
+            return tiering.expand(this);
+        }
+
+        @Override
+        public byte[] bytes() {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                byte[] bytes = new byte[byteLength];
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int read = inflater.inflate(bytes, offset, bytes.length - offset);
+                    if (read == 0) {
+                        if (!inflater.needsDictionary() || dictionary == null) break;
+                        inflater.setDictionary(dictionary);
+                    }
+                    offset += read;
+                }
+                if (offset < bytes.length) throw new IllegalStateException("Truncated deflated code");
+                return bytes;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt deflated code", e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+    }
+}
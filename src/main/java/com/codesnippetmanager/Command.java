@@ -0,0 +1,46 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * A command refers to the snippets it changes by id and revision, and holds a snippet's
+ * content only while that content is not in the store (a deleted snippet, or an undone
+ * add), so an undo history mostly costs ids and edit deltas.
+ */
+public interface Command {
+    void execute();
+    void undo();
+
+    // Whether the store still holds what execute() left, so undo() won't overwrite a later change
+    boolean canUndo();
+
+    // Whether the store still holds what undo() left, so execute() can run again
+    boolean canRedo();
+
+    // Writes the state change made by execute() (or by undo()) as a journal record
+    void writeTo(DataOutput out, boolean undo) throws IOException;
+
+    // Rough bytes this command alone keeps reachable, for the undo history's budget
+    long estimatedSize();
+
+    // Writes the command itself, so the undo history can move it to disk and back with readState
+    void writeState(DataOutput out) throws IOException;
+
+    static Command readState(DataInput in, SnippetStore store) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case CommandJournal.OP_ADD:
+                return AddSnippetCommand.readState(in, store);
+            case CommandJournal.OP_EDIT:
+                return EditSnippetCommand.readState(in, store);
+            case CommandJournal.OP_DELETE:
+                return DeleteSnippetCommand.readState(in, store);
+            case CommandJournal.OP_BATCH:
+                return AddSnippetsCommand.readState(in, store);
+            default:
+                throw new IOException("Unknown command type " + type);
+        }
+    }
+} 
\ No newline at end of file
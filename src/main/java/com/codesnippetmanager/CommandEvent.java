@@ -0,0 +1,31 @@
+package com.codesnippetmanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event spanning one command's execute, undo or redo, including its journal append
+@Name("com.codesnippetmanager.Command")
+@Label("Snippet Command")
+@Category("Code Snippet Manager")
+@Description("A change to the snippet library")
+@StackTrace(false)
+class CommandEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Command")
+    String command;
+
+    void finish(Operation operation, Command command) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation.label();
+            this.command = command.getClass().getSimpleName();
+            commit();
+        }
+    }
+}
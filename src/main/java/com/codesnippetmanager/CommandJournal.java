@@ -0,0 +1,369 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only journal of every command run against a SnippetManager.
+ *
+ * The directory holds numbered generations: snapshot-N.bin is the full library at the
+ * moment journal-N.log was started, and journal-N.log holds every change made after it.
+ * Once the active journal passes the compaction threshold a new generation is opened and
+ * a background thread writes the matching snapshot, then deletes the older files.
+ * Recovery loads the newest readable snapshot and replays every journal from there on.
+ * Snapshots are in SnapshotFile format, which leaves code bodies in the file until needed.
+ */
+public class CommandJournal implements Closeable {
+    public static final byte OP_ADD = 1;
+    public static final byte OP_EDIT = 2;
+    public static final byte OP_DELETE = 3;
+    // Followed by a count and that many ADD/EDIT/DELETE operations, applied all or nothing
+    public static final byte OP_BATCH = 4;
+
+    public static final byte ORIGIN_EXECUTE = 0;
+    public static final byte ORIGIN_UNDO = 1;
+    public static final byte ORIGIN_REDO = 2;
+
+    private static final int JOURNAL_MAGIC = 0x534e504a; // "SNPJ"
+    private static final int FORMAT_VERSION = 1;
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 4L * 1024 * 1024;
+    private static final long FSYNC_INTERVAL_MS = 50;
+
+    private final Path directory;
+    private final long compactionThreshold;
+    private final Supplier<List<CodeSnippet>> state;
+    private final LongSupplier nextId;
+    private final ScheduledExecutorService syncer;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting;
+
+    private long generation;
+    private FileOutputStream file;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long journalSize;
+    private boolean dirty;
+    private List<CodeSnippet> recovered;
+    private long highestId;
+
+    // state and nextId are read under the caller's lock whenever append starts a compaction
+    public CommandJournal(Path directory, Supplier<List<CodeSnippet>> state, LongSupplier nextId) throws IOException {
+        this(directory, state, nextId, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public CommandJournal(Path directory, Supplier<List<CodeSnippet>> state, LongSupplier nextId,
+                          long compactionThreshold) throws IOException {
+        this.directory = directory;
+        this.state = state;
+        this.nextId = nextId;
+        this.compactionThreshold = compactionThreshold;
+        this.compacting = new AtomicBoolean();
+        Files.createDirectories(directory);
+        recover();
+
+        syncer = Executors.newSingleThreadScheduledExecutor(daemon("snippet-journal-sync"));
+        syncer.scheduleWithFixedDelay(this::syncQuietly, FSYNC_INTERVAL_MS, FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        compactor = Executors.newSingleThreadExecutor(daemon("snippet-journal-compactor"));
+    }
+
+    // The library as it stood when the journal was opened
+    public List<CodeSnippet> getRecoveredSnippets() {
+        return recovered;
+    }
+
+    /*
+     * Highest snippet id ever handed out, as far as recovery can tell: the snapshot records
+     * the next id at the time it was taken, and every later add is in the journals, so ids
+     * of deleted snippets count too.
+     */
+    public long getHighestId() {
+        return highestId;
+    }
+
+    public synchronized void append(byte origin, Command command, boolean undo) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeByte(origin);
+            command.writeTo(record, undo);
+            byte[] payload = buffer.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+            journalSize += payload.length + 8;
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the snippet journal", e);
+        }
+        if (journalSize >= compactionThreshold && compacting.compareAndSet(false, true)) {
+            startCompaction();
+        }
+    }
+
+    /*
+     * Forces everything appended so far to disk instead of waiting for the next batch. The
+     * force runs outside the lock so appends carry on meanwhile; if it fails, the journal
+     * stays dirty and the next sync tries again.
+     */
+    public void sync() throws IOException {
+        FileChannel flushed;
+        synchronized (this) {
+            if (!dirty) return;
+            out.flush();
+            dirty = false;
+            flushed = channel;
+        }
+        try {
+            flushed.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                // Rolling or closing the journal forced it before closing the channel
+                if (flushed != channel || !flushed.isOpen()) return;
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            out.flush();
+            channel.force(false);
+            out.close();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Error syncing snippet journal: " + e.getMessage());
+        }
+    }
+
+    private void startCompaction() {
+        List<CodeSnippet> snapshot = state.get();
+        long snapshotNextId = nextId.getAsLong();
+        long next = generation + 1;
+        try {
+            out.flush();
+            channel.force(false);
+            out.close();
+            openJournal(next);
+        } catch (IOException e) {
+            compacting.set(false);
+            throw new UncheckedIOException("Could not roll the snippet journal", e);
+        }
+        compactor.execute(() -> {
+            try {
+                writeSnapshot(next, snapshot, snapshotNextId);
+                deleteGenerationsBefore(next);
+            } catch (IOException e) {
+                System.err.println("Error compacting snippet journal: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    private void recover() throws IOException {
+        for (Path tmp : list("snapshot-", ".tmp")) {
+            Files.deleteIfExists(tmp);
+        }
+        List<Long> snapshots = generations("snapshot-", ".bin");
+        List<Long> journals = generations("journal-", ".log");
+        NavigableMap<Long, CodeSnippet> snippets = new TreeMap<>();
+        long base = journals.isEmpty() ? 1 : journals.get(0);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                SnapshotFile.Contents contents = SnapshotFile.read(snapshotPath(snapshots.get(i)));
+                for (CodeSnippet snippet : contents.snippets) {
+                    snippets.put(snippet.getId(), snippet);
+                }
+                highestId = contents.nextId - 1;
+                base = snapshots.get(i);
+                break;
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + snapshots.get(i) + ": " + e.getMessage());
+            }
+        }
+
+        long last = base;
+        for (long journal : journals) {
+            if (journal < base) continue;
+            boolean newest = journal == journals.get(journals.size() - 1);
+            replay(journalPath(journal), newest, record -> apply(record, snippets));
+            last = journal;
+        }
+        recovered = new ArrayList<>(snippets.values());
+        if (!snippets.isEmpty()) {
+            highestId = Math.max(highestId, snippets.lastKey());
+        }
+        openJournal(last);
+    }
+
+    private void replay(Path path, boolean newest, RecordHandler handler) throws IOException {
+        if (Files.size(path) < 8) {
+            if (!newest) throw new IOException("Truncated journal file " + path);
+            // Crashed before the header was written; openJournal will write it again
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(0);
+            }
+            return;
+        }
+        long goodLength;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != JOURNAL_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognized journal file " + path);
+            }
+            goodLength = 8;
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if (in.readInt() != (int) crc.getValue()) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                handler.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                goodLength += payload.length + 8;
+            }
+        }
+        if (goodLength < Files.size(path)) {
+            if (!newest) throw new IOException("Corrupt record in " + path + " at offset " + goodLength);
+            // A torn write at the tail of the active journal; drop it so appends start clean
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(goodLength);
+            }
+        }
+    }
+
+    private void apply(DataInput record, Map<Long, CodeSnippet> snippets) throws IOException {
+        record.readByte(); // origin is kept for auditing only
+        applyOperation(record, snippets);
+    }
+
+    private void applyOperation(DataInput record, Map<Long, CodeSnippet> snippets) throws IOException {
+        byte op = record.readByte();
+        switch (op) {
+            case OP_ADD:
+            case OP_EDIT: {
+                CodeSnippet snippet = SnippetCodec.read(record);
+                snippets.put(snippet.getId(), snippet);
+                highestId = Math.max(highestId, snippet.getId());
+                break;
+            }
+            case OP_DELETE:
+                snippets.remove(record.readLong());
+                break;
+            case OP_BATCH: {
+                int count = record.readInt();
+                for (int i = 0; i < count; i++) {
+                    applyOperation(record, snippets);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal operation " + op);
+        }
+    }
+
+    private void openJournal(long generation) throws IOException {
+        Path path = journalPath(generation);
+        boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+        file = new FileOutputStream(path.toFile(), true);
+        channel = file.getChannel();
+        out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        if (fresh) {
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.flush();
+            channel.force(true);
+        }
+        this.generation = generation;
+        journalSize = channel.size();
+        dirty = false;
+    }
+
+    private void writeSnapshot(long generation, List<CodeSnippet> snippets, long nextId) throws IOException {
+        Path tmp = directory.resolve(String.format("snapshot-%06d.tmp", generation));
+        SnapshotFile.write(tmp, snippets, nextId);
+        Files.move(tmp, snapshotPath(generation), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteGenerationsBefore(long generation) throws IOException {
+        for (long old : generations("snapshot-", ".bin")) {
+            if (old < generation) Files.deleteIfExists(snapshotPath(old));
+        }
+        for (long old : generations("journal-", ".log")) {
+            if (old < generation) Files.deleteIfExists(journalPath(old));
+        }
+    }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        List<Long> result = new ArrayList<>();
+        for (Path path : list(prefix, suffix)) {
+            String name = path.getFileName().toString();
+            try {
+                result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : stream) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve(String.format("journal-%06d.log", generation));
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(String.format("snapshot-%06d.bin", generation));
+    }
+
+    private interface RecordHandler {
+        void apply(DataInput record) throws IOException;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
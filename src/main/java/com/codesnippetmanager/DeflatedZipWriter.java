@@ -0,0 +1,180 @@
+package com.codesnippetmanager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * Writes a zip archive from entries that were deflated beforehand, so compression can run on
+ * any number of threads while the writer only copies bytes in order. ZipOutputStream cannot
+ * do this: it deflates every entry itself, on the thread that writes it.
+ *
+ * Names are stored as UTF-8. Once the archive holds 65535 entries or grows past 4 GB the
+ * ZIP64 end records and offsets are added, as java.util.zip and the common tools expect.
+ * A single entry must stay under 4 GB. The central directory is kept in memory until
+ * finish(), about 60 bytes plus the name per entry.
+ */
+final class DeflatedZipWriter {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int DEFLATED = 8;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    // One entry, compressed and ready to be written
+    static final class Entry {
+        private final byte[] name;
+        private final int dosTime;
+        private final long crc;
+        private final int size;
+        private final byte[] deflated;
+        private final int deflatedLength;
+
+        private Entry(byte[] name, int dosTime, long crc, int size, byte[] deflated, int deflatedLength) {
+            this.name = name;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.deflated = deflated;
+            this.deflatedLength = deflatedLength;
+        }
+    }
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream central;
+    private long offset;
+    private long count;
+
+    DeflatedZipWriter(OutputStream out, int bufferSize) {
+        this.out = new BufferedOutputStream(out, bufferSize);
+        central = new ByteArrayOutputStream();
+    }
+
+    // Compresses data as a raw deflate stream, the way zip stores it. deflater must be created with nowrap
+    static Entry deflate(String name, byte[] data, long modifiedMillis, Deflater deflater) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length / 2 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return new Entry(name.getBytes(StandardCharsets.UTF_8), dosTime(modifiedMillis), crc.getValue(), data.length,
+            buffer, length);
+    }
+
+    void write(Entry entry) throws IOException {
+        writeInt32(out, LOCAL_HEADER);
+        writeInt16(out, VERSION);
+        writeCommon(out, entry);
+        writeInt16(out, entry.name.length);
+        writeInt16(out, 0);
+        out.write(entry.name);
+        out.write(entry.deflated, 0, entry.deflatedLength);
+
+        boolean zip64 = offset >= MAX_32;
+        writeInt32(central, CENTRAL_HEADER);
+        writeInt16(central, ZIP64_VERSION);
+        writeInt16(central, zip64 ? ZIP64_VERSION : VERSION);
+        writeCommon(central, entry);
+        writeInt16(central, entry.name.length);
+        writeInt16(central, zip64 ? 12 : 0);
+        writeInt16(central, 0);
+        writeInt16(central, 0);
+        writeInt16(central, 0);
+        writeInt32(central, 0);
+        writeInt32(central, (int) Math.min(offset, MAX_32));
+        central.write(entry.name);
+        if (zip64) {
+            writeInt16(central, 1);
+            writeInt16(central, 8);
+            writeInt64(central, offset);
+        }
+        offset += 30 + entry.name.length + entry.deflatedLength;
+        count++;
+    }
+
+    // Writes the central directory and flushes; the underlying stream is left open
+    void finish() throws IOException {
+        long directoryOffset = offset;
+        long directorySize = central.size();
+        central.writeTo(out);
+        offset += directorySize;
+        if (count >= MAX_16 || directoryOffset >= MAX_32 || directorySize >= MAX_32) {
+            writeInt32(out, ZIP64_END);
+            writeInt64(out, 44);
+            writeInt16(out, ZIP64_VERSION);
+            writeInt16(out, ZIP64_VERSION);
+            writeInt32(out, 0);
+            writeInt32(out, 0);
+            writeInt64(out, count);
+            writeInt64(out, count);
+            writeInt64(out, directorySize);
+            writeInt64(out, directoryOffset);
+            writeInt32(out, ZIP64_LOCATOR);
+            writeInt32(out, 0);
+            writeInt64(out, offset);
+            writeInt32(out, 1);
+        }
+        writeInt32(out, END);
+        writeInt16(out, 0);
+        writeInt16(out, 0);
+        writeInt16(out, (int) Math.min(count, MAX_16));
+        writeInt16(out, (int) Math.min(count, MAX_16));
+        writeInt32(out, (int) Math.min(directorySize, MAX_32));
+        writeInt32(out, (int) Math.min(directoryOffset, MAX_32));
+        writeInt16(out, 0);
+        out.flush();
+    }
+
+    // Flags through sizes, the fields the local and central headers share
+    private static void writeCommon(OutputStream out, Entry entry) throws IOException {
+        writeInt16(out, UTF8_NAMES);
+        writeInt16(out, DEFLATED);
+        writeInt32(out, entry.dosTime);
+        writeInt32(out, (int) entry.crc);
+        writeInt32(out, entry.deflatedLength);
+        writeInt32(out, entry.size);
+    }
+
+    // MS-DOS date in the high half, time in the low half, local time at two-second precision
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+            | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private static void writeInt16(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+
+    private static void writeInt32(OutputStream out, int value) throws IOException {
+        writeInt16(out, value);
+        writeInt16(out, value >>> 16);
+    }
+
+    private static void writeInt64(OutputStream out, long value) throws IOException {
+        writeInt32(out, (int) value);
+        writeInt32(out, (int) (value >>> 32));
+    }
+}
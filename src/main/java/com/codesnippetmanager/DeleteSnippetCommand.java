@@ -0,0 +1,79 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class DeleteSnippetCommand implements Command {
+    private SnippetStore store;
+    private long id;
+    private long revision;
+    // Held only while the snippet is deleted
+    private CodeSnippet snippet;
+
+    public DeleteSnippetCommand(SnippetStore store, CodeSnippet snippet) {
+        this(store, snippet.getId(), snippet.getRevision(), null);
+    }
+
+    private DeleteSnippetCommand(SnippetStore store, long id, long revision, CodeSnippet snippet) {
+        this.store = store;
+        this.id = id;
+        this.revision = revision;
+        this.snippet = snippet;
+    }
+
+    @Override
+    public void execute() {
+        snippet = store.get(id);
+        store.remove(id);
+    }
+
+    @Override
+    public void undo() {
+        // Same id, so the snippet goes back to its old place in the ordering
+        store.put(snippet);
+        snippet = null;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return !store.contains(id);
+    }
+
+    @Override
+    public boolean canRedo() {
+        CodeSnippet current = store.get(id);
+        return current != null && current.getRevision() == revision;
+    }
+
+    @Override
+    public void writeTo(DataOutput out, boolean undo) throws IOException {
+        if (undo) {
+            out.writeByte(CommandJournal.OP_ADD);
+            SnippetCodec.write(out, store.get(id));
+        } else {
+            out.writeByte(CommandJournal.OP_DELETE);
+            out.writeLong(id);
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        return 48 + (snippet == null ? 0 : snippet.estimatedSize());
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(CommandJournal.OP_DELETE);
+        out.writeLong(id);
+        out.writeLong(revision);
+        out.writeBoolean(snippet != null);
+        if (snippet != null) SnippetCodec.writeVersion(out, snippet);
+    }
+
+    static DeleteSnippetCommand readState(DataInput in, SnippetStore store) throws IOException {
+        long id = in.readLong();
+        long revision = in.readLong();
+        return new DeleteSnippetCommand(store, id, revision, in.readBoolean() ? SnippetCodec.readVersion(in) : null);
+    }
+} 
\ No newline at end of file
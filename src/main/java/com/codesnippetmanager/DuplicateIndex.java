@@ -0,0 +1,280 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Near-duplicate detection for code bodies using MinHash signatures and LSH banding.
+ *
+ * Code is normalized (lowercased, whitespace collapsed) and cut into overlapping 4-token
+ * shingles. A 128-value MinHash signature estimates the Jaccard similarity of two shingle
+ * sets, and the signature is split into 32 bands of 4 rows: two snippets are only compared
+ * if they agree on a whole band, which makes a probe cost about the same however large the
+ * library is. Pairs above roughly 0.6 similarity collide in at least one band almost always.
+ */
+public class DuplicateIndex implements SnippetIndex {
+    private static final int HASHES = 128;
+    private static final int ROWS = 4;
+    private static final int BANDS = HASHES / ROWS;
+    private static final int SHINGLE = 4;
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private final SnippetStore store;
+    private final List<Map<Long, PostingList>> bands;
+    private final Map<Long, int[]> signatures;
+    private double threshold;
+    private CodeSnippet lastProbed;
+    private int[] lastSignature;
+
+    public DuplicateIndex(SnippetStore store, double threshold) {
+        this.store = store;
+        this.threshold = threshold;
+        bands = new ArrayList<>();
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+        signatures = new HashMap<>();
+    }
+
+    public double getThreshold() { return threshold; }
+
+    public void setThreshold(double threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be in (0, 1]: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        // addSnippet probes right before storing, so the signature is usually ready
+        int[] signature = snippet == lastProbed ? lastSignature : signature(snippet);
+        lastProbed = null;
+        if (signature == null) return;
+        int docId = store.docId(snippet);
+        signatures.put(snippet.getId(), signature);
+        for (int band = 0; band < BANDS; band++) {
+            bands.get(band).computeIfAbsent(bandKey(signature, band), k -> new PostingList()).add(docId);
+        }
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        int[] signature = signatures.remove(snippet.getId());
+        if (signature == null) return;
+        int docId = store.docId(snippet);
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, PostingList> buckets = bands.get(band);
+            long key = bandKey(signature, band);
+            PostingList bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(docId);
+                if (bucket.size() == 0) buckets.remove(key);
+            }
+        }
+    }
+
+    // Stored snippets whose code is likely at least threshold-similar to the candidate's
+    public List<DuplicateMatch> probe(CodeSnippet candidate) {
+        return probe(candidate, signature(candidate));
+    }
+
+    // Like probe, but keeps the signature for the add of candidate that follows
+    List<DuplicateMatch> probeBeforeAdd(CodeSnippet candidate) {
+        int[] signature = signature(candidate);
+        lastProbed = candidate;
+        lastSignature = signature;
+        return probe(candidate, signature);
+    }
+
+    private List<DuplicateMatch> probe(CodeSnippet candidate, int[] signature) {
+        if (signature == null) return new ArrayList<>();
+
+        Set<Integer> seen = new HashSet<>();
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            PostingList bucket = bands.get(band).get(bandKey(signature, band));
+            if (bucket == null) continue;
+            for (int i = 0; i < bucket.size(); i++) {
+                int docId = bucket.get(i);
+                if (!seen.add(docId)) continue;
+                CodeSnippet stored = store.getByDocId(docId);
+                if (stored.getId() == candidate.getId()) continue;
+                double similarity = similarity(signature, signatures.get(stored.getId()));
+                if (similarity >= threshold) {
+                    matches.add(new DuplicateMatch(stored, similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(DuplicateMatch::getSimilarity).reversed()
+            .thenComparingLong(match -> match.getSnippet().getId()));
+        return matches;
+    }
+
+    /*
+     * Groups of two or more snippets that are likely copies of each other, largest first.
+     * Each LSH bucket is compared against its first member only, so a report stays close
+     * to linear in the library size even when one snippet has been copied many times.
+     */
+    public List<List<CodeSnippet>> clusters() {
+        return clusters(Collections.singletonList(this));
+    }
+
+    /*
+     * clusters() over several indexes holding disjoint snippets, such as the shards of a
+     * ShardedSnippetManager. Buckets under the same key are taken as one, so copies kept in
+     * different indexes are grouped as if a single index held them all.
+     */
+    static List<List<CodeSnippet>> clusters(List<DuplicateIndex> indexes) {
+        double threshold = indexes.get(0).threshold;
+        // Union-find over snippet ids, since each index numbers its docs on its own
+        Map<Long, Long> parent = new HashMap<>();
+        Map<Long, CodeSnippet> members = new HashMap<>();
+        List<CodeSnippet> bucket = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            for (int i = 0; i < indexes.size(); i++) {
+                for (Long key : indexes.get(i).bands.get(band).keySet()) {
+                    // The first index holding the key gathers the bucket from the rest
+                    if (sharedBefore(indexes, i, band, key)) continue;
+                    bucket.clear();
+                    for (int j = i; j < indexes.size(); j++) {
+                        DuplicateIndex index = indexes.get(j);
+                        PostingList part = index.bands.get(band).get(key);
+                        if (part == null) continue;
+                        for (int k = 0; k < part.size(); k++) {
+                            bucket.add(index.store.getByDocId(part.get(k)));
+                        }
+                    }
+                    if (bucket.size() < 2) continue;
+                    CodeSnippet first = bucket.get(0);
+                    int[] firstSignature = signatureOf(indexes, first.getId());
+                    for (int k = 1; k < bucket.size(); k++) {
+                        CodeSnippet other = bucket.get(k);
+                        if (find(parent, first.getId()) == find(parent, other.getId())) continue;
+                        if (similarity(firstSignature, signatureOf(indexes, other.getId())) >= threshold) {
+                            parent.put(find(parent, other.getId()), find(parent, first.getId()));
+                            members.put(first.getId(), first);
+                            members.put(other.getId(), other);
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Long, List<CodeSnippet>> groups = new TreeMap<>();
+        for (CodeSnippet member : members.values()) {
+            groups.computeIfAbsent(find(parent, member.getId()), k -> new ArrayList<>()).add(member);
+        }
+        List<List<CodeSnippet>> result = new ArrayList<>();
+        for (List<CodeSnippet> group : groups.values()) {
+            if (group.size() < 2) continue;
+            group.sort(Comparator.comparingLong(CodeSnippet::getId));
+            result.add(group);
+        }
+        result.sort((a, b) -> b.size() - a.size());
+        return result;
+    }
+
+    private static boolean sharedBefore(List<DuplicateIndex> indexes, int index, int band, Long key) {
+        for (int j = 0; j < index; j++) {
+            if (indexes.get(j).bands.get(band).containsKey(key)) return true;
+        }
+        return false;
+    }
+
+    private static int[] signatureOf(List<DuplicateIndex> indexes, long id) {
+        for (DuplicateIndex index : indexes) {
+            int[] signature = index.signatures.get(id);
+            if (signature != null) return signature;
+        }
+        return null;
+    }
+
+    private static long find(Map<Long, Long> parent, long id) {
+        long root = id;
+        Long next;
+        while ((next = parent.get(root)) != null && next != root) {
+            root = next;
+        }
+        parent.putIfAbsent(id, id);
+        parent.putIfAbsent(root, root);
+        // Path compression
+        long node = id;
+        while (node != root) {
+            long up = parent.get(node);
+            parent.put(node, root);
+            node = up;
+        }
+        return root;
+    }
+
+    // Null for code without any tokens, which is never reported as a duplicate
+    private static int[] signature(CodeSnippet snippet) {
+        List<String> tokens = tokens(snippet.peekCode());
+        if (tokens.isEmpty()) return null;
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(tokens.size() - SHINGLE + 1, 1);
+        for (int start = 0; start < shingles; start++) {
+            long hash = 0x9e3779b97f4a7c15L;
+            for (int i = start; i < Math.min(start + SHINGLE, tokens.size()); i++) {
+                hash = mix(hash ^ tokens.get(i).hashCode());
+            }
+            for (int i = 0; i < HASHES; i++) {
+                int value = (int) (mix(hash ^ SEEDS[i]) >>> 33);
+                if (value < signature[i]) signature[i] = value;
+            }
+        }
+        return signature;
+    }
+
+    // Words and single punctuation characters of the lowercased, whitespace-collapsed code
+    private static List<String> tokens(String code) {
+        List<String> tokens = new ArrayList<>();
+        String text = code.toLowerCase();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) i++;
+                tokens.add(text.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return (double) same / HASHES;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = mix(hash ^ signature[i]);
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,16 @@
+package com.codesnippetmanager;
+
+public class DuplicateMatch {
+    private final CodeSnippet snippet;
+    private final double similarity;
+
+    public DuplicateMatch(CodeSnippet snippet, double similarity) {
+        this.snippet = snippet;
+        this.similarity = similarity;
+    }
+
+    public CodeSnippet getSnippet() { return snippet; }
+
+    // Estimated Jaccard similarity of the two code bodies, from 0 to 1
+    public double getSimilarity() { return similarity; }
+}
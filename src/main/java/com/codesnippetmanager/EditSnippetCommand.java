@@ -0,0 +1,72 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Keeps only the delta between the two versions; whichever is current comes from the store
+public class EditSnippetCommand implements Command {
+    private SnippetStore store;
+    private long id;
+    private SnippetDelta delta;
+    // The new version until the first execute() stores it
+    private CodeSnippet pending;
+
+    public EditSnippetCommand(SnippetStore store, CodeSnippet oldSnippet, CodeSnippet newSnippet) {
+        this(store, newSnippet.getId(), SnippetDelta.between(oldSnippet, newSnippet));
+        this.pending = newSnippet;
+    }
+
+    private EditSnippetCommand(SnippetStore store, long id, SnippetDelta delta) {
+        this.store = store;
+        this.id = id;
+        this.delta = delta;
+    }
+
+    @Override
+    public void execute() {
+        CodeSnippet newSnippet = pending != null ? pending : delta.toNewer(store.get(id));
+        pending = null;
+        store.put(newSnippet);
+    }
+
+    @Override
+    public void undo() {
+        store.put(delta.toOlder(store.get(id)));
+    }
+
+    @Override
+    public boolean canUndo() {
+        CodeSnippet current = store.get(id);
+        return current != null && current.getRevision() == delta.getNewerRevision();
+    }
+
+    @Override
+    public boolean canRedo() {
+        CodeSnippet current = store.get(id);
+        return current != null && current.getRevision() == delta.getOlderRevision();
+    }
+
+    @Override
+    public void writeTo(DataOutput out, boolean undo) throws IOException {
+        out.writeByte(CommandJournal.OP_EDIT);
+        SnippetCodec.write(out, store.get(id));
+    }
+
+    @Override
+    public long estimatedSize() {
+        return 48 + delta.estimatedSize();
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(CommandJournal.OP_EDIT);
+        out.writeLong(id);
+        delta.write(out);
+    }
+
+    static EditSnippetCommand readState(DataInput in, SnippetStore store) throws IOException {
+        long id = in.readLong();
+        return new EditSnippetCommand(store, id, SnippetDelta.read(in));
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Typo-tolerant lookup over the words of snippet titles and tags, and over whole tags.
+ *
+ * Every distinct word is indexed by its padded trigrams. A query word with up to d typos
+ * still shares at least (grams - 3d) trigrams with the word it was meant to be, so only
+ * words passing that count are checked with a bounded edit distance. Short words, where
+ * the bound says nothing, fall back to the words of similar length.
+ */
+public class FuzzyIndex implements SnippetIndex {
+    private final SnippetStore store;
+    private final Map<String, PostingList> words;
+    private final Map<String, PostingList> tags;
+    private final Map<String, Set<String>> grams;
+    private final Map<Integer, Set<String>> byLength;
+
+    public FuzzyIndex(SnippetStore store) {
+        this.store = store;
+        words = new HashMap<>();
+        tags = new HashMap<>();
+        grams = new HashMap<>();
+        byLength = new HashMap<>();
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (String word : wordsOf(snippet)) {
+            addPosting(words, word, docId);
+        }
+        for (String tag : tagsOf(snippet)) {
+            addPosting(tags, tag, docId);
+        }
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (String word : wordsOf(snippet)) {
+            removePosting(words, word, docId);
+        }
+        for (String tag : tagsOf(snippet)) {
+            removePosting(tags, tag, docId);
+        }
+    }
+
+    // Known tags within typo distance of the query, closest first
+    public List<String> suggestTags(String query, int limit) {
+        String q = query.trim().toLowerCase();
+        List<Map.Entry<String, Integer>> matches = new ArrayList<>(closeWords(q, tags).entrySet());
+        matches.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(matches.get(i).getKey());
+        }
+        return result;
+    }
+
+    /*
+     * Snippets whose title words or tags match every word of the query within its typo
+     * budget, ordered by total edit distance and then by id.
+     */
+    public List<CodeSnippet> search(String query, int limit) {
+        Map<Integer, Integer> distances = null;
+        for (String word : split(query)) {
+            Map<Integer, Integer> wordDistances = new HashMap<>();
+            collect(closeWords(word, words), words, wordDistances);
+            if (distances == null) {
+                distances = wordDistances;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : distances.entrySet()) {
+                    Integer other = wordDistances.get(entry.getKey());
+                    if (other != null) both.put(entry.getKey(), entry.getValue() + other);
+                }
+                distances = both;
+            }
+            if (distances.isEmpty()) break;
+        }
+        if (distances == null) return new ArrayList<>();
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(distances.entrySet());
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue()
+            .thenComparingLong(entry -> store.getByDocId(entry.getKey()).getId()));
+        List<CodeSnippet> result = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && result.size() < limit; i++) {
+            result.add(store.getByDocId(ranked.get(i).getKey()));
+        }
+        return result;
+    }
+
+    // The total edit distance search ranks snippet by for query; ShardedSnippetManager merges shards' results by it
+    static int distance(String query, CodeSnippet snippet) {
+        Set<String> known = wordsOf(snippet);
+        int total = 0;
+        for (String word : split(query)) {
+            int maxDistance = maxDistance(word);
+            int best = maxDistance + 1;
+            for (String candidate : known) {
+                best = Math.min(best, editDistance(word, candidate, maxDistance));
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static void collect(Map<String, Integer> close, Map<String, PostingList> postings,
+                                Map<Integer, Integer> distances) {
+        for (Map.Entry<String, Integer> match : close.entrySet()) {
+            PostingList list = postings.get(match.getKey());
+            for (int i = 0; i < list.size(); i++) {
+                distances.merge(list.get(i), match.getValue(), Math::min);
+            }
+        }
+    }
+
+    // Words of the given vocabulary within the typo budget for query, with their distances
+    private Map<String, Integer> closeWords(String query, Map<String, PostingList> vocabulary) {
+        Map<String, Integer> result = new HashMap<>();
+        if (query.isEmpty()) return result;
+        int maxDistance = maxDistance(query);
+        Set<String> queryGrams = gramsOf(query);
+        int required = queryGrams.size() - 3 * maxDistance;
+
+        Collection<String> candidates;
+        if (required > 0) {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : queryGrams) {
+                Set<String> known = grams.get(gram);
+                if (known == null) continue;
+                for (String word : known) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+            candidates = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+                if (entry.getValue() >= required) candidates.add(entry.getKey());
+            }
+        } else {
+            candidates = new ArrayList<>();
+            for (int length = query.length() - maxDistance; length <= query.length() + maxDistance; length++) {
+                Set<String> known = byLength.get(length);
+                if (known != null) candidates.addAll(known);
+            }
+        }
+
+        for (String word : candidates) {
+            if (!vocabulary.containsKey(word)) continue;
+            int distance = editDistance(query, word, maxDistance);
+            if (distance <= maxDistance) result.put(word, distance);
+        }
+        return result;
+    }
+
+    // Typos allowed for a word: none up to 2 letters, one up to 5, two beyond that
+    static int maxDistance(String word) {
+        if (word.length() <= 2) return 0;
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    // Levenshtein distance, or max + 1 as soon as it is known to exceed max
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private void addPosting(Map<String, PostingList> postings, String word, int docId) {
+        PostingList list = postings.get(word);
+        if (list == null) {
+            if (!words.containsKey(word) && !tags.containsKey(word)) {
+                addToVocabulary(word);
+            }
+            list = new PostingList();
+            postings.put(word, list);
+        }
+        list.add(docId);
+    }
+
+    private void removePosting(Map<String, PostingList> postings, String word, int docId) {
+        PostingList list = postings.get(word);
+        if (list == null) return;
+        list.remove(docId);
+        if (list.size() == 0) {
+            postings.remove(word);
+            if (!words.containsKey(word) && !tags.containsKey(word)) {
+                removeFromVocabulary(word);
+            }
+        }
+    }
+
+    private void addToVocabulary(String word) {
+        for (String gram : gramsOf(word)) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(word);
+        }
+        byLength.computeIfAbsent(word.length(), k -> new HashSet<>()).add(word);
+    }
+
+    private void removeFromVocabulary(String word) {
+        for (String gram : gramsOf(word)) {
+            Set<String> known = grams.get(gram);
+            if (known != null) {
+                known.remove(word);
+                if (known.isEmpty()) grams.remove(gram);
+            }
+        }
+        Set<String> known = byLength.get(word.length());
+        if (known != null) {
+            known.remove(word);
+            if (known.isEmpty()) byLength.remove(word.length());
+        }
+    }
+
+    private static Set<String> gramsOf(String word) {
+        String padded = "$$" + word + "$$";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static Set<String> wordsOf(CodeSnippet snippet) {
+        Set<String> result = new HashSet<>(split(snippet.getTitle()));
+        for (String tag : snippet.getTags()) {
+            result.addAll(split(tag));
+        }
+        return result;
+    }
+
+    private static Set<String> tagsOf(CodeSnippet snippet) {
+        Set<String> result = new HashSet<>();
+        for (String tag : snippet.getTags()) {
+            String normalized = tag.trim().toLowerCase();
+            if (!normalized.isEmpty()) result.add(normalized);
+        }
+        return result;
+    }
+
+    private static List<String> split(String text) {
+        List<String> result = new ArrayList<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) result.add(word);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.codesnippetmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counts of non-negative values in log-linear buckets: values below 8 get a bucket each,
+ * and every power of two above is split into 4 equal buckets, so a reported percentile is
+ * within 25% of the true value. Recording is a few atomic increments with no allocation
+ * and no locking, cheap enough to leave on for every operation.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int LINEAR_LIMIT = 8;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - 3) * (1 << SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    public Histogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getSum() { return sum.sum(); }
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    // Upper bound of the bucket holding the q-th quantile (0 < q <= 1), capped at the maximum
+    public long getPercentile(double q) {
+        long[] snapshot = snapshot();
+        long count = 0;
+        for (long c : snapshot) {
+            count += c;
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    // Bucket counts, indexed like lowerBound and upperBound
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_LIMIT + ((exponent - 3) << SUB_BUCKET_BITS) + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exponent = 3 + ((bucket - LINEAR_LIMIT) >> SUB_BUCKET_BITS);
+        int sub = (bucket - LINEAR_LIMIT) & ((1 << SUB_BUCKET_BITS) - 1);
+        return (long) ((1 << SUB_BUCKET_BITS) + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+    }
+}
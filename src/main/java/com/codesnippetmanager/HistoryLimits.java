@@ -0,0 +1,29 @@
+package com.codesnippetmanager;
+
+import java.nio.file.Path;
+
+/*
+ * Bounds on each session's undo history. Past maxDepth steps the oldest are forgotten. Past
+ * maxBytes of held snippet text the oldest steps are written to a file in spillDirectory
+ * and read back when undo reaches them, or forgotten when spillDirectory is null. Redo
+ * steps are never spilled; over the budget, the ones furthest from the current state go.
+ */
+public final class HistoryLimits {
+    public static final HistoryLimits DEFAULT = new HistoryLimits(10_000, 32L * 1024 * 1024, null);
+
+    private final int maxDepth;
+    private final long maxBytes;
+    private final Path spillDirectory;
+
+    public HistoryLimits(int maxDepth, long maxBytes, Path spillDirectory) {
+        if (maxDepth < 0) throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        if (maxBytes < 0) throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getMaxDepth() { return maxDepth; }
+    public long getMaxBytes() { return maxBytes; }
+    public Path getSpillDirectory() { return spillDirectory; }
+}
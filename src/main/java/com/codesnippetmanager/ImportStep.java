@@ -0,0 +1,16 @@
+package com.codesnippetmanager;
+
+/*
+ * The undo step an import folds its batches into, handed from one addAllToStep call to the
+ * next. An unsharded manager is its own only shard, so it keeps its step in parts[0].
+ */
+final class ImportStep {
+    // The shards with a part in the step, in the order they joined it
+    int[] shards;
+    // Each shard's part of the step, null for shards without one
+    final AddSnippetsCommand[] parts;
+
+    ImportStep(int shardCount) {
+        parts = new AddSnippetsCommand[shardCount];
+    }
+}
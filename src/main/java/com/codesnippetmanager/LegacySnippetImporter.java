@@ -0,0 +1,112 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/*
+ * One-time import of the files the first versions of the application saved: a Java
+ * serialized ArrayList of Snippet objects, written either from the default package or from
+ * com.codesnippetmanager. That class no longer exists, so its descriptor is mapped onto
+ * LegacySnippet, which has the same fields and serialVersionUID. Deserialization is limited
+ * to the handful of classes those files contain. Old snippets had no description and their
+ * string ids are not kept; each gets a new id, with its original timestamps.
+ */
+public class LegacySnippetImporter {
+    private static final String LEGACY_CLASS = "Snippet";
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=8;java.lang.Object;java.util.ArrayList;java.util.HashSet;java.util.Map$Entry;java.util.LinkedHashSet;java.util.TreeSet;"
+            + "java.time.Ser;java.time.LocalDateTime;java.lang.String;"
+            + LegacySnippet.class.getName() + ";!*");
+
+    private final SnippetManager manager;
+
+    public LegacySnippetImporter(SnippetManager manager) {
+        this.manager = manager;
+    }
+
+    // Adds every snippet in the legacy file and returns how many there were. The import goes
+    // through a session of its own, so it is not on the default undo history
+    public int importFile(Path file) throws IOException {
+        List<CodeSnippet> snippets = read(file);
+        try (SnippetSession session = manager.openSession()) {
+            session.addAll(snippets);
+        }
+        return snippets.size();
+    }
+
+    public static List<CodeSnippet> read(Path file) throws IOException {
+        List<?> saved;
+        try (ObjectInputStream in = new LegacyInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            in.setObjectInputFilter(FILTER);
+            Object object = in.readObject();
+            if (!(object instanceof List)) throw new IOException("Not a legacy snippet file: " + file);
+            saved = (List<?>) object;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a legacy snippet file: " + file, e);
+        }
+        List<CodeSnippet> snippets = new ArrayList<>(saved.size());
+        for (Object entry : saved) {
+            if (!(entry instanceof LegacySnippet)) throw new IOException("Not a legacy snippet file: " + file);
+            snippets.add(((LegacySnippet) entry).toCodeSnippet());
+        }
+        return snippets;
+    }
+
+    private static final class LegacyInputStream extends ObjectInputStream {
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            String name = descriptor.getName();
+            if (name.equals(LEGACY_CLASS) || name.endsWith("." + LEGACY_CLASS)) {
+                return ObjectStreamClass.lookup(LegacySnippet.class);
+            }
+            return descriptor;
+        }
+    }
+
+    // Field for field the old Snippet class
+    private static final class LegacySnippet implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String code;
+        private LocalDateTime createdAt;
+        private String id;
+        private String language;
+        private Set<String> tags;
+        private String title;
+        private LocalDateTime updatedAt;
+
+        CodeSnippet toCodeSnippet() {
+            long now = System.currentTimeMillis();
+            long created = createdAt == null ? now : toMillis(createdAt);
+            long modified = updatedAt == null ? created : toMillis(updatedAt);
+            return new CodeSnippet(0, title == null ? "" : title, "", code == null ? "" : code,
+                language == null ? "" : language, tags == null ? Collections.emptySet() : tags, created, modified);
+        }
+
+        private static long toMillis(LocalDateTime time) {
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java -cp target/classes com.codesnippetmanager.LegacySnippetImporter <legacy-file> [data-directory]");
+            return;
+        }
+        Path dataDirectory = Paths.get(args.length == 2 ? args[1] : "data");
+        try (SnippetManager manager = new SnippetManager(dataDirectory)) {
+            int imported = new LegacySnippetImporter(manager).importFile(Paths.get(args[0]));
+            System.out.printf("Imported %d snippet(s) from %s\n", imported, args[0]);
+        } catch (IOException e) {
+            System.out.println("Import failed: " + e.getMessage());
+        }
+    }
+}
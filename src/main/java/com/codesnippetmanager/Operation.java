@@ -0,0 +1,27 @@
+package com.codesnippetmanager;
+
+// The operations OperationMetrics keeps latency and result-size histograms for
+public enum Operation {
+    ADD("add"),
+    EDIT("edit"),
+    DELETE("delete"),
+    UNDO("undo"),
+    REDO("redo"),
+    SEARCH("search"),
+    RANKED_SEARCH("ranked-search"),
+    FUZZY_SEARCH("fuzzy-search"),
+    DEFINITION_SEARCH("definition-search"),
+    SORT("sort"),
+    EXPORT("export"),
+    IMPORT("import");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
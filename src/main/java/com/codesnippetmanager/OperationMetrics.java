@@ -0,0 +1,99 @@
+package com.codesnippetmanager;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latency and result-size histograms for every Operation, plus a count of operations that
+ * threw. The result size is what the operation produced: snippets added, edited or deleted
+ * (0 when the id was unknown), 1 or 0 for an undo or redo that did or did not happen, and
+ * the number of results for a search or sort page.
+ */
+public class OperationMetrics {
+    private final long startedAt;
+    private final Map<Operation, Histogram> latencies;
+    private final Map<Operation, Histogram> resultSizes;
+    private final Map<Operation, LongAdder> errors;
+
+    public OperationMetrics() {
+        startedAt = System.currentTimeMillis();
+        latencies = new EnumMap<>(Operation.class);
+        resultSizes = new EnumMap<>(Operation.class);
+        errors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Histogram());
+            resultSizes.put(operation, new Histogram());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    // Records an operation that began at startNanos (System.nanoTime); a negative resultSize means it threw
+    public void record(Operation operation, long startNanos, int resultSize) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+        if (resultSize < 0) {
+            errors.get(operation).increment();
+        } else {
+            resultSizes.get(operation).record(resultSize);
+        }
+    }
+
+    // Nanoseconds per operation
+    public Histogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public Histogram getResultSize(Operation operation) {
+        return resultSizes.get(operation);
+    }
+
+    public long getErrorCount(Operation operation) {
+        return errors.get(operation).sum();
+    }
+
+    /*
+     * A JSON snapshot of every histogram. Besides the summary figures each histogram lists
+     * its non-empty buckets as [lowest value, highest value, count], so snapshots from several
+     * processes can be merged exactly.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"startedAt\":").append(String.valueOf(startedAt));
+        out.append(",\"capturedAt\":").append(String.valueOf(System.currentTimeMillis()));
+        out.append(",\"operations\":{");
+        boolean first = true;
+        for (Operation operation : Operation.values()) {
+            if (!first) out.append(',');
+            first = false;
+            Json.writeString(out, operation.label());
+            out.append(":{\"errors\":").append(String.valueOf(getErrorCount(operation)));
+            out.append(",\"latencyNanos\":");
+            writeHistogram(out, latencies.get(operation));
+            out.append(",\"resultSize\":");
+            writeHistogram(out, resultSizes.get(operation));
+            out.append('}');
+        }
+        out.append("}}");
+    }
+
+    private static void writeHistogram(Appendable out, Histogram histogram) throws IOException {
+        long[] counts = histogram.snapshot();
+        out.append("{\"count\":").append(String.valueOf(histogram.getCount()));
+        out.append(",\"sum\":").append(String.valueOf(histogram.getSum()));
+        out.append(",\"max\":").append(String.valueOf(histogram.getMax()));
+        out.append(",\"p50\":").append(String.valueOf(histogram.getPercentile(0.5)));
+        out.append(",\"p90\":").append(String.valueOf(histogram.getPercentile(0.9)));
+        out.append(",\"p99\":").append(String.valueOf(histogram.getPercentile(0.99)));
+        out.append(",\"buckets\":[");
+        boolean first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            if (!first) out.append(',');
+            first = false;
+            out.append('[').append(String.valueOf(Histogram.lowerBound(i)));
+            out.append(',').append(String.valueOf(Histogram.upperBound(i)));
+            out.append(',').append(String.valueOf(counts[i])).append(']');
+        }
+        out.append("]}");
+    }
+}
@@ -0,0 +1,69 @@
+package com.codesnippetmanager;
+
+import java.util.Arrays;
+
+public class PostingList {
+    private int[] ids;
+    private int size;
+
+    public PostingList() {
+        ids = new int[4];
+    }
+
+    public int size() { return size; }
+    public int get(int i) { return ids[i]; }
+
+    public void add(int id) {
+        // Doc ids are mostly handed out in increasing order, so the common case is an append
+        if (size == 0 || id > ids[size - 1]) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) return;
+        pos = -pos - 1;
+        ensureCapacity();
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+    }
+
+    public void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    // Keeps only the ids also present in other; the result stays sorted
+    public static int[] intersect(int[] candidates, int count, PostingList other) {
+        int[] out = new int[count];
+        int n = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < other.size; i++) {
+            int pos = Arrays.binarySearch(other.ids, from, other.size, candidates[i]);
+            if (pos >= 0) {
+                out[n++] = candidates[i];
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Field-aware inverted index with term frequencies, used for BM25 ranked search.
+ *
+ * Title, description, tags and code are tokenized into words (camelCase identifiers
+ * also contribute their parts) and scored with per-field BM25, weighted so
+ * a hit in the title counts for more than one buried in the code. Language and whole
+ * tags are kept as exact-match filters for lang: and tag:.
+ */
+public class RankedIndex implements SnippetIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private enum Scored {
+        TITLE(3.0), DESCRIPTION(1.5), TAGS(2.0), CODE(1.0);
+
+        final double weight;
+
+        Scored(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final SnippetStore store;
+    private final List<Map<String, TermPostings>> terms;
+    private final int[][] lengths;
+    private final long[] totalLengths;
+    private final Map<String, PostingList> languages;
+    private final Map<String, PostingList> tags;
+    private final PostingList all;
+
+    public RankedIndex(SnippetStore store) {
+        this.store = store;
+        terms = new ArrayList<>();
+        for (int i = 0; i < Scored.values().length; i++) {
+            terms.add(new HashMap<>());
+        }
+        lengths = new int[Scored.values().length][16];
+        totalLengths = new long[Scored.values().length];
+        languages = new HashMap<>();
+        tags = new HashMap<>();
+        all = new PostingList();
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (Scored field : Scored.values()) {
+            Map<String, Integer> counts = new HashMap<>();
+            int length = 0;
+            for (String text : fieldText(snippet, field)) {
+                length += analyze(text, true, counts);
+            }
+            Map<String, TermPostings> postings = terms.get(field.ordinal());
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new TermPostings()).add(docId, entry.getValue());
+            }
+            setLength(field, docId, length);
+        }
+        languages.computeIfAbsent(snippet.getLanguage().toLowerCase(), k -> new PostingList()).add(docId);
+        for (String tag : snippet.getTags()) {
+            tags.computeIfAbsent(tag.toLowerCase(), k -> new PostingList()).add(docId);
+        }
+        all.add(docId);
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (Scored field : Scored.values()) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String text : fieldText(snippet, field)) {
+                analyze(text, true, counts);
+            }
+            Map<String, TermPostings> postings = terms.get(field.ordinal());
+            for (String term : counts.keySet()) {
+                TermPostings list = postings.get(term);
+                if (list != null) {
+                    list.remove(docId);
+                    if (list.size() == 0) postings.remove(term);
+                }
+            }
+            setLength(field, docId, 0);
+        }
+        removeFrom(languages, snippet.getLanguage().toLowerCase(), docId);
+        for (String tag : snippet.getTags()) {
+            removeFrom(tags, tag.toLowerCase(), docId);
+        }
+        all.remove(docId);
+    }
+
+    // The best limit matches for the query, highest score first
+    public List<SearchHit> search(SnippetQuery query, int limit) {
+        int[] matches = evaluate(query);
+        List<Scorer> scorers = new ArrayList<>();
+        collectScorers(query, scorers);
+
+        TopK top = new TopK(limit);
+        for (int docId : matches) {
+            double score = 0;
+            for (Scorer scorer : scorers) {
+                score += scorer.score(docId);
+            }
+            top.offer(store.getByDocId(docId).getId(), score);
+        }
+
+        double[] scores = new double[top.size()];
+        long[] best = top.drainIds(scores);
+        List<SearchHit> hits = new ArrayList<>(best.length);
+        for (int i = 0; i < best.length; i++) {
+            hits.add(new SearchHit(store.get(best[i]), scores[i]));
+        }
+        return hits;
+    }
+
+    private int[] evaluate(SnippetQuery query) {
+        if (query instanceof SnippetQuery.Term) {
+            return match((SnippetQuery.Term) query);
+        }
+        if (query instanceof SnippetQuery.Or) {
+            int[] result = new int[0];
+            for (SnippetQuery clause : ((SnippetQuery.Or) query).getClauses()) {
+                result = union(result, evaluate(clause));
+            }
+            return result;
+        }
+        if (query instanceof SnippetQuery.And) {
+            int[] result = null;
+            List<int[]> excluded = new ArrayList<>();
+            for (SnippetQuery clause : ((SnippetQuery.And) query).getClauses()) {
+                if (clause instanceof SnippetQuery.Not) {
+                    excluded.add(evaluate(((SnippetQuery.Not) clause).getClause()));
+                } else {
+                    int[] matches = evaluate(clause);
+                    result = result == null ? matches : intersect(result, matches);
+                }
+            }
+            if (result == null) result = all.toArray();
+            for (int[] exclude : excluded) {
+                result = difference(result, exclude);
+            }
+            return result;
+        }
+        return difference(all.toArray(), evaluate(((SnippetQuery.Not) query).getClause()));
+    }
+
+    private int[] match(SnippetQuery.Term term) {
+        String text = term.getText().toLowerCase();
+        switch (term.getField()) {
+            case LANGUAGE:
+                return toArray(languages.get(text));
+            case TAG:
+                return toArray(tags.get(text));
+            case TITLE:
+                return match(term, Scored.TITLE);
+            case DESCRIPTION:
+                return match(term, Scored.DESCRIPTION);
+            case CODE:
+                return match(term, Scored.CODE);
+            default: {
+                int[] result = new int[0];
+                for (Scored field : Scored.values()) {
+                    result = union(result, match(term, field));
+                }
+                return result;
+            }
+        }
+    }
+
+    // Snippets containing every word of the term in field; phrases must also appear verbatim
+    private int[] match(SnippetQuery.Term term, Scored field) {
+        Set<String> words = queryWords(term.getText());
+        if (words.isEmpty()) return new int[0];
+        int[] result = null;
+        for (String word : words) {
+            TermPostings postings = terms.get(field.ordinal()).get(word);
+            if (postings == null) return new int[0];
+            result = result == null ? postings.toArray() : intersect(result, postings.toArray());
+        }
+        if (!term.isPhrase() || words.size() == 1) return result;
+
+        SubstringMatcher phrase = new SubstringMatcher(term.getText().toLowerCase());
+        int n = 0;
+        for (int docId : result) {
+            for (String text : fieldText(store.getByDocId(docId), field)) {
+                if (phrase.matches(text)) {
+                    result[n++] = docId;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void collectScorers(SnippetQuery query, List<Scorer> scorers) {
+        if (query instanceof SnippetQuery.Term) {
+            SnippetQuery.Term term = (SnippetQuery.Term) query;
+            List<Scored> fields = new ArrayList<>();
+            switch (term.getField()) {
+                case ANY: fields.addAll(Arrays.asList(Scored.values())); break;
+                case TITLE: fields.add(Scored.TITLE); break;
+                case DESCRIPTION: fields.add(Scored.DESCRIPTION); break;
+                case CODE: fields.add(Scored.CODE); break;
+                default: return; // lang: and tag: only filter
+            }
+            for (String word : queryWords(term.getText())) {
+                for (Scored field : fields) {
+                    TermPostings postings = terms.get(field.ordinal()).get(word);
+                    if (postings != null) {
+                        scorers.add(new Scorer(field, postings));
+                    }
+                }
+            }
+        } else if (query instanceof SnippetQuery.And) {
+            for (SnippetQuery clause : ((SnippetQuery.And) query).getClauses()) {
+                collectScorers(clause, scorers);
+            }
+        } else if (query instanceof SnippetQuery.Or) {
+            for (SnippetQuery clause : ((SnippetQuery.Or) query).getClauses()) {
+                collectScorers(clause, scorers);
+            }
+        }
+        // Excluded terms never add to the score
+    }
+
+    private final class Scorer {
+        private final Scored field;
+        private final TermPostings postings;
+        private final double idf;
+        private final double averageLength;
+
+        Scorer(Scored field, TermPostings postings) {
+            this.field = field;
+            this.postings = postings;
+            int docs = Math.max(all.size(), 1);
+            this.idf = Math.log(1 + (docs - postings.size() + 0.5) / (postings.size() + 0.5));
+            this.averageLength = Math.max((double) totalLengths[field.ordinal()] / docs, 1);
+        }
+
+        double score(int docId) {
+            int tf = postings.freq(docId);
+            if (tf == 0) return 0;
+            double norm = K1 * (1 - B + B * lengths[field.ordinal()][docId] / averageLength);
+            return field.weight * idf * tf * (K1 + 1) / (tf + norm);
+        }
+    }
+
+    private void setLength(Scored field, int docId, int length) {
+        int[] fieldLengths = lengths[field.ordinal()];
+        if (docId >= fieldLengths.length) {
+            fieldLengths = Arrays.copyOf(fieldLengths, Math.max(docId + 1, fieldLengths.length * 2));
+            lengths[field.ordinal()] = fieldLengths;
+        }
+        totalLengths[field.ordinal()] += length - fieldLengths[docId];
+        fieldLengths[docId] = length;
+    }
+
+    private static List<String> fieldText(CodeSnippet snippet, Scored field) {
+        switch (field) {
+            case TITLE: return Collections.singletonList(snippet.getTitle());
+            case DESCRIPTION: return Collections.singletonList(snippet.getDescription());
+            case TAGS: return new ArrayList<>(snippet.getTags());
+            default: return Collections.singletonList(snippet.peekCode());
+        }
+    }
+
+    /*
+     * Counts the lowercase words in text and returns how many there were. With parts set,
+     * an identifier such as binarySearch also yields "binary" and "search".
+     */
+    static int analyze(String text, boolean parts, Map<String, Integer> counts) {
+        int words = 0;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                counts.merge(text.substring(start, i).toLowerCase(), 1, Integer::sum);
+                words++;
+                if (parts) {
+                    addCamelCaseParts(text, start, i, counts);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static void addCamelCaseParts(String text, int start, int end, Map<String, Integer> counts) {
+        int partStart = start;
+        for (int i = start + 1; i < end; i++) {
+            char prev = text.charAt(i - 1);
+            char c = text.charAt(i);
+            boolean boundary = Character.isUpperCase(c) && Character.isLowerCase(prev)
+                || Character.isDigit(c) != Character.isDigit(prev);
+            if (boundary) {
+                counts.merge(text.substring(partStart, i).toLowerCase(), 1, Integer::sum);
+                partStart = i;
+            }
+        }
+        if (partStart > start) {
+            counts.merge(text.substring(partStart, end).toLowerCase(), 1, Integer::sum);
+        }
+    }
+
+    private static Set<String> queryWords(String text) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        analyze(text, false, counts);
+        return counts.keySet();
+    }
+
+    private static void removeFrom(Map<String, PostingList> index, String key, int docId) {
+        PostingList list = index.get(key);
+        if (list != null) {
+            list.remove(docId);
+            if (list.size() == 0) index.remove(key);
+        }
+    }
+
+    private static int[] toArray(PostingList list) {
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || i < a.length && a[i] < b[j]) out[n++] = a[i++];
+            else if (i == a.length || b[j] < a[i]) out[n++] = b[j++];
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] difference(int[] a, int[] b) {
+        int[] out = new int[a.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length) {
+            if (j == b.length || a[i] < b[j]) out[n++] = a[i++];
+            else if (a[i] > b[j]) j++;
+            else { i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
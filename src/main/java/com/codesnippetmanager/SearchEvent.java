@@ -0,0 +1,35 @@
+package com.codesnippetmanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event spanning one search, including the wait for the read lock
+@Name("com.codesnippetmanager.Search")
+@Label("Snippet Search")
+@Category("Code Snippet Manager")
+@Description("A substring, ranked, fuzzy or definition search of the snippet library")
+@StackTrace(false)
+class SearchEvent extends Event {
+    @Label("Mode")
+    String mode;
+
+    @Label("Query")
+    String query;
+
+    @Label("Results")
+    int results;
+
+    void finish(Operation mode, String query, int results) {
+        end();
+        if (shouldCommit()) {
+            this.mode = mode.label();
+            this.query = query;
+            this.results = results;
+            commit();
+        }
+    }
+}
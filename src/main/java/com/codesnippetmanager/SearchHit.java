@@ -0,0 +1,14 @@
+package com.codesnippetmanager;
+
+public class SearchHit {
+    private final CodeSnippet snippet;
+    private final double score;
+
+    public SearchHit(CodeSnippet snippet, double score) {
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    public CodeSnippet getSnippet() { return snippet; }
+    public double getScore() { return score; }
+}
@@ -0,0 +1,204 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+public class SearchIndex implements SnippetIndex {
+    private static final int GRAM = 3;
+    private static final int FIRST_BLOCK = 256;
+    private static final int MAX_BLOCK = 64 * 1024;
+    private static final Comparator<CodeSnippet> BY_ID = Comparator.comparingLong(CodeSnippet::getId);
+
+    private final SnippetStore store;
+    private final Map<Long, PostingList> trigrams;
+    private final Map<String, PostingList> tokens;
+
+    public SearchIndex(SnippetStore store) {
+        this.store = store;
+        trigrams = new HashMap<>();
+        tokens = new HashMap<>();
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        index(snippet, store.docId(snippet));
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        unindex(snippet, store.docId(snippet));
+    }
+
+    @Override
+    public void replace(CodeSnippet oldSnippet, CodeSnippet newSnippet) {
+        int docId = store.docId(newSnippet);
+        unindex(oldSnippet, docId);
+        index(newSnippet, docId);
+    }
+
+    // Same results, in the same order, as a contains() scan over every field
+    public List<CodeSnippet> search(String query) {
+        return search(query, 0, Integer.MAX_VALUE);
+    }
+
+    // The matches after the cursor, in id order; only as many candidates as needed are checked
+    public SnippetPage page(String query, SnippetPage.Cursor after, int limit) {
+        List<CodeSnippet> results = search(query, after == null ? 0 : after.getLast().getId(), limit + 1);
+        boolean hasMore = results.size() > limit;
+        return new SnippetPage(hasMore ? results.subList(0, limit) : results, hasMore);
+    }
+
+    private List<CodeSnippet> search(String query, long afterId, int max) {
+        String q = query.toLowerCase();
+        int[] candidates;
+        if (q.length() >= GRAM) {
+            candidates = trigramCandidates(q);
+        } else if (!q.isEmpty() && isWord(q)) {
+            candidates = tokenCandidates(q);
+        } else {
+            candidates = null;
+        }
+
+        CodeSnippet[] scanned;
+        if (candidates == null) {
+            scanned = store.valuesAfter(afterId).toArray(new CodeSnippet[0]);
+        } else {
+            // Doc ids are mostly but not always in id order, which is display order, so the sort is cheap
+            int n = 0;
+            scanned = new CodeSnippet[candidates.length];
+            for (int docId : candidates) {
+                CodeSnippet snippet = store.getByDocId(docId);
+                if (snippet.getId() > afterId) scanned[n++] = snippet;
+            }
+            scanned = Arrays.copyOf(scanned, n);
+            Arrays.sort(scanned, BY_ID);
+        }
+        return collect(new SubstringMatcher(q), scanned, max);
+    }
+
+    /*
+     * The first max matches among scanned, in order. Snippets are checked in blocks that
+     * start small and double, so a short page stops early while a long scan runs in
+     * parallel blocks.
+     */
+    private static List<CodeSnippet> collect(SubstringMatcher matcher, CodeSnippet[] scanned, int max) {
+        List<CodeSnippet> results = new ArrayList<>();
+        boolean[] hits = new boolean[Math.min(scanned.length, MAX_BLOCK)];
+        int block = FIRST_BLOCK;
+        for (int from = 0; from < scanned.length && results.size() < max; from += block, block = Math.min(block * 2, MAX_BLOCK)) {
+            int to = Math.min(scanned.length, from + block);
+            matcher.scan(scanned, from, to, hits);
+            for (int i = from; i < to && results.size() < max; i++) {
+                if (hits[i - from]) results.add(scanned[i]);
+            }
+        }
+        return results;
+    }
+
+    private int[] trigramCandidates(String q) {
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            keys.add(gramKey(q, i));
+        }
+        List<PostingList> lists = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            PostingList list = trigrams.get(key);
+            if (list == null) return new int[0];
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = PostingList.intersect(result, result.length, lists.get(i));
+        }
+        return result;
+    }
+
+    // A short alphanumeric query can only occur inside a single token
+    private int[] tokenCandidates(String q) {
+        BitSet hits = new BitSet();
+        for (Map.Entry<String, PostingList> entry : tokens.entrySet()) {
+            if (entry.getKey().contains(q)) {
+                PostingList list = entry.getValue();
+                for (int i = 0; i < list.size(); i++) {
+                    hits.set(list.get(i));
+                }
+            }
+        }
+        return hits.stream().toArray();
+    }
+
+    private void index(CodeSnippet snippet, int docId) {
+        Set<Long> grams = new HashSet<>();
+        Set<String> words = new HashSet<>();
+        for (String field : fields(snippet)) {
+            collect(field.toLowerCase(), grams, words);
+        }
+        for (Long gram : grams) {
+            trigrams.computeIfAbsent(gram, k -> new PostingList()).add(docId);
+        }
+        for (String word : words) {
+            tokens.computeIfAbsent(word, k -> new PostingList()).add(docId);
+        }
+    }
+
+    private void unindex(CodeSnippet snippet, int docId) {
+        Set<Long> grams = new HashSet<>();
+        Set<String> words = new HashSet<>();
+        for (String field : fields(snippet)) {
+            collect(field.toLowerCase(), grams, words);
+        }
+        for (Long gram : grams) {
+            PostingList list = trigrams.get(gram);
+            if (list != null) {
+                list.remove(docId);
+                if (list.size() == 0) trigrams.remove(gram);
+            }
+        }
+        for (String word : words) {
+            PostingList list = tokens.get(word);
+            if (list != null) {
+                list.remove(docId);
+                if (list.size() == 0) tokens.remove(word);
+            }
+        }
+    }
+
+    private static List<String> fields(CodeSnippet snippet) {
+        List<String> fields = new ArrayList<>();
+        fields.add(snippet.getTitle());
+        fields.add(snippet.getDescription());
+        fields.add(snippet.peekCode());
+        fields.add(snippet.getLanguage());
+        fields.addAll(snippet.getTags());
+        return fields;
+    }
+
+    // Grams never span two fields, so each field is collected on its own
+    private static void collect(String text, Set<Long> grams, Set<String> words) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(gramKey(text, i));
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private static long gramKey(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static boolean isWord(String q) {
+        for (int i = 0; i < q.length(); i++) {
+            if (!Character.isLetterOrDigit(q.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,895 @@
+package com.codesnippetmanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/*
+ * A SnippetManager spread over several independent ones, its shards, each with its own
+ * journal directory, indexes, statistics and write lock. Ids are handed out here in one
+ * sequence as before, and id modulo the shard count picks the shard, so shards stay even
+ * and a lookup by id touches one of them. Changes to different shards run in parallel.
+ *
+ * Queries fan out to every shard at once, the caller querying the first while a pool
+ * queries the rest, and the partial results are merged: id-ordered lists by a k-way
+ * merge, ranked, fuzzy, sorted and duplicate results by keeping the best across shards,
+ * and statistics by summing counters. Each shard scores ranked search with its own term
+ * statistics; placement by id spreads every kind of snippet evenly, so these stay close
+ * to the whole library's. Duplicate clusters are found across shards.
+ *
+ * A session's change lands in one shard, or in several for a batch, and undo reverts all
+ * of a step's parts together. On disk each shard is a directory, shard-0 to shard-N-1, and
+ * a library has to be opened with the number of shards it was created with.
+ */
+public class ShardedSnippetManager extends SnippetManager {
+    private static final String SHARD_PREFIX = "shard-";
+
+    private final SnippetManager[] shards;
+    private final ExecutorService workers;
+    private final AtomicLong nextId;
+    private final ShardedSession defaultSession;
+    private final Object recentLock;
+    private volatile BiConsumer<CodeSnippet, List<DuplicateMatch>> duplicateListener;
+    private volatile Listing listing;
+
+    // An empty library held in memory only
+    public ShardedSnippetManager(int shardCount) {
+        this(inMemory(shardCount));
+    }
+
+    // Loads the library from the shard directories in dataDirectory, creating them when there are none
+    public ShardedSnippetManager(Path dataDirectory, int shardCount) throws IOException {
+        this(open(dataDirectory, shardCount));
+    }
+
+    private ShardedSnippetManager(SnippetManager[] shards) {
+        super(NoStore.INSTANCE);
+        this.shards = shards;
+        // Each shard keeps the next id past every id it was given, deleted ones included
+        long next = 1;
+        for (SnippetManager shard : shards) {
+            next = Math.max(next, shard.getNextId());
+        }
+        nextId = new AtomicLong(next);
+        workers = Executors.newFixedThreadPool(Math.max(1, shards.length - 1), runnable -> {
+            Thread thread = new Thread(runnable, "snippet-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        defaultSession = new ShardedSession(this);
+        recentLock = new Object();
+        listing = new Listing(-1, Collections.emptyList());
+    }
+
+    private static SnippetManager[] inMemory(int shardCount) {
+        checkShardCount(shardCount);
+        SnippetManager[] shards = new SnippetManager[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new SnippetManager(false);
+        }
+        return shards;
+    }
+
+    private static SnippetManager[] open(Path dataDirectory, int shardCount) throws IOException {
+        checkShardCount(shardCount);
+        int existing = existingShards(dataDirectory);
+        if (existing != 0 && existing != shardCount) {
+            throw new IllegalArgumentException(dataDirectory + " holds " + existing + " shards, not " + shardCount);
+        }
+        if (existing == 0 && holdsJournal(dataDirectory)) {
+            throw new IllegalArgumentException(dataDirectory + " holds an unsharded library");
+        }
+        SnippetManager[] shards = new SnippetManager[shardCount];
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new SnippetManager(dataDirectory.resolve(SHARD_PREFIX + i), false);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SnippetManager shard : shards) {
+                if (shard == null) break;
+                try {
+                    shard.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        return shards;
+    }
+
+    private static void checkShardCount(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("At least one shard is needed: " + shardCount);
+    }
+
+    // How many shard directories dataDirectory holds, 0 when none
+    public static int existingShards(Path dataDirectory) {
+        int count = 0;
+        while (Files.isDirectory(dataDirectory.resolve(SHARD_PREFIX + count))) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean holdsJournal(Path dataDirectory) throws IOException {
+        if (!Files.isDirectory(dataDirectory)) return false;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDirectory, "journal-*")) {
+            return files.iterator().hasNext();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        workers.shutdownNow();
+        defaultSession.close();
+        IOException failure = null;
+        for (SnippetManager shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        super.close();
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public SnippetSession openSession() {
+        return new ShardedSession(this);
+    }
+
+    @Override
+    public void setHistoryLimits(HistoryLimits limits) {
+        super.setHistoryLimits(limits);
+        for (SnippetManager shard : shards) {
+            shard.setHistoryLimits(limits);
+        }
+    }
+
+    @Override
+    void closeSession(SnippetSession session) {
+        if (session instanceof ShardedSession) {
+            ShardedSession sharded = (ShardedSession) session;
+            synchronized (sharded) {
+                for (SnippetSession part : sharded.parts) {
+                    part.close();
+                }
+                sharded.clear();
+            }
+        }
+    }
+
+    // A ShardedSession keeps its history in its sessions on the shards, so it has none here
+    @Override
+    UndoHistory newHistory() {
+        return null;
+    }
+
+    @Override
+    public long addSnippet(CodeSnippet snippet) {
+        return addSnippet(defaultSession, snippet);
+    }
+
+    @Override
+    public List<Long> addAll(Collection<CodeSnippet> batch) {
+        return addAll(defaultSession, batch);
+    }
+
+    @Override
+    public void editSnippet(long id, CodeSnippet draft) {
+        editSnippet(defaultSession, id, draft);
+    }
+
+    @Override
+    public void deleteSnippet(long id) {
+        deleteSnippet(defaultSession, id);
+    }
+
+    @Override
+    public boolean undo() {
+        return undo(defaultSession);
+    }
+
+    @Override
+    public boolean redo() {
+        return redo(defaultSession);
+    }
+
+    @Override
+    long addSnippet(SnippetSession session, CodeSnippet snippet) {
+        long start = System.nanoTime();
+        int added = -1;
+        try {
+            long id = nextId.getAndIncrement();
+            reportDuplicates(snippet.withId(id));
+            int shard = shardOf(id);
+            ShardedSession sharded = (ShardedSession) session;
+            synchronized (sharded) {
+                shards[shard].addSnippet(sharded.parts[shard], snippet, id);
+                sharded.executed(new int[] {shard}, getHistoryLimits());
+            }
+            addToRecentShared(Collections.singletonList(id));
+            added = 1;
+            return id;
+        } finally {
+            getMetrics().record(Operation.ADD, start, added);
+        }
+    }
+
+    // Each shard adds its part of the batch in parallel, all as one undoable step
+    @Override
+    List<Long> addAll(SnippetSession session, Collection<CodeSnippet> batch) {
+        long start = System.nanoTime();
+        int added = -1;
+        try {
+            Split split = new Split(batch);
+            ShardedSession sharded = (ShardedSession) session;
+            synchronized (sharded) {
+                forEachShard(shard -> split.parts.get(shard).isEmpty() ? null
+                    : shards[shard].addAll(sharded.parts[shard], split.parts.get(shard), split.partIds[shard]));
+                int[] touched = split.touched();
+                if (touched.length > 0) sharded.executed(touched, getHistoryLimits());
+            }
+            addToRecentShared(split.ids);
+            added = split.ids.size();
+            return split.ids;
+        } finally {
+            getMetrics().record(Operation.ADD, start, added);
+        }
+    }
+
+    /*
+     * Folds the batch into step while that is still the default session's latest step: each
+     * shard folds its part into its own part of the step, or starts one, and shards taking
+     * their first part join the step. Otherwise the batch becomes a new step like addAll.
+     */
+    @Override
+    ImportStep addAllToStep(Collection<CodeSnippet> batch, ImportStep step) {
+        long start = System.nanoTime();
+        int added = -1;
+        try {
+            added = 0;
+            if (batch.isEmpty()) return step;
+            Split split = new Split(batch);
+            ShardedSession sharded = defaultSession;
+            ImportStep folded = new ImportStep(shards.length);
+            synchronized (sharded) {
+                ImportStep previous = step != null && sharded.undo.peek() == step.shards ? step : null;
+                forEachShard(shard -> {
+                    AddSnippetsCommand part = previous == null ? null : previous.parts[shard];
+                    if (!split.parts.get(shard).isEmpty()) {
+                        part = shards[shard].addAllToStep(sharded.parts[shard], split.parts.get(shard),
+                            split.partIds[shard], part);
+                    }
+                    folded.parts[shard] = part;
+                    return null;
+                });
+                if (previous == null) {
+                    folded.shards = split.touched();
+                    sharded.executed(folded.shards, getHistoryLimits());
+                } else {
+                    int[] joined = Arrays.copyOf(previous.shards, shards.length);
+                    int count = previous.shards.length;
+                    for (int shard = 0; shard < shards.length; shard++) {
+                        if (previous.parts[shard] == null && folded.parts[shard] != null) joined[count++] = shard;
+                    }
+                    folded.shards = count == previous.shards.length ? previous.shards : Arrays.copyOf(joined, count);
+                    if (folded.shards != previous.shards) {
+                        sharded.poll(sharded.undo);
+                        sharded.push(sharded.undo, folded.shards);
+                    }
+                    sharded.align(getHistoryLimits());
+                }
+            }
+            addToRecentShared(split.ids);
+            added = split.ids.size();
+            return folded;
+        } finally {
+            getMetrics().record(Operation.ADD, start, added);
+        }
+    }
+
+    @Override
+    boolean editSnippet(SnippetSession session, long id, CodeSnippet draft) {
+        long start = System.nanoTime();
+        int edited = -1;
+        try {
+            int shard = shardOf(id);
+            if (duplicateListener != null) {
+                CodeSnippet current = shards[shard].getSnippet(id);
+                if (current != null) reportDuplicates(current.withContentOf(draft));
+            }
+            ShardedSession sharded = (ShardedSession) session;
+            boolean changed;
+            synchronized (sharded) {
+                changed = shards[shard].editSnippet(sharded.parts[shard], id, draft);
+                if (changed) sharded.executed(new int[] {shard}, getHistoryLimits());
+            }
+            if (changed) addToRecentShared(Collections.singletonList(id));
+            edited = changed ? 1 : 0;
+            return changed;
+        } finally {
+            getMetrics().record(Operation.EDIT, start, edited);
+        }
+    }
+
+    @Override
+    boolean deleteSnippet(SnippetSession session, long id) {
+        long start = System.nanoTime();
+        int deleted = -1;
+        try {
+            int shard = shardOf(id);
+            ShardedSession sharded = (ShardedSession) session;
+            boolean changed;
+            synchronized (sharded) {
+                changed = shards[shard].deleteSnippet(sharded.parts[shard], id);
+                if (changed) sharded.executed(new int[] {shard}, getHistoryLimits());
+            }
+            deleted = changed ? 1 : 0;
+            return changed;
+        } finally {
+            getMetrics().record(Operation.DELETE, start, deleted);
+        }
+    }
+
+    /*
+     * Reverts every shard's part of the session's last step, newest part first. If a part
+     * cannot be undone, the parts already undone are redone, so the step is reverted whole
+     * or not at all, and then every part is dropped from its shard's history, as an
+     * unsharded manager drops a step it cannot undo. Redo likewise.
+     */
+    @Override
+    boolean undo(SnippetSession session) {
+        long start = System.nanoTime();
+        int undone = -1;
+        try {
+            ShardedSession sharded = (ShardedSession) session;
+            synchronized (sharded) {
+                int[] step = sharded.undo.peek();
+                undone = 0;
+                if (step == null) return false;
+                int i = step.length - 1;
+                while (i >= 0 && shards[step[i]].undo(sharded.parts[step[i]])) {
+                    i--;
+                }
+                sharded.poll(sharded.undo);
+                if (i >= 0) {
+                    for (int j = i + 1; j < step.length; j++) {
+                        shards[step[j]].redo(sharded.parts[step[j]]);
+                        shards[step[j]].dropUndo(sharded.parts[step[j]]);
+                    }
+                    for (int j = 0; j < i; j++) {
+                        shards[step[j]].dropUndo(sharded.parts[step[j]]);
+                    }
+                    sharded.align(getHistoryLimits());
+                    return false;
+                }
+                sharded.push(sharded.redo, step);
+                sharded.align(getHistoryLimits());
+                undone = 1;
+                return true;
+            }
+        } finally {
+            getMetrics().record(Operation.UNDO, start, undone);
+        }
+    }
+
+    @Override
+    boolean redo(SnippetSession session) {
+        long start = System.nanoTime();
+        int redone = -1;
+        try {
+            ShardedSession sharded = (ShardedSession) session;
+            synchronized (sharded) {
+                int[] step = sharded.redo.peek();
+                redone = 0;
+                if (step == null) return false;
+                int i = 0;
+                while (i < step.length && shards[step[i]].redo(sharded.parts[step[i]])) {
+                    i++;
+                }
+                sharded.poll(sharded.redo);
+                if (i < step.length) {
+                    for (int j = i - 1; j >= 0; j--) {
+                        shards[step[j]].undo(sharded.parts[step[j]]);
+                        shards[step[j]].dropRedo(sharded.parts[step[j]]);
+                    }
+                    for (int j = i + 1; j < step.length; j++) {
+                        shards[step[j]].dropRedo(sharded.parts[step[j]]);
+                    }
+                    sharded.align(getHistoryLimits());
+                    return false;
+                }
+                sharded.push(sharded.undo, step);
+                sharded.align(getHistoryLimits());
+                redone = 1;
+                return true;
+            }
+        } finally {
+            getMetrics().record(Operation.REDO, start, redone);
+        }
+    }
+
+    // The sum of the shards' versions, which grows with every change to any of them
+    @Override
+    public long getVersion() {
+        long version = 0;
+        for (SnippetManager shard : shards) {
+            version += shard.getVersion();
+        }
+        return version;
+    }
+
+    @Override
+    public CodeSnippet getSnippet(long id) {
+        return shards[shardOf(id)].getSnippet(id);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SnippetManager shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    // The shards' published lists merged into id order; unchanged calls share one copy
+    @Override
+    public List<CodeSnippet> getAllSnippets() {
+        long version = getVersion();
+        Listing current = listing;
+        if (current.version == version) return current.snippets;
+        List<List<CodeSnippet>> parts = new ArrayList<>(shards.length);
+        for (SnippetManager shard : shards) {
+            parts.add(shard.getAllSnippets());
+        }
+        current = new Listing(version, Collections.unmodifiableList(merge(parts, BY_ID, Integer.MAX_VALUE)));
+        listing = current;
+        return current.snippets;
+    }
+
+    // Each shard's page after the cursor, merged into id order
+    @Override
+    public SnippetPage getPage(SnippetPage.Cursor after, int limit) {
+        return mergePages(forEachShard(shard -> shards[shard].getPage(after, limit)), BY_ID, limit);
+    }
+
+    // The shards' sorted snapshots merged into one immutable list
+    @Override
+    public List<CodeSnippet> getSortedSnippets(SortKey key, boolean descending) {
+        List<List<CodeSnippet>> parts = new ArrayList<>(shards.length);
+        for (SnippetManager shard : shards) {
+            parts.add(shard.getSortedSnippets(key, descending));
+        }
+        Comparator<CodeSnippet> order = descending ? key.comparator().reversed() : key.comparator();
+        return Collections.unmodifiableList(merge(parts, order, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public SnippetPage getSortedPage(SortKey key, boolean descending, SnippetPage.Cursor after, int limit) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            Comparator<CodeSnippet> order = descending ? key.comparator().reversed() : key.comparator();
+            SnippetPage page = mergePages(forEachShard(shard -> shards[shard].getSortedPage(key, descending, after, limit)),
+                order, limit);
+            found = page.getSnippets().size();
+            return page;
+        } finally {
+            getMetrics().record(Operation.SORT, start, found);
+        }
+    }
+
+    @Override
+    public List<CodeSnippet> searchSnippets(String query) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            List<CodeSnippet> results = merge(forEachShard(shard -> shards[shard].searchSnippets(query)), BY_ID,
+                Integer.MAX_VALUE);
+            found = results.size();
+            return results;
+        } finally {
+            getMetrics().record(Operation.SEARCH, start, found);
+        }
+    }
+
+    @Override
+    public SnippetPage searchPage(String query, SnippetPage.Cursor after, int limit) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            SnippetPage page = mergePages(forEachShard(shard -> shards[shard].searchPage(query, after, limit)), BY_ID,
+                limit);
+            found = page.getSnippets().size();
+            return page;
+        } finally {
+            getMetrics().record(Operation.SEARCH, start, found);
+        }
+    }
+
+    // Each shard's best limit hits, merged into the best limit overall
+    @Override
+    public List<SearchHit> rankedSearch(String query, int limit) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            SnippetQuery.parse(query);
+            Map<Long, SearchHit> byId = new HashMap<>();
+            TopK top = new TopK(limit);
+            for (List<SearchHit> hits : forEachShard(shard -> shards[shard].rankedSearch(query, limit))) {
+                for (SearchHit hit : hits) {
+                    long id = hit.getSnippet().getId();
+                    byId.put(id, hit);
+                    top.offer(id, hit.getScore());
+                }
+            }
+            long[] best = top.drainIds(new double[top.size()]);
+            List<SearchHit> results = new ArrayList<>(best.length);
+            for (long id : best) {
+                results.add(byId.get(id));
+            }
+            found = results.size();
+            return results;
+        } finally {
+            getMetrics().record(Operation.RANKED_SEARCH, start, found);
+        }
+    }
+
+    @Override
+    public List<CodeSnippet> fuzzySearch(String query, int limit) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            Map<CodeSnippet, Integer> distances = new HashMap<>();
+            for (List<CodeSnippet> results : forEachShard(shard -> shards[shard].fuzzySearch(query, limit))) {
+                for (CodeSnippet snippet : results) {
+                    distances.put(snippet, FuzzyIndex.distance(query, snippet));
+                }
+            }
+            List<CodeSnippet> results = new ArrayList<>(distances.keySet());
+            results.sort(Comparator.<CodeSnippet>comparingInt(distances::get).thenComparing(BY_ID));
+            if (results.size() > limit) results = new ArrayList<>(results.subList(0, limit));
+            found = results.size();
+            return results;
+        } finally {
+            getMetrics().record(Operation.FUZZY_SEARCH, start, found);
+        }
+    }
+
+    @Override
+    public List<CodeSnippet> findDefinitions(String name) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            List<CodeSnippet> results = merge(forEachShard(shard -> shards[shard].findDefinitions(name)), BY_ID,
+                Integer.MAX_VALUE);
+            found = results.size();
+            return results;
+        } finally {
+            getMetrics().record(Operation.DEFINITION_SEARCH, start, found);
+        }
+    }
+
+    @Override
+    public List<String> suggestTags(String tag, int limit) {
+        String query = tag.trim().toLowerCase();
+        int maxDistance = FuzzyIndex.maxDistance(query);
+        Map<String, Integer> distances = new HashMap<>();
+        for (List<String> suggestions : forEachShard(shard -> shards[shard].suggestTags(tag, limit))) {
+            for (String suggestion : suggestions) {
+                distances.put(suggestion, FuzzyIndex.editDistance(query, suggestion, maxDistance));
+            }
+        }
+        List<String> results = new ArrayList<>(distances.keySet());
+        results.sort(Comparator.<String>comparingInt(distances::get).thenComparing(Comparator.naturalOrder()));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    @Override
+    public void setDuplicateListener(BiConsumer<CodeSnippet, List<DuplicateMatch>> listener) {
+        this.duplicateListener = listener;
+    }
+
+    @Override
+    public void setDuplicateThreshold(double threshold) {
+        for (SnippetManager shard : shards) {
+            shard.setDuplicateThreshold(threshold);
+        }
+    }
+
+    @Override
+    public List<DuplicateMatch> findDuplicates(CodeSnippet snippet) {
+        Comparator<DuplicateMatch> order = Comparator.comparingDouble(DuplicateMatch::getSimilarity).reversed()
+            .thenComparingLong(match -> match.getSnippet().getId());
+        return merge(forEachShard(shard -> shards[shard].findDuplicates(snippet)), order, Integer.MAX_VALUE);
+    }
+
+    // Under every shard's read lock at once, so the buckets of all shards are compared as one index
+    @Override
+    public List<List<CodeSnippet>> findDuplicateClusters() {
+        List<DuplicateIndex> indexes = new ArrayList<>(shards.length);
+        for (SnippetManager shard : shards) {
+            indexes.add(shard.getDuplicateIndex());
+        }
+        return underReadLocks(0, () -> DuplicateIndex.clusters(indexes));
+    }
+
+    // A sum of the shards' statistics as of the call, rather than a live view
+    @Override
+    public SnippetStatistics getStatistics() {
+        List<SnippetStatistics> parts = new ArrayList<>(shards.length);
+        for (SnippetManager shard : shards) {
+            parts.add(shard.getStatistics());
+        }
+        return SnippetStatistics.sum(parts);
+    }
+
+    private <T> T underReadLocks(int shard, Supplier<T> query) {
+        return shard == shards.length ? query.get() : shards[shard].withReadLock(() -> underReadLocks(shard + 1, query));
+    }
+
+    private void reportDuplicates(CodeSnippet snippet) {
+        BiConsumer<CodeSnippet, List<DuplicateMatch>> listener = duplicateListener;
+        if (listener == null) return;
+        List<DuplicateMatch> matches = findDuplicates(snippet);
+        if (!matches.isEmpty()) listener.accept(snippet, matches);
+    }
+
+    private void addToRecentShared(List<Long> ids) {
+        synchronized (recentLock) {
+            addToRecent(ids);
+        }
+    }
+
+    private int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.length);
+    }
+
+    // Runs task for every shard index, the first on the calling thread, and returns the results in shard order
+    private <T> List<T> forEachShard(IntFunction<T> task) {
+        List<Future<T>> pending = new ArrayList<>(shards.length - 1);
+        for (int shard = 1; shard < shards.length; shard++) {
+            int index = shard;
+            pending.add(workers.submit(() -> task.apply(index)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        results.add(task.apply(0));
+        for (Future<T> future : pending) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final Comparator<CodeSnippet> BY_ID = Comparator.comparingLong(CodeSnippet::getId);
+
+    // Merges lists each already in order into the first limit elements overall
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        List<Iterable<T>> iterables = new ArrayList<>(parts);
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        Iterator<T> it = new MergingIterator<>(iterables, order);
+        while (merged.size() < limit && it.hasNext()) {
+            merged.add(it.next());
+        }
+        return merged;
+    }
+
+    // Each shard's page holds its first limit entries, so the first limit of their merge is the page overall
+    private static SnippetPage mergePages(List<SnippetPage> pages, Comparator<CodeSnippet> order, int limit) {
+        List<List<CodeSnippet>> parts = new ArrayList<>(pages.size());
+        boolean hasMore = false;
+        int total = 0;
+        for (SnippetPage page : pages) {
+            parts.add(page.getSnippets());
+            hasMore |= page.hasMore();
+            total += page.getSnippets().size();
+        }
+        List<CodeSnippet> merged = merge(parts, order, limit);
+        return new SnippetPage(merged, hasMore || total > merged.size());
+    }
+
+    // K-way merge of sequences that are each in order, through a heap of their next elements
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<? extends Iterable<T>> sources, Comparator<? super T> order) {
+            heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> order.compare(a.next, b.next));
+            for (Iterable<T> source : sources) {
+                Iterator<T> it = source.iterator();
+                if (it.hasNext()) heads.add(new Head<>(it.next(), it));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            T result = head.next;
+            if (head.rest.hasNext()) {
+                head.next = head.rest.next();
+                heads.add(head);
+            }
+            return result;
+        }
+    }
+
+    private static final class Head<T> {
+        T next;
+        final Iterator<T> rest;
+
+        Head(T next, Iterator<T> rest) {
+            this.next = next;
+            this.rest = rest;
+        }
+    }
+
+    /*
+     * A session over every shard: one session per shard, plus the shards each of its steps
+     * changed, newest first. A step's part in a shard is that shard's newest history entry
+     * not claimed by a newer step. Shard histories forget their oldest entries by depth and
+     * by bytes, each on its own, so after every change the steps are counted against them
+     * and the oldest dropped until every part they name is still held.
+     */
+    private static final class ShardedSession extends SnippetSession {
+        final SnippetSession[] parts;
+        final Deque<int[]> undo;
+        final Deque<int[]> redo;
+        // How many of the undo and redo steps have a part in each shard
+        private final int[] undoParts;
+        private final int[] redoParts;
+
+        ShardedSession(ShardedSnippetManager manager) {
+            super(manager);
+            parts = new SnippetSession[manager.shards.length];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = manager.shards[i].openSession();
+            }
+            undo = new ArrayDeque<>();
+            redo = new ArrayDeque<>();
+            undoParts = new int[parts.length];
+            redoParts = new int[parts.length];
+        }
+
+        // A newly executed step: it becomes the next to undo and the redo steps are forgotten
+        void executed(int[] step, HistoryLimits limits) {
+            forgetRedo();
+            push(undo, step);
+            align(limits);
+        }
+
+        void push(Deque<int[]> steps, int[] step) {
+            steps.push(step);
+            count(steps, step, 1);
+        }
+
+        int[] poll(Deque<int[]> steps) {
+            int[] step = steps.poll();
+            if (step != null) count(steps, step, -1);
+            return step;
+        }
+
+        void forgetRedo() {
+            redo.clear();
+            Arrays.fill(redoParts, 0);
+        }
+
+        void clear() {
+            undo.clear();
+            Arrays.fill(undoParts, 0);
+            forgetRedo();
+        }
+
+        // Drops the oldest steps past the depth limit or with a part their shard no longer holds
+        void align(HistoryLimits limits) {
+            while (undo.size() > limits.getMaxDepth() || !held(undoParts, true)) {
+                count(undo, undo.removeLast(), -1);
+            }
+            while (redo.size() > limits.getMaxDepth() || !held(redoParts, false)) {
+                count(redo, redo.removeLast(), -1);
+            }
+        }
+
+        private boolean held(int[] counts, boolean undoSide) {
+            for (int shard = 0; shard < parts.length; shard++) {
+                UndoHistory history = parts[shard].history;
+                if (counts[shard] > (undoSide ? history.getUndoDepth() : history.getRedoDepth())) return false;
+            }
+            return true;
+        }
+
+        private void count(Deque<int[]> steps, int[] step, int delta) {
+            int[] counts = steps == undo ? undoParts : redoParts;
+            for (int shard : step) {
+                counts[shard] += delta;
+            }
+        }
+    }
+
+    // A batch's ids, handed out in one run, and its snippets and ids split by shard
+    private final class Split {
+        final List<List<CodeSnippet>> parts;
+        final long[][] partIds;
+        final List<Long> ids;
+
+        Split(Collection<CodeSnippet> batch) {
+            long first = nextId.getAndAdd(batch.size());
+            parts = new ArrayList<>(shards.length);
+            partIds = new long[shards.length][];
+            for (int shard = 0; shard < shards.length; shard++) {
+                parts.add(new ArrayList<>());
+                partIds[shard] = new long[batch.size() / shards.length + 1];
+            }
+            ids = new ArrayList<>(batch.size());
+            for (CodeSnippet snippet : batch) {
+                long id = first + ids.size();
+                int shard = shardOf(id);
+                partIds[shard][parts.get(shard).size()] = id;
+                parts.get(shard).add(snippet);
+                ids.add(id);
+            }
+        }
+
+        // The shards with a part, in order
+        int[] touched() {
+            int[] touched = new int[shards.length];
+            int count = 0;
+            for (int shard = 0; shard < shards.length; shard++) {
+                if (!parts.get(shard).isEmpty()) touched[count++] = shard;
+            }
+            return Arrays.copyOf(touched, count);
+        }
+    }
+
+    private static final class Listing {
+        final long version;
+        final List<CodeSnippet> snippets;
+
+        Listing(long version, List<CodeSnippet> snippets) {
+            this.version = version;
+            this.snippets = snippets;
+        }
+    }
+}
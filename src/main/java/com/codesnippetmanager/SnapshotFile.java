@@ -0,0 +1,245 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * The snapshot file format. A snapshot is a fixed header, then every code body as raw
+ * UTF-8, then one metadata record per snippet pointing at its body, then a CRC32 of the
+ * header and metadata. UTF-8 cannot hold an unpaired surrogate, so a body with one is
+ * written as UTF-16 chars instead, and strings as in SnippetCodec.writeString:
+ *
+ *   header   magic, version, count, largest body in bytes, offset of the metadata,
+ *            next snippet id
+ *   bodies   UTF-8 code, back to back
+ *   metadata id, title, description, language, sorted tags, created, modified,
+ *            body offset, body length in bytes, body length in chars (negative,
+ *            less one, for a UTF-16 body)
+ *   crc      of the header and metadata
+ *
+ * Reading maps the file and decodes only the metadata; each snippet's code stays in the
+ * mapping as a CodeBody until something asks for it; UTF-16 bodies are decoded at once. The mapping outlives the file, so a
+ * compaction may delete it while snippets still point into it. Bodies are mapped in
+ * segments of SEGMENT_SIZE that overlap by the largest body, so no body straddles two.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x534e5053; // "SNPS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int MAX_CODE_BYTES = (int) (Integer.MAX_VALUE - SEGMENT_SIZE);
+
+    private SnapshotFile() {}
+
+    // nextId is kept apart from the snippets, so a deleted highest id is never handed out again
+    static void write(Path path, List<CodeSnippet> snippets, long nextId) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.write(new byte[HEADER_SIZE]);
+            long[] offsets = new long[snippets.size()];
+            int[] lengths = new int[snippets.size()];
+            int[] charLengths = new int[snippets.size()];
+            long position = HEADER_SIZE;
+            int largest = 0;
+            int i = 0;
+            for (CodeSnippet snippet : snippets) {
+                byte[] code = snippet.getCodeBytes();
+                charLengths[i] = snippet.getCodeLength();
+                if (code == null) {
+                    ByteBuffer chars = ByteBuffer.allocate(charLengths[i] * 2);
+                    chars.asCharBuffer().put(snippet.peekCode());
+                    code = chars.array();
+                    charLengths[i] = -1 - charLengths[i];
+                }
+                if (code.length > MAX_CODE_BYTES) throw new IOException("Code of snippet " + snippet.getId() + " is too large");
+                out.write(code);
+                offsets[i] = position;
+                lengths[i++] = code.length;
+                position += code.length;
+                largest = Math.max(largest, code.length);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(snippets.size()).putInt(largest).putLong(position)
+                .putLong(nextId);
+            CRC32 crc = new CRC32();
+            crc.update(header.array());
+            DataOutputStream metadata = new DataOutputStream(new CheckedOutputStream(out, crc));
+            i = 0;
+            for (CodeSnippet snippet : snippets) {
+                metadata.writeLong(snippet.getId());
+                SnippetCodec.writeString(metadata, snippet.getTitle());
+                SnippetCodec.writeString(metadata, snippet.getDescription());
+                SnippetCodec.writeString(metadata, snippet.getLanguage());
+                metadata.writeInt(snippet.getTagCount());
+                for (int t = 0; t < snippet.getTagCount(); t++) {
+                    SnippetCodec.writeString(metadata, snippet.getTag(t));
+                }
+                metadata.writeLong(snippet.getCreatedAtMillis());
+                metadata.writeLong(snippet.getLastModifiedMillis());
+                metadata.writeLong(offsets[i]);
+                metadata.writeInt(lengths[i]);
+                metadata.writeInt(charLengths[i++]);
+            }
+            metadata.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.limit((int) Math.min(size, HEADER_SIZE));
+            while (header.hasRemaining()) {
+                channel.read(header, header.position());
+            }
+            if (size < 8 || header.getInt(0) != MAGIC) {
+                throw new IOException("Unrecognized snapshot file " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + path);
+
+            int count = header.getInt(8);
+            int largest = header.getInt(12);
+            long metadataOffset = header.getLong(16);
+            long nextId = header.getLong(24);
+            if (size < HEADER_SIZE + 4 || count < 0 || nextId < 1 || largest < 0 || largest > MAX_CODE_BYTES
+                || metadataOffset < HEADER_SIZE || metadataOffset > size - 4 || size - metadataOffset > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt snapshot header in " + path);
+            }
+            MappedByteBuffer metadata = channel.map(FileChannel.MapMode.READ_ONLY, metadataOffset, size - metadataOffset);
+            CRC32 crc = new CRC32();
+            crc.update(header.array());
+            crc.update(metadata.duplicate().limit(metadata.capacity() - 4));
+            if (metadata.getInt(metadata.capacity() - 4) != (int) crc.getValue()) {
+                throw new IOException("Checksum mismatch in " + path);
+            }
+
+            ByteBuffer[] segments = mapBodies(channel, metadataOffset, largest);
+            // A library repeats a few dozen languages and tags; looking them up here is far cheaper than intern
+            Map<String, String> interned = new HashMap<>();
+            List<CodeSnippet> snippets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = metadata.getLong();
+                String title = readString(metadata);
+                String description = readString(metadata);
+                String language = interned.computeIfAbsent(readString(metadata), String::intern);
+                String[] tags = new String[metadata.getInt()];
+                for (int t = 0; t < tags.length; t++) {
+                    tags[t] = interned.computeIfAbsent(readString(metadata), String::intern);
+                }
+                long createdAt = metadata.getLong();
+                long lastModified = metadata.getLong();
+                long offset = metadata.getLong() - HEADER_SIZE;
+                int bytes = metadata.getInt();
+                int length = metadata.getInt();
+                if (offset < 0 || bytes < 0 || bytes > largest || offset + bytes > metadataOffset - HEADER_SIZE) {
+                    throw new IOException("Corrupt code offset for snippet " + id + " in " + path);
+                }
+                ByteBuffer segment = segments[(int) (offset / SEGMENT_SIZE)];
+                if (length < 0) {
+                    if (bytes != -2 - 2L * length) throw new IOException("Corrupt code length for snippet " + id + " in " + path);
+                    char[] chars = new char[-1 - length];
+                    segment.duplicate().position((int) (offset % SEGMENT_SIZE)).asCharBuffer().get(chars);
+                    snippets.add(new CodeSnippet(id, title, description, new String(chars), language, Arrays.asList(tags),
+                        createdAt, lastModified));
+                    continue;
+                }
+                MappedCode code = new MappedCode(segment, (int) (offset % SEGMENT_SIZE), bytes, length);
+                snippets.add(new CodeSnippet(id, title, description, code, language, tags, createdAt, lastModified));
+            }
+            return new Contents(snippets, nextId);
+        }
+    }
+
+    private static ByteBuffer[] mapBodies(FileChannel channel, long metadataOffset, int largest) throws IOException {
+        long total = metadataOffset - HEADER_SIZE;
+        ByteBuffer[] segments = new ByteBuffer[(int) Math.max(1, (total + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * SEGMENT_SIZE;
+            long length = Math.min(total - start, SEGMENT_SIZE + largest);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start, length);
+        }
+        return segments;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0) {
+            if (-1L - length > buffer.remaining() / 2) throw new IOException("Corrupt string length: " + length);
+            char[] chars = new char[-1 - length];
+            buffer.asCharBuffer().get(chars);
+            buffer.position(buffer.position() + chars.length * 2);
+            return new String(chars);
+        }
+        if (length > buffer.remaining()) throw new IOException("Corrupt string length: " + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The snippets in a snapshot and the id the next new snippet gets
+    static final class Contents {
+        final List<CodeSnippet> snippets;
+        final long nextId;
+
+        Contents(List<CodeSnippet> snippets, long nextId) {
+            this.snippets = snippets;
+            this.nextId = nextId;
+        }
+    }
+
+    // A body in a mapped segment; absolute reads leave the shared buffer's position alone
+    private static final class MappedCode implements CodeBody {
+        private final ByteBuffer segment;
+        private final int offset;
+        private final int byteLength;
+        private final int length;
+
+        MappedCode(ByteBuffer segment, int offset, int byteLength, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.byteLength = byteLength;
+            this.length = length;
+        }
+
+        @Override
+        public String load() {
+            return new String(bytes(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] bytes() {
+            byte[] bytes = new byte[byteLength];
+            segment.get(offset, bytes);
+            return bytes;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/*
+ * Bulk export and import of snippets, either the whole library or a search result, in one
+ * of three formats: JSON Lines (one object per line, in the shape the HTTP server uses),
+ * JSON Lines compressed with gzip, or a zip archive holding each snippet's code as a source
+ * file under a directory per language.
+ *
+ * An export is encoded in batches by a pool of worker threads and written in order from the
+ * calling thread, with at most two batches per worker encoded ahead of the writer, so memory
+ * stays bounded however large the library. With gzip each batch is compressed on its worker
+ * as a separate gzip member; concatenated members read back as one stream. In a zip, each
+ * batch's metadata is a manifest entry written ahead of its source files, so an archive can
+ * be imported front to back. Source files are plain UTF-8, so an unpaired surrogate in code
+ * comes back from a zip as '?'; JSON Lines escapes it and round-trips exactly. Exports read
+ * code without warming it.
+ *
+ * An import tells the formats apart by their first bytes and adds the snippets with their
+ * original timestamps and new ids, BATCH_SIZE at a time, all the batches folded into a single
+ * undo step. It stops at the first malformed record; the batches added before it stay in the
+ * library, and undoing takes them out together.
+ */
+public class SnippetArchive {
+    private static final int BATCH_SIZE = 512;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String MANIFEST_PREFIX = "manifest/";
+
+    public enum Format {
+        JSON_LINES("jsonl", "application/x-ndjson"),
+        JSON_LINES_GZIP("jsonl.gz", "application/gzip"),
+        ZIP("zip", "application/zip");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        // ZIP for .zip files, JSON_LINES_GZIP for .gz files, otherwise JSON_LINES
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".zip")) return ZIP;
+            if (name.endsWith(".gz")) return JSON_LINES_GZIP;
+            return JSON_LINES;
+        }
+
+        public static Format forExtension(String extension) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(extension)) return format;
+            }
+            throw new IllegalArgumentException("Unknown export format: " + extension);
+        }
+    }
+
+    private final SnippetManager manager;
+    private final int threads;
+
+    public SnippetArchive(SnippetManager manager) {
+        this(manager, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SnippetArchive(SnippetManager manager, int threads) {
+        this.manager = manager;
+        this.threads = Math.max(1, threads);
+    }
+
+    /*
+     * Writes the snippets to file and returns how many there were. The export goes to a
+     * temporary file beside it that is moved into place once complete, so a failed export
+     * never leaves a truncated file behind.
+     */
+    public int exportFile(List<CodeSnippet> snippets, Path file, Format format) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                export(snippets, Channels.newOutputStream(channel), format);
+                channel.force(false);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return snippets.size();
+    }
+
+    // Writes the snippets to out, which is flushed but left open
+    public void export(List<CodeSnippet> snippets, OutputStream out, Format format) throws IOException {
+        long start = System.nanoTime();
+        int exported = -1;
+        try {
+            switch (format) {
+                case JSON_LINES:
+                    encodeInOrder(snippets, (batch, number) -> encodeLines(batch), out::write);
+                    break;
+                case JSON_LINES_GZIP:
+                    encodeInOrder(snippets, (batch, number) -> gzip(encodeLines(batch)), out::write);
+                    break;
+                case ZIP:
+                    DeflatedZipWriter zip = new DeflatedZipWriter(out, BUFFER_SIZE);
+                    encodeInOrder(snippets, SnippetArchive::encodeZipBatch, entries -> {
+                        for (DeflatedZipWriter.Entry entry : entries) zip.write(entry);
+                    });
+                    zip.finish();
+                    break;
+            }
+            out.flush();
+            exported = snippets.size();
+        } finally {
+            manager.getMetrics().record(Operation.EXPORT, start, exported);
+        }
+    }
+
+    // Adds every snippet in an export file and returns how many there were
+    public int importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        int imported = -1;
+        try (InputStream in = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file)), BUFFER_SIZE)) {
+            in.mark(2);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            if (first == 0x1f && second == 0x8b) {
+                imported = importLines(new GZIPInputStream(in, BUFFER_SIZE));
+            } else if (first == 'P' && second == 'K') {
+                imported = importZip(new ZipInputStream(in, StandardCharsets.UTF_8));
+            } else {
+                imported = importLines(in);
+            }
+            return imported;
+        } finally {
+            manager.getMetrics().record(Operation.IMPORT, start, imported);
+        }
+    }
+
+    private interface Encoder<T> {
+        T encode(List<CodeSnippet> batch, int number) throws IOException;
+    }
+
+    private interface Sink<T> {
+        void write(T encoded) throws IOException;
+    }
+
+    // Encodes the batches on the workers and hands them to sink in order
+    private <T> void encodeInOrder(List<CodeSnippet> snippets, Encoder<T> encoder, Sink<T> sink) throws IOException {
+        ExecutorService workers = newWorkers("snippet-export");
+        try {
+            Deque<Future<T>> pending = new ArrayDeque<>();
+            int number = 0;
+            for (int from = 0; from < snippets.size(); from += BATCH_SIZE) {
+                List<CodeSnippet> batch = snippets.subList(from, Math.min(snippets.size(), from + BATCH_SIZE));
+                int batchNumber = number++;
+                if (pending.size() == 2 * threads) sink.write(await(pending.poll()));
+                pending.add(workers.submit(() -> encoder.encode(batch, batchNumber)));
+            }
+            while (!pending.isEmpty()) {
+                sink.write(await(pending.poll()));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private int importLines(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ExecutorService workers = newWorkers("snippet-import");
+        try {
+            Deque<Future<List<CodeSnippet>>> pending = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            int imported = 0;
+            ImportStep step = null;
+            int lineNumber = 0;
+            String line;
+            while (true) {
+                line = reader.readLine();
+                if (line != null) {
+                    lines.add(line);
+                    lineNumber++;
+                }
+                if (lines.size() == BATCH_SIZE || (line == null && !lines.isEmpty())) {
+                    if (pending.size() == 2 * threads) {
+                        List<CodeSnippet> parsed = await(pending.poll());
+                        step = manager.addAllToStep(parsed, step);
+                        imported += parsed.size();
+                    }
+                    List<String> batch = lines;
+                    int firstLine = lineNumber - batch.size() + 1;
+                    pending.add(workers.submit(() -> parseLines(batch, firstLine)));
+                    lines = new ArrayList<>(BATCH_SIZE);
+                }
+                if (line == null) break;
+            }
+            while (!pending.isEmpty()) {
+                List<CodeSnippet> parsed = await(pending.poll());
+                step = manager.addAllToStep(parsed, step);
+                imported += parsed.size();
+            }
+            return imported;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Manifest records wait for their source file, which follows them in the archive
+    private int importZip(ZipInputStream zip) throws IOException {
+        Map<String, Map<?, ?>> waiting = new HashMap<>();
+        List<CodeSnippet> batch = new ArrayList<>(BATCH_SIZE);
+        int imported = 0;
+        ImportStep step = null;
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) continue;
+            String name = entry.getName();
+            String text = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+            if (name.startsWith(MANIFEST_PREFIX)) {
+                String[] lines = text.split("\n");
+                for (int i = 0; i < lines.length; i++) {
+                    if (lines[i].isBlank()) continue;
+                    try {
+                        Map<?, ?> fields = parseObject(lines[i]);
+                        waiting.put(string(fields, "path", true), fields);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(name + " line " + (i + 1) + ": " + e.getMessage(), e);
+                    }
+                }
+                continue;
+            }
+            // Files that are not in a manifest, such as a README added by hand, are ignored
+            Map<?, ?> fields = waiting.remove(name);
+            if (fields == null) continue;
+            try {
+                batch.add(toSnippet(fields, text));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(name + ": " + e.getMessage(), e);
+            }
+            if (batch.size() == BATCH_SIZE) {
+                step = manager.addAllToStep(batch, step);
+                imported += batch.size();
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!waiting.isEmpty()) throw new IOException("Archive is missing " + waiting.keySet().iterator().next());
+        manager.addAllToStep(batch, step);
+        return imported + batch.size();
+    }
+
+    private static List<CodeSnippet> parseLines(List<String> lines, int firstLine) throws IOException {
+        List<CodeSnippet> snippets = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) continue;
+            try {
+                snippets.add(toSnippet(parseObject(lines.get(i)), null));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + (firstLine + i) + ": " + e.getMessage(), e);
+            }
+        }
+        return snippets;
+    }
+
+    private static byte[] encodeLines(List<CodeSnippet> batch) throws IOException {
+        StringBuilder text = new StringBuilder(batch.size() * 512);
+        for (CodeSnippet snippet : batch) {
+            writeRecord(text, snippet, null);
+            text.append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 64 * 1024) {{ def.setLevel(Deflater.BEST_SPEED); }}) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    // The batch's manifest entry, then its source files, each deflated on the worker
+    private static List<DeflatedZipWriter.Entry> encodeZipBatch(List<CodeSnippet> batch, int number) throws IOException {
+        List<DeflatedZipWriter.Entry> entries = new ArrayList<>(batch.size() + 1);
+        StringBuilder manifest = new StringBuilder(batch.size() * 256);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            entries.add(null);
+            long newest = 0;
+            for (CodeSnippet snippet : batch) {
+                String name = entryName(snippet);
+                entries.add(DeflatedZipWriter.deflate(name, snippet.peekCode().getBytes(StandardCharsets.UTF_8),
+                    snippet.getLastModifiedMillis(), deflater));
+                writeRecord(manifest, snippet, name);
+                manifest.append('\n');
+                newest = Math.max(newest, snippet.getLastModifiedMillis());
+            }
+            String manifestName = String.format("%s%06d.jsonl", MANIFEST_PREFIX, number);
+            entries.set(0, DeflatedZipWriter.deflate(manifestName, manifest.toString().getBytes(StandardCharsets.UTF_8),
+                newest, deflater));
+            return entries;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Language/id-title.ext, with the language and title reduced to characters safe in any file system
+    static String entryName(CodeSnippet snippet) {
+        String language = snippet.getLanguage().trim().replaceAll("[^A-Za-z0-9+#._-]", "_");
+        if (language.isEmpty() || language.matches("\\.+")) language = "unknown";
+        String slug = snippet.getTitle().toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+        if (slug.length() > 48) slug = slug.substring(0, 48);
+        if (slug.isEmpty()) slug = "snippet";
+        return language + "/" + snippet.getId() + "-" + slug + "." + SnippetImporter.extensionOf(snippet.getLanguage());
+    }
+
+    // A JSON object with the code inline, or with the path of the zip entry holding it
+    private static void writeRecord(Appendable out, CodeSnippet snippet, String path) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(snippet.getId()));
+        out.append(",\"title\":");
+        Json.writeString(out, snippet.getTitle());
+        out.append(",\"description\":");
+        Json.writeString(out, snippet.getDescription());
+        if (path == null) {
+            out.append(",\"code\":");
+            Json.writeString(out, snippet.peekCode());
+        } else {
+            out.append(",\"path\":");
+            Json.writeString(out, path);
+        }
+        out.append(",\"language\":");
+        Json.writeString(out, snippet.getLanguage());
+        out.append(",\"tags\":[");
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            if (i > 0) out.append(',');
+            Json.writeString(out, snippet.getTag(i));
+        }
+        out.append("],\"createdAt\":\"").append(Instant.ofEpochMilli(snippet.getCreatedAtMillis()).toString());
+        out.append("\",\"lastModified\":\"").append(Instant.ofEpochMilli(snippet.getLastModifiedMillis()).toString());
+        out.append("\"}");
+    }
+
+    private static Map<?, ?> parseObject(String line) {
+        Object parsed = Json.parse(line);
+        if (!(parsed instanceof Map)) throw new IllegalArgumentException("Expected a JSON object");
+        return (Map<?, ?>) parsed;
+    }
+
+    // Code is read from the record unless given. Throws IllegalArgumentException for a malformed record
+    private static CodeSnippet toSnippet(Map<?, ?> fields, String code) {
+        Set<String> tags = new LinkedHashSet<>();
+        Object tagList = fields.get("tags");
+        if (tagList instanceof List) {
+            for (Object tag : (List<?>) tagList) {
+                if (!(tag instanceof String)) throw new IllegalArgumentException("Tags must be strings");
+                tags.add((String) tag);
+            }
+        } else if (tagList != null) {
+            throw new IllegalArgumentException("tags must be an array");
+        }
+        long now = System.currentTimeMillis();
+        long created = time(fields, "createdAt", now);
+        long modified = time(fields, "lastModified", created);
+        return new CodeSnippet(0, string(fields, "title", true), string(fields, "description", false),
+            code == null ? string(fields, "code", true) : code, string(fields, "language", true), tags, created, modified);
+    }
+
+    private static String string(Map<?, ?> fields, String name, boolean required) {
+        Object value = fields.get(name);
+        if (value instanceof String) return (String) value;
+        if (value == null && !required) return "";
+        throw new IllegalArgumentException("Field " + name + " must be a string");
+    }
+
+    // An ISO-8601 instant or epoch milliseconds
+    private static long time(Map<?, ?> fields, String name, long missing) {
+        Object value = fields.get(name);
+        if (value == null) return missing;
+        if (value instanceof Double) return ((Double) value).longValue();
+        try {
+            if (value instanceof String) return Instant.parse((String) value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Field " + name + " must be a time");
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private ExecutorService newWorkers(String name) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.out.println("Usage: java -cp target/classes com.codesnippetmanager.SnippetArchive export|import <file> [data-directory]");
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        Path dataDirectory = Paths.get(args.length == 3 ? args[2] : "data");
+        try (SnippetManager manager = new SnippetManager(dataDirectory)) {
+            SnippetArchive archive = new SnippetArchive(manager);
+            long start = System.nanoTime();
+            if (args[0].equals("export")) {
+                int exported = archive.exportFile(manager.getAllSnippets(), file, Format.forFile(file));
+                System.out.printf("Exported %d snippet(s) to %s in %d ms\n", exported, file, (System.nanoTime() - start) / 1_000_000);
+            } else {
+                int imported = archive.importFile(file);
+                System.out.printf("Imported %d snippet(s) from %s in %d ms\n", imported, file, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            System.out.println(args[0].equals("export") ? "Export failed: " + e.getMessage() : "Import failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SnippetCodec {
+    private SnippetCodec() {}
+
+    public static void write(DataOutput out, CodeSnippet snippet) throws IOException {
+        out.writeLong(snippet.getId());
+        writeString(out, snippet.getTitle());
+        writeString(out, snippet.getDescription());
+        writeString(out, snippet.peekCode());
+        writeString(out, snippet.getLanguage());
+        out.writeInt(snippet.getTagCount());
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            writeString(out, snippet.getTag(i));
+        }
+        out.writeLong(snippet.getCreatedAtMillis());
+        out.writeLong(snippet.getLastModifiedMillis());
+    }
+
+    public static CodeSnippet read(DataInput in) throws IOException {
+        long id = in.readLong();
+        String title = readString(in);
+        String description = readString(in);
+        String code = readString(in);
+        String language = readString(in);
+        int tagCount = in.readInt();
+        List<String> tags = new ArrayList<>(Math.max(tagCount, 0));
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(in));
+        }
+        long createdAt = in.readLong();
+        long lastModified = in.readLong();
+        return new CodeSnippet(id, title, description, code, language, tags, createdAt, lastModified);
+    }
+
+    // The undo history's format: timestamps as exact millis, plus the revision
+    static void writeVersion(DataOutput out, CodeSnippet snippet) throws IOException {
+        out.writeLong(snippet.getId());
+        writeString(out, snippet.getTitle());
+        writeString(out, snippet.getDescription());
+        writeString(out, snippet.peekCode());
+        writeString(out, snippet.getLanguage());
+        out.writeInt(snippet.getTagCount());
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            writeString(out, snippet.getTag(i));
+        }
+        out.writeLong(snippet.getCreatedAtMillis());
+        out.writeLong(snippet.getLastModifiedMillis());
+        out.writeLong(snippet.getRevision());
+    }
+
+    static CodeSnippet readVersion(DataInput in) throws IOException {
+        long id = in.readLong();
+        String title = readString(in);
+        String description = readString(in);
+        String code = readString(in);
+        String language = readString(in);
+        int tagCount = in.readInt();
+        List<String> tags = new ArrayList<>(Math.max(tagCount, 0));
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(in));
+        }
+        long createdAt = in.readLong();
+        long lastModified = in.readLong();
+        CodeSnippet snippet = new CodeSnippet(id, title, description, code, language, tags, createdAt, lastModified);
+        return snippet.rebuild(title, description, code, snippet.getLanguage(), snippet.tagArray(), lastModified,
+            in.readLong());
+    }
+
+    /*
+     * writeUTF caps strings at 64KB, which code bodies can exceed. UTF-8 has no encoding for an
+     * unpaired surrogate, so a string with one goes out as UTF-16 chars after a negative length.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (hasUnpairedSurrogate(value)) {
+            out.writeInt(-1 - value.length());
+            out.writeChars(value);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            char[] chars = new char[-1 - length];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = in.readChar();
+            }
+            return new String(chars);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // True when value holds a surrogate that is not half of a pair, which UTF-8 encodes as '?'
+    static boolean hasUnpairedSurrogate(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
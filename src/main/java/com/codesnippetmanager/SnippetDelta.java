@@ -0,0 +1,181 @@
+package com.codesnippetmanager;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * The difference between two versions of one snippet, enough to rebuild either version from
+ * the other. Each changed text field is stored as the common prefix and suffix lengths plus
+ * the differing middle of both versions, so a typical edit costs a few dozen bytes instead
+ * of two copies of the code. Unchanged fields cost nothing.
+ */
+final class SnippetDelta {
+    private final TextDelta title;
+    private final TextDelta description;
+    private final TextDelta code;
+    private final String olderLanguage;
+    private final String newerLanguage;
+    private final String[] olderTags;
+    private final String[] newerTags;
+    private final long olderModified;
+    private final long newerModified;
+    private final long olderRevision;
+    private final long newerRevision;
+
+    private SnippetDelta(TextDelta title, TextDelta description, TextDelta code, String olderLanguage,
+                         String newerLanguage, String[] olderTags, String[] newerTags, long olderModified,
+                         long newerModified, long olderRevision, long newerRevision) {
+        this.title = title;
+        this.description = description;
+        this.code = code;
+        this.olderLanguage = olderLanguage;
+        this.newerLanguage = newerLanguage;
+        this.olderTags = olderTags;
+        this.newerTags = newerTags;
+        this.olderModified = olderModified;
+        this.newerModified = newerModified;
+        this.olderRevision = olderRevision;
+        this.newerRevision = newerRevision;
+    }
+
+    static SnippetDelta between(CodeSnippet older, CodeSnippet newer) {
+        return new SnippetDelta(
+            TextDelta.between(older.getTitle(), newer.getTitle()),
+            TextDelta.between(older.getDescription(), newer.getDescription()),
+            TextDelta.between(older.peekCode(), newer.peekCode()),
+            older.getLanguage(), newer.getLanguage(),
+            older.tagArray(), Arrays.equals(older.tagArray(), newer.tagArray()) ? older.tagArray() : newer.tagArray(),
+            older.getLastModifiedMillis(), newer.getLastModifiedMillis(),
+            older.getRevision(), newer.getRevision());
+    }
+
+    long getOlderRevision() { return olderRevision; }
+    long getNewerRevision() { return newerRevision; }
+
+    // The older version, given the newer one (same revision as when the delta was taken). Unchanged
+    // code is passed on as null so a body still in the snapshot file is not decoded
+    CodeSnippet toOlder(CodeSnippet newer) {
+        return newer.rebuild(
+            TextDelta.apply(title, newer.getTitle(), true),
+            TextDelta.apply(description, newer.getDescription(), true),
+            code == null ? null : TextDelta.apply(code, newer.peekCode(), true),
+            olderLanguage, olderTags, olderModified, olderRevision);
+    }
+
+    CodeSnippet toNewer(CodeSnippet older) {
+        return older.rebuild(
+            TextDelta.apply(title, older.getTitle(), false),
+            TextDelta.apply(description, older.getDescription(), false),
+            code == null ? null : TextDelta.apply(code, older.peekCode(), false),
+            newerLanguage, newerTags, newerModified, newerRevision);
+    }
+
+    // Language strings are interned and tag arrays shared with the snippets, so only the text deltas count
+    long estimatedSize() {
+        return 96 + TextDelta.estimatedSize(title) + TextDelta.estimatedSize(description)
+            + TextDelta.estimatedSize(code) + (olderTags == newerTags ? 0 : 16 + 8L * olderTags.length);
+    }
+
+    void write(DataOutput out) throws IOException {
+        TextDelta.write(out, title);
+        TextDelta.write(out, description);
+        TextDelta.write(out, code);
+        SnippetCodec.writeString(out, olderLanguage);
+        SnippetCodec.writeString(out, newerLanguage);
+        writeTags(out, olderTags);
+        writeTags(out, newerTags);
+        out.writeLong(olderModified);
+        out.writeLong(newerModified);
+        out.writeLong(olderRevision);
+        out.writeLong(newerRevision);
+    }
+
+    static SnippetDelta read(DataInput in) throws IOException {
+        TextDelta title = TextDelta.read(in);
+        TextDelta description = TextDelta.read(in);
+        TextDelta code = TextDelta.read(in);
+        String olderLanguage = SnippetCodec.readString(in).intern();
+        String newerLanguage = SnippetCodec.readString(in).intern();
+        String[] olderTags = readTags(in);
+        String[] newerTags = readTags(in);
+        if (Arrays.equals(olderTags, newerTags)) newerTags = olderTags;
+        return new SnippetDelta(title, description, code, olderLanguage, newerLanguage, olderTags, newerTags,
+            in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private static void writeTags(DataOutput out, String[] tags) throws IOException {
+        out.writeInt(tags.length);
+        for (String tag : tags) {
+            SnippetCodec.writeString(out, tag);
+        }
+    }
+
+    private static String[] readTags(DataInput in) throws IOException {
+        String[] tags = new String[in.readInt()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = SnippetCodec.readString(in).intern();
+        }
+        return tags;
+    }
+
+    // One changed string: both versions share prefix leading and suffix trailing characters
+    private static final class TextDelta {
+        final int prefix;
+        final int suffix;
+        final String older;
+        final String newer;
+
+        TextDelta(int prefix, int suffix, String older, String newer) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.older = older;
+            this.newer = newer;
+        }
+
+        // Null when the strings are equal
+        static TextDelta between(String older, String newer) {
+            if (older.equals(newer)) return null;
+            int limit = Math.min(older.length(), newer.length());
+            int prefix = 0;
+            while (prefix < limit && older.charAt(prefix) == newer.charAt(prefix)) prefix++;
+            int suffix = 0;
+            while (suffix < limit - prefix
+                && older.charAt(older.length() - 1 - suffix) == newer.charAt(newer.length() - 1 - suffix)) {
+                suffix++;
+            }
+            // Never split a surrogate pair, so both middles survive encoding to UTF-8
+            if (prefix > 0 && Character.isHighSurrogate(older.charAt(prefix - 1))) prefix--;
+            if (suffix > 0 && Character.isLowSurrogate(older.charAt(older.length() - suffix))) suffix--;
+            return new TextDelta(prefix, suffix, older.substring(prefix, older.length() - suffix),
+                newer.substring(prefix, newer.length() - suffix));
+        }
+
+        static String apply(TextDelta delta, String from, boolean toOlder) {
+            if (delta == null) return from;
+            String middle = toOlder ? delta.older : delta.newer;
+            return from.substring(0, delta.prefix) + middle + from.substring(from.length() - delta.suffix);
+        }
+
+        static long estimatedSize(TextDelta delta) {
+            return delta == null ? 0 : 112 + delta.older.length() + delta.newer.length();
+        }
+
+        static void write(DataOutput out, TextDelta delta) throws IOException {
+            out.writeBoolean(delta != null);
+            if (delta == null) return;
+            out.writeInt(delta.prefix);
+            out.writeInt(delta.suffix);
+            SnippetCodec.writeString(out, delta.older);
+            SnippetCodec.writeString(out, delta.newer);
+        }
+
+        static TextDelta read(DataInput in) throws IOException {
+            if (!in.readBoolean()) return null;
+            int prefix = in.readInt();
+            int suffix = in.readInt();
+            return new TextDelta(prefix, suffix, SnippetCodec.readString(in), SnippetCodec.readString(in));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.codesnippetmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Seeds a library from a source tree. The calling thread walks the tree and hands each
+ * source file to a pool of worker threads as soon as it finds it. Every BATCH_SIZE files, an
+ * adder thread waits for that batch's reads and passes them to SnippetManager in one call,
+ * while the walk and the next reads go on. At most MAX_PENDING_BATCHES batches are in
+ * flight, which bounds the file contents held outside the library. All the batches of one
+ * import make a single undo step, in a ShardedSnippetManager as well.
+ * Dot-directories are not entered, and files whose extension is not a known language are
+ * ignored. Files that are unreadable, not valid UTF-8 or larger than MAX_FILE_SIZE are
+ * counted as skipped.
+ */
+public class SnippetImporter {
+    private static final int BATCH_SIZE = 512;
+    private static final int MAX_PENDING_BATCHES = 2;
+    static final long MAX_FILE_SIZE = 1024 * 1024;
+    private static final Map<String, String> LANGUAGES = new LinkedHashMap<>();
+
+    static {
+        LANGUAGES.put("java", "Java");
+        LANGUAGES.put("kt", "Kotlin");
+        LANGUAGES.put("scala", "Scala");
+        LANGUAGES.put("groovy", "Groovy");
+        LANGUAGES.put("py", "Python");
+        LANGUAGES.put("rb", "Ruby");
+        LANGUAGES.put("js", "JavaScript");
+        LANGUAGES.put("jsx", "JavaScript");
+        LANGUAGES.put("ts", "TypeScript");
+        LANGUAGES.put("tsx", "TypeScript");
+        LANGUAGES.put("c", "C");
+        LANGUAGES.put("h", "C");
+        LANGUAGES.put("cpp", "C++");
+        LANGUAGES.put("cc", "C++");
+        LANGUAGES.put("hpp", "C++");
+        LANGUAGES.put("cs", "C#");
+        LANGUAGES.put("go", "Go");
+        LANGUAGES.put("rs", "Rust");
+        LANGUAGES.put("swift", "Swift");
+        LANGUAGES.put("php", "PHP");
+        LANGUAGES.put("sh", "Shell");
+        LANGUAGES.put("sql", "SQL");
+        LANGUAGES.put("html", "HTML");
+        LANGUAGES.put("css", "CSS");
+    }
+
+    private final SnippetManager manager;
+    private final int threads;
+    // Written by the adder thread, and read once its batches are done
+    private int imported;
+    private int skipped;
+    private ImportStep step;
+
+    public SnippetImporter(SnippetManager manager) {
+        this(manager, Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    public SnippetImporter(SnippetManager manager, int threads) {
+        this.manager = manager;
+        this.threads = threads;
+    }
+
+    public int getImported() { return imported; }
+    public int getSkipped() { return skipped; }
+
+    // Language name for a file, or null when the extension is not recognized
+    static String languageOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : LANGUAGES.get(name.substring(dot + 1).toLowerCase());
+    }
+
+    // The usual extension for a language name, ignoring case, or "txt" when it has none here
+    static String extensionOf(String language) {
+        for (Map.Entry<String, String> entry : LANGUAGES.entrySet()) {
+            if (entry.getValue().equalsIgnoreCase(language)) return entry.getKey();
+        }
+        return "txt";
+    }
+
+    // Imports every source file under root, tagging each snippet with the root's name
+    public void importDirectory(Path root) throws IOException {
+        Path name = root.toAbsolutePath().normalize().getFileName();
+        String tag = name == null ? "imported" : name.toString();
+        step = null;
+        ExecutorService workers = Executors.newFixedThreadPool(threads, daemon("snippet-importer"));
+        // One thread, so batches are added in walk order and the undo step is only touched there
+        ExecutorService adder = Executors.newSingleThreadExecutor(daemon("snippet-importer-add"));
+        try {
+            Deque<Future<?>> pending = new ArrayDeque<>();
+            List<Future<CodeSnippet>> batch = new ArrayList<>(BATCH_SIZE);
+            int[] unvisited = new int[1];
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // Skips dot-directories such as .git below the root
+                    boolean hidden = !dir.equals(root) && dir.getFileName().toString().startsWith(".");
+                    return hidden ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && languageOf(file) != null) {
+                        batch.add(workers.submit(() -> read(root, file, tag)));
+                        if (batch.size() == BATCH_SIZE) {
+                            submitBatch(new ArrayList<>(batch), pending, adder);
+                            batch.clear();
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    unvisited[0]++;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            submitBatch(batch, pending, adder);
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+            skipped += unvisited[0];
+        } finally {
+            workers.shutdownNow();
+            adder.shutdownNow();
+        }
+    }
+
+    private void submitBatch(List<Future<CodeSnippet>> reads, Deque<Future<?>> pending, ExecutorService adder)
+            throws IOException {
+        pending.add(adder.submit(() -> {
+            addBatch(reads);
+            return null;
+        }));
+        while (pending.size() > MAX_PENDING_BATCHES) {
+            await(pending.poll());
+        }
+    }
+
+    // Runs on the adder thread
+    private void addBatch(List<Future<CodeSnippet>> reads) throws Exception {
+        List<CodeSnippet> snippets = new ArrayList<>(reads.size());
+        for (Future<CodeSnippet> read : reads) {
+            CodeSnippet snippet = read.get();
+            if (snippet == null) {
+                skipped++;
+            } else {
+                snippets.add(snippet);
+            }
+        }
+        step = manager.addAllToStep(snippets, step);
+        imported += snippets.size();
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Null for files that are unreadable, too large or not UTF-8 text
+    private static CodeSnippet read(Path root, Path file, String tag) {
+        String code;
+        try {
+            if (Files.size(file) > MAX_FILE_SIZE) return null;
+            code = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file))).toString();
+        } catch (IOException e) {
+            return null;
+        }
+        String relative = root.relativize(file).toString().replace('\\', '/');
+        return new CodeSnippet(relative, "Imported from " + relative, code, languageOf(file), Collections.singleton(tag));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java -cp target/classes com.codesnippetmanager.SnippetImporter <source-directory> [data-directory]");
+            return;
+        }
+        Path dataDirectory = Paths.get(args.length == 2 ? args[1] : "data");
+        try (SnippetManager manager = new SnippetManager(dataDirectory)) {
+            SnippetImporter importer = new SnippetImporter(manager);
+            long start = System.nanoTime();
+            importer.importDirectory(Paths.get(args[0]));
+            System.out.printf("Imported %d file(s), skipped %d, in %d ms\n", importer.getImported(),
+                importer.getSkipped(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.out.println("Import failed: " + e.getMessage());
+        }
+    }
+}
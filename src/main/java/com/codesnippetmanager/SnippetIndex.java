@@ -0,0 +1,28 @@
+package com.codesnippetmanager;
+
+import java.util.Collection;
+
+// A secondary structure derived from the snippets in a SnippetStore and kept in step with it
+public interface SnippetIndex {
+    void add(CodeSnippet snippet);
+    void remove(CodeSnippet snippet);
+
+    // Called when a snippet is replaced by a new version with the same id
+    default void replace(CodeSnippet oldSnippet, CodeSnippet newSnippet) {
+        remove(oldSnippet);
+        add(newSnippet);
+    }
+
+    // Bulk versions used for batches; indexes that can merge a whole batch at once override them
+    default void addAll(Collection<CodeSnippet> snippets) {
+        for (CodeSnippet snippet : snippets) {
+            add(snippet);
+        }
+    }
+
+    default void removeAll(Collection<CodeSnippet> snippets) {
+        for (CodeSnippet snippet : snippets) {
+            remove(snippet);
+        }
+    }
+}
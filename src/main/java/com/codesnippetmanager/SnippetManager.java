@@ -0,0 +1,702 @@
+package com.codesnippetmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.time.LocalDateTime;
+
+/*
+ * Safe to share between threads. Every change runs under a single write lock, so commands
+ * are applied and journaled one at a time. Index queries take the read lock and run in
+ * parallel with each other. A library opened from disk builds the indexes that read code
+ * bodies when they are first queried or by a background thread, whichever comes first, so
+ * opening does not decode the snapshot's bodies (see CodeIndexes). getSnippet, size,
+ * getAllSnippets, getPage, getSortedSnippets, getSortedPage and getRecentSnippets take no
+ * lock: each change publishes the id order and the sorted orders as immutable lists
+ * sharing all but the changed chunks (see SnippetOrder). The undo and redo methods here
+ * act on a default session; clients that share the manager should each use their own
+ * from openSession().
+ */
+public class SnippetManager implements Closeable {
+    private SnippetStore snippets;
+    private CodeIndexes codeIndexes;
+    private SortIndex sortIndex;
+    private FuzzyIndex fuzzyIndex;
+    private volatile BiConsumer<CodeSnippet, List<DuplicateMatch>> duplicateListener;
+    private SnippetSession defaultSession;
+    private volatile HistoryLimits historyLimits;
+    private SnippetStatistics statistics;
+    private final OperationMetrics metrics;
+    private final CodeTiering tiering;
+    private volatile List<Long> recentSnippets;
+    private CommandJournal journal;
+    private long nextId;
+    private final ReadWriteLock lock;
+    // Bumped by every change
+    private volatile long version;
+    private static final int MAX_RECENT_SNIPPETS = 5;
+    private static final double DEFAULT_DUPLICATE_THRESHOLD = 0.8;
+
+    public SnippetManager() {
+        this(true);
+    }
+
+    // Shards of a ShardedSnippetManager are untiered; the facade tiers the whole library once
+    SnippetManager(boolean tiered) {
+        this(tiered, false);
+    }
+
+    // With deferIndexes the code indexes are left empty until first used, for a library about to be loaded
+    private SnippetManager(boolean tiered, boolean deferIndexes) {
+        snippets = new SnippetStore();
+        codeIndexes = new CodeIndexes(snippets, DEFAULT_DUPLICATE_THRESHOLD);
+        sortIndex = new SortIndex();
+        fuzzyIndex = new FuzzyIndex(snippets);
+        snippets.addIndex(codeIndexes);
+        snippets.addIndex(sortIndex);
+        snippets.addIndex(fuzzyIndex);
+        statistics = new SnippetStatistics();
+        snippets.addIndex(statistics);
+        metrics = new OperationMetrics();
+        historyLimits = HistoryLimits.DEFAULT;
+        defaultSession = new SnippetSession(this);
+        recentSnippets = Collections.emptyList();
+        nextId = 1;
+        lock = new ReentrantReadWriteLock();
+        tiering = tiered ? new CodeTiering(this::getAllSnippets) : null;
+        if (!deferIndexes) codeIndexes.build();
+    }
+
+    /*
+     * For a subclass that keeps no library of its own, such as ShardedSnippetManager, whose
+     * shards hold the library, its indexes and every session's history. The store, indexes,
+     * statistics and default session stay null, so the subclass overrides every method that
+     * reads or changes them, newHistory included. Only the tiering, metrics, history limits
+     * and recent list are built here.
+     */
+    protected SnippetManager(NoStore noStore) {
+        metrics = new OperationMetrics();
+        historyLimits = HistoryLimits.DEFAULT;
+        recentSnippets = Collections.emptyList();
+        nextId = 1;
+        lock = new ReentrantReadWriteLock();
+        tiering = new CodeTiering(this::getAllSnippets);
+    }
+
+    // Selects the constructor for a subclass without a store
+    protected enum NoStore { INSTANCE }
+
+    // Loads the library from the journal in dataDirectory and records every later change there
+    public SnippetManager(Path dataDirectory) throws IOException {
+        this(dataDirectory, true);
+    }
+
+    SnippetManager(Path dataDirectory, boolean tiered) throws IOException {
+        this(tiered, true);
+        journal = new CommandJournal(dataDirectory, this::getAllSnippets, () -> nextId);
+        for (CodeSnippet snippet : journal.getRecoveredSnippets()) {
+            snippets.put(snippet);
+        }
+        published();
+        nextId = journal.getHighestId() + 1;
+        // The first query or this thread, whichever comes first, builds the code indexes
+        Thread warmUp = new Thread(() -> withReadLock(() -> {
+            codeIndexes.build();
+            return null;
+        }), "snippet-index-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (tiering != null) {
+            tiering.close();
+        }
+        if (defaultSession != null) {
+            defaultSession.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // A separate undo and redo history over this library
+    public SnippetSession openSession() {
+        return new SnippetSession(this);
+    }
+
+    // Applies to every session from its next change on
+    public void setHistoryLimits(HistoryLimits limits) {
+        historyLimits = Objects.requireNonNull(limits);
+    }
+
+    public HistoryLimits getHistoryLimits() {
+        return historyLimits;
+    }
+
+    // A new session's history over the store
+    UndoHistory newHistory() {
+        if (snippets == null) throw new IllegalStateException(getClass().getSimpleName() + " must override newHistory");
+        return new UndoHistory(snippets);
+    }
+
+    void closeSession(SnippetSession session) {
+        lock.writeLock().lock();
+        try {
+            session.history.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Assigns the snippet its id and returns it
+    public long addSnippet(CodeSnippet snippet) {
+        return addSnippet(defaultSession, snippet);
+    }
+
+    public List<Long> addAll(Collection<CodeSnippet> batch) {
+        return addAll(defaultSession, batch);
+    }
+
+    // Stores a new version of the snippet with the content of draft
+    public void editSnippet(long id, CodeSnippet draft) {
+        editSnippet(defaultSession, id, draft);
+    }
+
+    public void deleteSnippet(long id) {
+        deleteSnippet(defaultSession, id);
+    }
+
+    public boolean undo() {
+        return undo(defaultSession);
+    }
+
+    public boolean redo() {
+        return redo(defaultSession);
+    }
+
+    long addSnippet(SnippetSession session, CodeSnippet snippet) {
+        return addSnippet(session, snippet, 0);
+    }
+
+    // Stores the snippet under id, or under the next free id when id is 0; ShardedSnippetManager hands out its own
+    long addSnippet(SnippetSession session, CodeSnippet snippet, long id) {
+        long start = System.nanoTime();
+        int added = -1;
+        lock.writeLock().lock();
+        try {
+            snippet = snippet.withId(reserve(id));
+            reportDuplicates(snippet);
+            run(session, Operation.ADD, new AddSnippetCommand(snippets, snippet));
+            addToRecent(Collections.singletonList(snippet.getId()));
+            added = 1;
+            return snippet.getId();
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.ADD, start, added);
+        }
+    }
+
+    /*
+     * Adds the snippets as one undoable step and one journal record, updating every index
+     * once for the whole batch. Duplicate warnings are not raised for batches; use
+     * findDuplicateClusters afterwards. Returns the assigned ids in order.
+     */
+    List<Long> addAll(SnippetSession session, Collection<CodeSnippet> batch) {
+        return addAll(session, batch, null);
+    }
+
+    // Like addAll, storing the i-th snippet under ids[i] unless ids is null
+    List<Long> addAll(SnippetSession session, Collection<CodeSnippet> batch, long[] ids) {
+        long start = System.nanoTime();
+        int added = -1;
+        lock.writeLock().lock();
+        try {
+            List<CodeSnippet> stored = new ArrayList<>(batch.size());
+            List<Long> assigned = new ArrayList<>(batch.size());
+            for (CodeSnippet snippet : batch) {
+                CodeSnippet withId = snippet.withId(reserve(ids == null ? 0 : ids[stored.size()]));
+                stored.add(withId);
+                assigned.add(withId.getId());
+            }
+            if (!stored.isEmpty()) {
+                run(session, Operation.ADD, new AddSnippetsCommand(snippets, stored));
+                addToRecent(assigned.subList(Math.max(assigned.size() - MAX_RECENT_SNIPPETS, 0), assigned.size()));
+            }
+            added = stored.size();
+            return assigned;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.ADD, start, added);
+        }
+    }
+
+    /*
+     * Adds the batch like addAll on the default session, but folds it into step while that is
+     * still the session's latest undo step, so an import of many batches undoes in one go.
+     * Each batch is still its own journal record. Returns the step now holding the batch, to
+     * pass along with the next one; null starts a new step.
+     */
+    ImportStep addAllToStep(Collection<CodeSnippet> batch, ImportStep step) {
+        AddSnippetsCommand previous = step == null ? null : step.parts[0];
+        AddSnippetsCommand part = addAllToStep(defaultSession, batch, null, previous);
+        if (part == null || part == previous) return step;
+        ImportStep started = new ImportStep(1);
+        started.shards = new int[] {0};
+        started.parts[0] = part;
+        return started;
+    }
+
+    // Like addAllToStep on session, storing the i-th snippet under ids[i] unless ids is null
+    AddSnippetsCommand addAllToStep(SnippetSession session, Collection<CodeSnippet> batch, long[] ids,
+            AddSnippetsCommand step) {
+        long start = System.nanoTime();
+        int added = -1;
+        lock.writeLock().lock();
+        try {
+            List<CodeSnippet> stored = new ArrayList<>(batch.size());
+            List<Long> assigned = new ArrayList<>(batch.size());
+            for (CodeSnippet snippet : batch) {
+                CodeSnippet withId = snippet.withId(reserve(ids == null ? 0 : ids[stored.size()]));
+                stored.add(withId);
+                assigned.add(withId.getId());
+            }
+            added = 0;
+            if (stored.isEmpty()) return step;
+            AddSnippetsCommand part = new AddSnippetsCommand(snippets, stored);
+            if (step != null && session.history.peekUndo() == step) {
+                execute(Operation.ADD, part);
+                step.append(part);
+                session.history.resizeNewest(historyLimits);
+            } else {
+                run(session, Operation.ADD, part);
+                step = part;
+            }
+            addToRecent(assigned.subList(Math.max(assigned.size() - MAX_RECENT_SNIPPETS, 0), assigned.size()));
+            added = stored.size();
+            return step;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.ADD, start, added);
+        }
+    }
+
+    // Whether the snippet existed and was changed
+    boolean editSnippet(SnippetSession session, long id, CodeSnippet draft) {
+        long start = System.nanoTime();
+        int edited = -1;
+        lock.writeLock().lock();
+        try {
+            CodeSnippet oldSnippet = snippets.get(id);
+            edited = 0;
+            if (oldSnippet != null) {
+                CodeSnippet newSnippet = oldSnippet.withContentOf(draft);
+                reportDuplicates(newSnippet);
+                run(session, Operation.EDIT, new EditSnippetCommand(snippets, oldSnippet, newSnippet));
+                addToRecent(Collections.singletonList(id));
+                edited = 1;
+            }
+            return edited == 1;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.EDIT, start, edited);
+        }
+    }
+
+    boolean deleteSnippet(SnippetSession session, long id) {
+        long start = System.nanoTime();
+        int deleted = -1;
+        lock.writeLock().lock();
+        try {
+            CodeSnippet snippet = snippets.get(id);
+            deleted = 0;
+            if (snippet != null) {
+                run(session, Operation.DELETE, new DeleteSnippetCommand(snippets, snippet));
+                deleted = 1;
+            }
+            return deleted == 1;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.DELETE, start, deleted);
+        }
+    }
+
+    /*
+     * Reverts the session's last change. Returns false when there is nothing to undo, or
+     * when another session has since changed the same snippets; that step is then dropped
+     * from the history rather than overwriting the other session's work.
+     */
+    boolean undo(SnippetSession session) {
+        long start = System.nanoTime();
+        int undone = -1;
+        lock.writeLock().lock();
+        try {
+            Command command = session.history.pollUndo();
+            undone = 0;
+            if (command == null || !command.canUndo()) return false;
+            CommandEvent event = new CommandEvent();
+            event.begin();
+            command.undo();
+            published();
+            record(CommandJournal.ORIGIN_UNDO, command, true);
+            event.finish(Operation.UNDO, command);
+            session.history.pushRedo(command, historyLimits);
+            undone = 1;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.UNDO, start, undone);
+        }
+    }
+
+    boolean redo(SnippetSession session) {
+        long start = System.nanoTime();
+        int redone = -1;
+        lock.writeLock().lock();
+        try {
+            Command command = session.history.pollRedo();
+            redone = 0;
+            if (command == null || !command.canRedo()) return false;
+            CommandEvent event = new CommandEvent();
+            event.begin();
+            command.execute();
+            published();
+            record(CommandJournal.ORIGIN_REDO, command, false);
+            event.finish(Operation.REDO, command);
+            session.history.pushUndo(command, historyLimits);
+            redone = 1;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            metrics.record(Operation.REDO, start, redone);
+        }
+    }
+
+    // Forgets the session's newest undo or redo step without applying it; ShardedSnippetManager
+    // drops the parts of a step that could not be undone or redone in every shard
+    void dropUndo(SnippetSession session) {
+        lock.writeLock().lock();
+        try {
+            session.history.pollUndo();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void dropRedo(SnippetSession session) {
+        lock.writeLock().lock();
+        try {
+            session.history.pollRedo();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called under the write lock
+    private long reserve(long id) {
+        long reserved = id == 0 ? nextId : id;
+        nextId = Math.max(nextId, reserved + 1);
+        return reserved;
+    }
+
+    // The id the next added snippet gets; one past the highest ever used
+    long getNextId() {
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void run(SnippetSession session, Operation operation, Command command) {
+        execute(operation, command);
+        session.history.pushExecuted(command, historyLimits);
+    }
+
+    private void execute(Operation operation, Command command) {
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        command.execute();
+        // Published before journaling: a compaction triggered by the append snapshots the library
+        published();
+        record(CommandJournal.ORIGIN_EXECUTE, command, false);
+        event.finish(operation, command);
+    }
+
+    // Called once per change, after the command has run, to make it visible to lock-free readers
+    private void published() {
+        sortIndex.publish();
+        version++;
+    }
+
+    // Changes with every modification of the library, so it can serve as an ETag
+    public long getVersion() {
+        return version;
+    }
+
+    public CodeSnippet getSnippet(long id) {
+        return snippets.get(id);
+    }
+
+    public int size() {
+        return snippets.size();
+    }
+
+    // Immutable list of every snippet in id order, published after each change without copying the library
+    public List<CodeSnippet> getAllSnippets() {
+        return sortIndex.all();
+    }
+
+    // One page of the library in id order; pass the previous page's cursor to continue
+    public SnippetPage getPage(SnippetPage.Cursor after, int limit) {
+        return sortIndex.page(after, limit);
+    }
+
+    // Immutable list of every snippet ordered by key, published after each change without copying the library
+    public List<CodeSnippet> getSortedSnippets(SortKey key, boolean descending) {
+        return sortIndex.sorted(key, descending);
+    }
+
+    // One page of the library ordered by key; pass the previous page's cursor to continue
+    public SnippetPage getSortedPage(SortKey key, boolean descending, SnippetPage.Cursor after, int limit) {
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            SnippetPage page = sortIndex.page(key, descending, after, limit);
+            found = page.getSnippets().size();
+            return page;
+        } finally {
+            metrics.record(Operation.SORT, start, found);
+        }
+    }
+
+    public List<CodeSnippet> searchSnippets(String query) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = -1;
+        lock.readLock().lock();
+        try {
+            List<CodeSnippet> results = codeIndexes.search().search(query);
+            found = results.size();
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            searched(event, Operation.SEARCH, query, start, found);
+        }
+    }
+
+    // One page of searchSnippets(query); pass the previous page's cursor to continue
+    public SnippetPage searchPage(String query, SnippetPage.Cursor after, int limit) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = -1;
+        lock.readLock().lock();
+        try {
+            SnippetPage page = codeIndexes.search().page(query, after, limit);
+            found = page.getSnippets().size();
+            return page;
+        } finally {
+            lock.readLock().unlock();
+            searched(event, Operation.SEARCH, query, start, found);
+        }
+    }
+
+    // Best matches for a query such as 'lang:java tag:sorting title:"binary search"'; throws
+    // IllegalArgumentException if the query cannot be parsed
+    public List<SearchHit> rankedSearch(String query, int limit) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = -1;
+        try {
+            SnippetQuery parsed = SnippetQuery.parse(query);
+            lock.readLock().lock();
+            try {
+                List<SearchHit> hits = codeIndexes.ranked().search(parsed, limit);
+                found = hits.size();
+                return hits;
+            } finally {
+                lock.readLock().unlock();
+            }
+        } finally {
+            searched(event, Operation.RANKED_SEARCH, query, start, found);
+        }
+    }
+
+    // Snippets whose title words or tags match every query word despite small typos
+    public List<CodeSnippet> fuzzySearch(String query, int limit) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = -1;
+        lock.readLock().lock();
+        try {
+            List<CodeSnippet> results = fuzzyIndex.search(query, limit);
+            found = results.size();
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            searched(event, Operation.FUZZY_SEARCH, query, start, found);
+        }
+    }
+
+    // Snippets whose code declares a class, function or method of this name, ignoring case.
+    // Java, Python, JavaScript and TypeScript snippets are indexed
+    public List<CodeSnippet> findDefinitions(String name) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = -1;
+        lock.readLock().lock();
+        try {
+            List<CodeSnippet> results = codeIndexes.symbols().definitions(name);
+            found = results.size();
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            searched(event, Operation.DEFINITION_SEARCH, name, start, found);
+        }
+    }
+
+    // Existing tags closest to a possibly misspelled one
+    public List<String> suggestTags(String tag, int limit) {
+        lock.readLock().lock();
+        try {
+            return fuzzyIndex.suggestTags(tag, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called from addSnippet and editSnippet with the stored snippets the new code nearly duplicates
+    public void setDuplicateListener(BiConsumer<CodeSnippet, List<DuplicateMatch>> listener) {
+        this.duplicateListener = listener;
+    }
+
+    // Estimated Jaccard similarity of code bodies above which snippets count as duplicates
+    public void setDuplicateThreshold(double threshold) {
+        lock.writeLock().lock();
+        try {
+            codeIndexes.duplicates().setThreshold(threshold);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<DuplicateMatch> findDuplicates(CodeSnippet snippet) {
+        lock.readLock().lock();
+        try {
+            return codeIndexes.duplicates().probe(snippet);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<List<CodeSnippet>> findDuplicateClusters() {
+        lock.readLock().lock();
+        try {
+            return codeIndexes.duplicates().clusters();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Current version of each recently added or edited snippet that still exists
+    public List<CodeSnippet> getRecentSnippets() {
+        List<CodeSnippet> recent = new ArrayList<>();
+        for (long id : recentSnippets) {
+            CodeSnippet snippet = getSnippet(id);
+            if (snippet != null) {
+                recent.add(snippet);
+            }
+        }
+        return recent;
+    }
+
+    public Map<String, Integer> getLanguageStats() {
+        return toIntCounts(getStatistics().getLanguageCounts());
+    }
+
+    public Map<String, Integer> getTagStats() {
+        return toIntCounts(getStatistics().getTagCounts());
+    }
+
+    // Kept up to date by the store on every add, edit, delete, undo and redo
+    public SnippetStatistics getStatistics() {
+        return statistics;
+    }
+
+    // Latency and result sizes of every operation since the manager was created
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    // How code bodies are held: plain, deflated or still in the snapshot file
+    public CodeTiering getCodeTiering() {
+        return tiering;
+    }
+
+    // Runs query under the read lock; ShardedSnippetManager nests these to read several shards' indexes together
+    <T> T withReadLock(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only to be read through withReadLock
+    DuplicateIndex getDuplicateIndex() {
+        return codeIndexes.duplicates();
+    }
+
+    private void reportDuplicates(CodeSnippet snippet) {
+        if (duplicateListener != null) {
+            List<DuplicateMatch> matches = codeIndexes.duplicates().probeBeforeAdd(snippet);
+            if (!matches.isEmpty()) {
+                duplicateListener.accept(snippet, matches);
+            }
+        }
+    }
+
+    private void searched(SearchEvent event, Operation operation, String query, long start, int found) {
+        metrics.record(operation, start, found);
+        event.finish(operation, query, found);
+    }
+
+    private void record(byte origin, Command command, boolean undo) {
+        if (journal != null) {
+            journal.append(origin, command, undo);
+        }
+    }
+
+    private static Map<String, Integer> toIntCounts(Map<String, Long> counts) {
+        Map<String, Integer> result = new HashMap<>();
+        counts.forEach((key, count) -> result.put(key, Math.toIntExact(count)));
+        return result;
+    }
+
+    // Publishes a new recent list; the last of the added snippets becomes the most recent.
+    // Callers serialize it: the write lock here, a lock of its own in ShardedSnippetManager
+    void addToRecent(List<Long> added) {
+        Deque<Long> recent = new ArrayDeque<>(recentSnippets);
+        for (Long id : added) {
+            recent.remove(id); // Remove if already exists
+            recent.addFirst(id); // Add to beginning
+            if (recent.size() > MAX_RECENT_SNIPPETS) {
+                recent.removeLast();
+            }
+        }
+        recentSnippets = Collections.unmodifiableList(new ArrayList<>(recent));
+    }
+}
\ No newline at end of file
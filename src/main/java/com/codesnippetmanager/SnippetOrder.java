@@ -0,0 +1,240 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * The snippets kept in one order, in chunks of at most MAX_CHUNK. Changes go to a working
+ * copy while the write lock is held, and publish() hands out an immutable list sharing
+ * every chunk with it; the next change to a shared chunk copies that chunk first. A change
+ * costs O(log n + MAX_CHUNK), appending at the end O(1), and a publish O(n / MAX_CHUNK) for
+ * the chunk table. Published lists answer get(i) in O(log(n / MAX_CHUNK)) and may be read
+ * from any thread without a lock.
+ */
+final class SnippetOrder {
+    private static final int MAX_CHUNK = 512;
+
+    private final Comparator<CodeSnippet> comparator;
+    private final List<Chunk> chunks;
+    private boolean changed;
+    private volatile Published published;
+
+    SnippetOrder(Comparator<CodeSnippet> comparator) {
+        this.comparator = comparator;
+        chunks = new ArrayList<>();
+        published = new Published(comparator, new CodeSnippet[0][], new int[] {0});
+    }
+
+    void add(CodeSnippet snippet) {
+        changed = true;
+        if (chunks.isEmpty()) {
+            chunks.add(new Chunk());
+        }
+        int c = chunkFor(snippet);
+        Chunk chunk = writable(c);
+        int pos = Arrays.binarySearch(chunk.items, 0, chunk.size, snippet, comparator);
+        if (pos >= 0) throw new IllegalStateException("Snippet " + snippet.getId() + " is already in the order");
+        pos = -pos - 1;
+        System.arraycopy(chunk.items, pos, chunk.items, pos + 1, chunk.size - pos);
+        chunk.items[pos] = snippet;
+        chunk.size++;
+        if (chunk.size > MAX_CHUNK) {
+            chunks.add(c + 1, chunk.split());
+        }
+    }
+
+    void remove(CodeSnippet snippet) {
+        if (chunks.isEmpty()) return;
+        int c = chunkFor(snippet);
+        int pos = Arrays.binarySearch(chunks.get(c).items, 0, chunks.get(c).size, snippet, comparator);
+        if (pos < 0) return;
+        changed = true;
+        Chunk chunk = writable(c);
+        System.arraycopy(chunk.items, pos + 1, chunk.items, pos, chunk.size - pos - 1);
+        chunk.items[--chunk.size] = null;
+        if (chunk.size == 0) {
+            chunks.remove(c);
+        }
+    }
+
+    // Makes the changes since the last publish visible to readers
+    void publish() {
+        if (!changed) return;
+        CodeSnippet[][] table = new CodeSnippet[chunks.size()][];
+        int[] offsets = new int[chunks.size() + 1];
+        for (int c = 0; c < table.length; c++) {
+            Chunk chunk = chunks.get(c);
+            chunk.shared = true;
+            table[c] = chunk.items;
+            offsets[c + 1] = offsets[c] + chunk.size;
+        }
+        published = new Published(comparator, table, offsets);
+        changed = false;
+    }
+
+    // The order as of the last publish
+    Published published() {
+        return published;
+    }
+
+    // The last chunk, or the first whose last snippet does not sort before snippet
+    private int chunkFor(CodeSnippet snippet) {
+        int low = 0, high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Chunk chunk = chunks.get(mid);
+            if (comparator.compare(chunk.items[chunk.size - 1], snippet) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Chunk writable(int c) {
+        Chunk chunk = chunks.get(c);
+        if (!chunk.shared) return chunk;
+        Chunk copy = new Chunk(Arrays.copyOf(chunk.items, MAX_CHUNK + 1), chunk.size);
+        chunks.set(c, copy);
+        return copy;
+    }
+
+    // One slot over MAX_CHUNK, so an insert can land before the chunk is split
+    private static final class Chunk {
+        final CodeSnippet[] items;
+        int size;
+        // Part of a published list, so never changed in place again
+        boolean shared;
+
+        Chunk() {
+            this(new CodeSnippet[MAX_CHUNK + 1], 0);
+        }
+
+        Chunk(CodeSnippet[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        // Moves the upper half into a new chunk
+        Chunk split() {
+            Chunk upper = new Chunk();
+            int keep = size / 2;
+            upper.size = size - keep;
+            System.arraycopy(items, keep, upper.items, 0, upper.size);
+            Arrays.fill(items, keep, size, null);
+            size = keep;
+            return upper;
+        }
+    }
+
+    // An immutable list of the snippets in order
+    static final class Published extends AbstractList<CodeSnippet> implements RandomAccess {
+        private final Comparator<CodeSnippet> comparator;
+        private final CodeSnippet[][] chunks;
+        // offsets[c] is the index of chunk c's first snippet; the last entry is the size
+        private final int[] offsets;
+
+        Published(Comparator<CodeSnippet> comparator, CodeSnippet[][] chunks, int[] offsets) {
+            this.comparator = comparator;
+            this.chunks = chunks;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public int size() {
+            return offsets[chunks.length];
+        }
+
+        @Override
+        public CodeSnippet get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+            int c = Arrays.binarySearch(offsets, 0, chunks.length, index);
+            if (c < 0) c = -c - 2;
+            return chunks[c][index - offsets[c]];
+        }
+
+        @Override
+        public Iterator<CodeSnippet> iterator() {
+            return new Iterator<CodeSnippet>() {
+                private int chunk;
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return chunk < chunks.length;
+                }
+
+                @Override
+                public CodeSnippet next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    CodeSnippet snippet = chunks[chunk][index++];
+                    if (offsets[chunk] + index == offsets[chunk + 1]) {
+                        chunk++;
+                        index = 0;
+                    }
+                    return snippet;
+                }
+            };
+        }
+
+        // A view of the list back to front
+        List<CodeSnippet> descending() {
+            return new Descending();
+        }
+
+        /*
+         * Up to limit snippets after the cursor, or from the start when after is null;
+         * descending reads the order backwards. Costs O(log n + limit) and copies only the page.
+         */
+        SnippetPage page(boolean descending, CodeSnippet after, int limit) {
+            int size = size();
+            List<CodeSnippet> snippets;
+            boolean hasMore;
+            if (!descending) {
+                int from = after == null ? 0 : bound(after, true);
+                int to = (int) Math.min((long) from + limit, size);
+                snippets = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    snippets.add(get(i));
+                }
+                hasMore = to < size;
+            } else {
+                int from = after == null ? size : bound(after, false);
+                int to = (int) Math.max((long) from - limit, 0);
+                snippets = new ArrayList<>(from - to);
+                for (int i = from - 1; i >= to; i--) {
+                    snippets.add(get(i));
+                }
+                hasMore = to > 0;
+            }
+            return new SnippetPage(snippets, hasMore);
+        }
+
+        // The first index whose snippet sorts after key, or with strict unset, not before it
+        private int bound(CodeSnippet key, boolean strict) {
+            int low = 0, high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int order = comparator.compare(get(mid), key);
+                if (order < 0 || strict && order == 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private final class Descending extends AbstractList<CodeSnippet> implements RandomAccess {
+            @Override
+            public int size() {
+                return Published.this.size();
+            }
+
+            @Override
+            public CodeSnippet get(int index) {
+                return Published.this.get(size() - 1 - index);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+public class SnippetPage {
+    private final List<CodeSnippet> snippets;
+    private final Cursor next;
+
+    public SnippetPage(List<CodeSnippet> snippets, boolean hasMore) {
+        this.snippets = Collections.unmodifiableList(snippets);
+        this.next = hasMore && !snippets.isEmpty() ? new Cursor(snippets.get(snippets.size() - 1)) : null;
+    }
+
+    public List<CodeSnippet> getSnippets() { return snippets; }
+    public boolean hasMore() { return next != null; }
+
+    // Pass to the next page request; null once the last page has been returned
+    public Cursor getNextCursor() { return next; }
+
+    // Opaque position in a sorted listing. It remembers the sort key values of the last
+    // snippet returned, so later edits to that snippet do not move the cursor.
+    public static final class Cursor {
+        private final CodeSnippet last;
+
+        private Cursor(CodeSnippet last) {
+            this.last = last;
+        }
+
+        CodeSnippet getLast() { return last; }
+
+        // URL-safe token carrying the sort key values, for clients that page over HTTP
+        public String encode() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeLong(last.getId());
+                SnippetCodec.writeString(out, last.getTitle());
+                SnippetCodec.writeString(out, last.getLanguage());
+                out.writeLong(last.getCreatedAtMillis());
+                out.writeLong(last.getLastModifiedMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+        }
+
+        // Throws IllegalArgumentException for a token that encode() did not produce
+        public static Cursor decode(String token) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+                long id = in.readLong();
+                String title = readString(in);
+                String language = readString(in);
+                long createdAt = in.readLong();
+                long lastModified = in.readLong();
+                // Only the fields SortKey compares on matter
+                return new Cursor(new CodeSnippet(id, title, "", "", language, Collections.emptySet(),
+                    createdAt, lastModified));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+
+        // Tokens come from clients, so a length is checked against what is left before allocating
+        private static String readString(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) throw new IOException("Corrupt cursor");
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Parsed form of a ranked search query.
+ *
+ *   binary search            both words, anywhere (AND is implied)
+ *   sort OR order            either word
+ *   list -python, NOT tag:x  exclude matches
+ *   lang:java tag:sorting    exact language / tag filters
+ *   title:"binary search"    phrase restricted to one field (title:, desc:, code:)
+ *   (a OR b) c               parentheses group
+ */
+public abstract class SnippetQuery {
+    public enum Field { ANY, TITLE, DESCRIPTION, CODE, TAG, LANGUAGE }
+
+    public static SnippetQuery parse(String query) {
+        Parser parser = new Parser(query);
+        SnippetQuery result = parser.parseOr();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in query");
+        }
+        return result;
+    }
+
+    // Matches a word or a quoted phrase, optionally restricted to one field
+    public static final class Term extends SnippetQuery {
+        private final Field field;
+        private final String text;
+        private final boolean phrase;
+
+        Term(Field field, String text, boolean phrase) {
+            this.field = field;
+            this.text = text;
+            this.phrase = phrase;
+        }
+
+        public Field getField() { return field; }
+        public String getText() { return text; }
+        public boolean isPhrase() { return phrase; }
+    }
+
+    public static final class And extends SnippetQuery {
+        private final List<SnippetQuery> clauses;
+
+        And(List<SnippetQuery> clauses) {
+            this.clauses = clauses;
+        }
+
+        public List<SnippetQuery> getClauses() { return clauses; }
+    }
+
+    public static final class Or extends SnippetQuery {
+        private final List<SnippetQuery> clauses;
+
+        Or(List<SnippetQuery> clauses) {
+            this.clauses = clauses;
+        }
+
+        public List<SnippetQuery> getClauses() { return clauses; }
+    }
+
+    public static final class Not extends SnippetQuery {
+        private final SnippetQuery clause;
+
+        Not(SnippetQuery clause) {
+            this.clause = clause;
+        }
+
+        public SnippetQuery getClause() { return clause; }
+    }
+
+    private static final class Parser {
+        private final List<String> tokens;
+        private int pos;
+
+        Parser(String query) {
+            tokens = lex(query);
+        }
+
+        String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+
+        SnippetQuery parseOr() {
+            List<SnippetQuery> clauses = new ArrayList<>();
+            clauses.add(parseAnd());
+            while ("OR".equals(peek())) {
+                pos++;
+                clauses.add(parseAnd());
+            }
+            return clauses.size() == 1 ? clauses.get(0) : new Or(clauses);
+        }
+
+        SnippetQuery parseAnd() {
+            List<SnippetQuery> clauses = new ArrayList<>();
+            clauses.add(parseUnary());
+            while (peek() != null && !")".equals(peek()) && !"OR".equals(peek())) {
+                if ("AND".equals(peek())) pos++;
+                clauses.add(parseUnary());
+            }
+            return clauses.size() == 1 ? clauses.get(0) : new And(clauses);
+        }
+
+        SnippetQuery parseUnary() {
+            String token = peek();
+            if ("NOT".equals(token) || "-".equals(token)) {
+                pos++;
+                return new Not(parseUnary());
+            }
+            return parsePrimary();
+        }
+
+        SnippetQuery parsePrimary() {
+            String token = peek();
+            if (token == null) throw new IllegalArgumentException("Query ended unexpectedly");
+            pos++;
+            if ("(".equals(token)) {
+                SnippetQuery inner = parseOr();
+                if (!")".equals(peek())) throw new IllegalArgumentException("Missing ')' in query");
+                pos++;
+                return inner;
+            }
+            if (")".equals(token)) throw new IllegalArgumentException("Unexpected ')' in query");
+
+            Field field = Field.ANY;
+            int colon = token.indexOf(':');
+            if (colon > 0 && !token.startsWith("\"")) {
+                Field named = fieldNamed(token.substring(0, colon));
+                if (named != null) {
+                    field = named;
+                    token = token.substring(colon + 1);
+                }
+            }
+            boolean phrase = token.startsWith("\"");
+            String text = phrase ? token.substring(1) : token;
+            if (text.isEmpty()) throw new IllegalArgumentException("Missing search term in query");
+            return new Term(field, text, phrase);
+        }
+
+        private static Field fieldNamed(String name) {
+            switch (name.toLowerCase()) {
+                case "title": return Field.TITLE;
+                case "desc":
+                case "description": return Field.DESCRIPTION;
+                case "code": return Field.CODE;
+                case "tag":
+                case "tags": return Field.TAG;
+                case "lang":
+                case "language": return Field.LANGUAGE;
+                default: return null;
+            }
+        }
+
+        // Phrases come back with their opening quote so they are never taken for operators
+        private static List<String> lex(String query) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < query.length()) {
+                char c = query.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (c == '-' && isBoundary(query, i) && i + 1 < query.length()
+                        && !Character.isWhitespace(query.charAt(i + 1))) {
+                    tokens.add("-");
+                    i++;
+                } else {
+                    StringBuilder token = new StringBuilder();
+                    while (i < query.length()) {
+                        c = query.charAt(i);
+                        if (c == '"') {
+                            int end = query.indexOf('"', i + 1);
+                            if (end < 0) end = query.length();
+                            token.append('"').append(query, i + 1, end);
+                            i = Math.min(end + 1, query.length());
+                            break;
+                        }
+                        if (Character.isWhitespace(c) || c == '(' || c == ')') break;
+                        token.append(c);
+                        i++;
+                    }
+                    tokens.add(token.toString());
+                }
+            }
+            return tokens;
+        }
+
+        private static boolean isBoundary(String query, int i) {
+            return i == 0 || Character.isWhitespace(query.charAt(i - 1)) || query.charAt(i - 1) == '(';
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.codesnippetmanager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/*
+ * Text rendering of snippets for the terminal and for exported files. Both forms append
+ * straight to the destination, so a long code body is copied once into the output buffer
+ * rather than into intermediate strings.
+ */
+public final class SnippetRenderer {
+    private static final int PREVIEW_LENGTH = 60;
+
+    private SnippetRenderer() {}
+
+    // One line: id, title, language, tags and the start of the first non-blank code line
+    public static void writeSummary(Appendable out, CodeSnippet snippet) throws IOException {
+        out.append("[").append(String.valueOf(snippet.getId())).append("] ").append(snippet.getTitle());
+        out.append(" (").append(snippet.getLanguage()).append(")");
+        if (snippet.getTagCount() > 0) {
+            out.append(" #").append(snippet.getTag(0));
+            for (int i = 1; i < snippet.getTagCount(); i++) {
+                out.append(" #").append(snippet.getTag(i));
+            }
+        }
+        String code = snippet.peekCode();
+        int start = 0;
+        while (start < code.length() && Character.isWhitespace(code.charAt(start))) start++;
+        int end = start;
+        while (end < code.length() && end - start < PREVIEW_LENGTH && code.charAt(end) != '\n' && code.charAt(end) != '\r') end++;
+        if (end > start) {
+            out.append(" - ").append(code, start, end);
+            if (end < code.length() && code.charAt(end) != '\n' && code.charAt(end) != '\r') out.append("...");
+        }
+    }
+
+    // Every field and the whole code body, in the same layout as CodeSnippet.toString
+    public static void writeFull(Appendable out, CodeSnippet snippet) throws IOException {
+        out.append("ID: ").append(String.valueOf(snippet.getId()));
+        out.append("\nTitle: ").append(snippet.getTitle());
+        out.append("\nLanguage: ").append(snippet.getLanguage());
+        out.append("\nTags: ");
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            if (i > 0) out.append(", ");
+            out.append(snippet.getTag(i));
+        }
+        out.append("\nCreated: ").append(String.valueOf(snippet.getCreatedAt()));
+        out.append("\nLast Modified: ").append(String.valueOf(snippet.getLastModified()));
+        out.append("\n\nDescription:\n").append(snippet.getDescription());
+        out.append("\n\nCode:\n").append(snippet.getCode());
+    }
+
+    static String toString(CodeSnippet snippet) {
+        StringBuilder text = new StringBuilder(snippet.getCodeLength() + 256);
+        try {
+            writeFull(text, snippet);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+}
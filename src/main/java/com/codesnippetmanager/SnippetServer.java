@@ -0,0 +1,516 @@
+package com.codesnippetmanager;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * JSON over HTTP front end for a shared SnippetManager, on the JDK's built-in server.
+ *
+ *   GET    /snippets[?sort=title&desc=true&limit=50&after=CURSOR]   list, streamed
+ *   GET    /snippets/{id}
+ *   POST   /snippets          {"title", "description", "code", "language", "tags": []}
+ *   PUT    /snippets/{id}     same body; replaces the content
+ *   DELETE /snippets/{id}
+ *   GET    /search?q=...[&mode=ranked|substring|fuzzy|definition&limit=10]
+ *   GET    /stats
+ *   GET    /metrics           operation latency and result-size histograms
+ *   GET    /metrics/code      heap held by code bodies, compression ratio and cache hit rate
+ *   GET    /export[?format=jsonl|jsonl.gz|zip&q=...]   whole library or substring search, streamed
+ *   POST   /undo, /redo
+ *
+ * GET responses carry the library version as an ETag and answer If-None-Match with 304.
+ * Undo and redo apply to the session named by the X-Session header, so each client only
+ * reverts its own changes. A paged listing returns the cursor for the next page in the
+ * X-Next-Cursor header.
+ */
+public class SnippetServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_SESSIONS = 1024;
+    private static final int MAX_BODY = 4 * 1024 * 1024;
+    private static final String SESSION_HEADER = "X-Session";
+
+    private final SnippetManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, SnippetSession> sessions;
+    private final SnippetArchive archive;
+
+    public SnippetServer(SnippetManager manager, InetSocketAddress address) throws IOException {
+        this.manager = manager;
+        archive = new SnippetArchive(manager);
+        server = HttpServer.create(address, 0);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        // Least recently used sessions are forgotten, along with their undo history
+        sessions = Collections.synchronizedMap(new LinkedHashMap<String, SnippetSession>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SnippetSession> eldest) {
+                if (size() <= MAX_SESSIONS) return false;
+                eldest.getValue().close();
+                return true;
+            }
+        });
+        server.createContext("/snippets", exchange -> handle(exchange, this::snippets));
+        server.createContext("/search", exchange -> handle(exchange, this::search));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/metrics/code", exchange -> handle(exchange, this::codeMetrics));
+        server.createContext("/export", exchange -> handle(exchange, this::export));
+        server.createContext("/undo", exchange -> handle(exchange, this::undo));
+        server.createContext("/redo", exchange -> handle(exchange, this::redo));
+    }
+
+    // A virtual thread per request where the runtime supports it, otherwise a cached pool
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "snippet-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    // Reported to the client with the given status and message
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            handler.handle(exchange);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ":");
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void snippets(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.substring("/snippets".length());
+        String method = exchange.getRequestMethod();
+        if (rest.isEmpty() || rest.equals("/")) {
+            if (method.equals("GET")) {
+                list(exchange);
+            } else if (method.equals("POST")) {
+                long id = session(exchange).addSnippet(readSnippet(exchange));
+                send(exchange, 201, "{\"id\":" + id + "}");
+            } else {
+                throw new HttpError(405, "Method not allowed");
+            }
+            return;
+        }
+
+        if (!rest.startsWith("/")) throw new HttpError(404, "Not found");
+        long id = parseId(rest.substring(1));
+        switch (method) {
+            case "GET": {
+                if (notModified(exchange)) return;
+                CodeSnippet snippet = find(id);
+                StringBuilder json = new StringBuilder();
+                writeSnippet(json, snippet);
+                send(exchange, 200, json.toString());
+                break;
+            }
+            case "PUT": {
+                find(id);
+                session(exchange).editSnippet(id, readSnippet(exchange));
+                StringBuilder json = new StringBuilder();
+                writeSnippet(json, find(id));
+                send(exchange, 200, json.toString());
+                break;
+            }
+            case "DELETE":
+                find(id);
+                session(exchange).deleteSnippet(id);
+                exchange.sendResponseHeaders(204, -1);
+                break;
+            default:
+                throw new HttpError(405, "Method not allowed");
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        if (notModified(exchange)) return;
+        Map<String, String> params = params(exchange);
+        String sort = params.get("sort");
+        if (sort == null && !params.containsKey("limit")) {
+            streamSnippets(exchange, manager.getAllSnippets());
+            return;
+        }
+
+        SortKey key = sortKey(sort == null ? "title" : sort);
+        boolean descending = Boolean.parseBoolean(params.get("desc"));
+        SnippetPage.Cursor after = params.containsKey("after") ? SnippetPage.Cursor.decode(params.get("after")) : null;
+        if (!params.containsKey("limit")) {
+            // Whole library in sorted order, a page at a time so no lock is held while writing
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = writer(exchange)) {
+                out.write('[');
+                boolean first = true;
+                SnippetPage page;
+                do {
+                    page = manager.getSortedPage(key, descending, after, MAX_LIMIT);
+                    for (CodeSnippet snippet : page.getSnippets()) {
+                        if (!first) out.write(',');
+                        first = false;
+                        writeSnippet(out, snippet);
+                    }
+                    after = page.getNextCursor();
+                } while (after != null);
+                out.write(']');
+            }
+            return;
+        }
+
+        int limit = limit(params, DEFAULT_LIMIT);
+        SnippetPage page = manager.getSortedPage(key, descending, after, limit);
+        if (page.getNextCursor() != null) {
+            exchange.getResponseHeaders().set("X-Next-Cursor", page.getNextCursor().encode());
+        }
+        streamSnippets(exchange, page.getSnippets());
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        if (notModified(exchange)) return;
+        Map<String, String> params = params(exchange);
+        String query = params.get("q");
+        if (query == null) throw new HttpError(400, "Missing q parameter");
+        String mode = params.getOrDefault("mode", "ranked");
+        switch (mode) {
+            case "ranked": {
+                List<SearchHit> hits = manager.rankedSearch(query, limit(params, 10));
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                try (Writer out = writer(exchange)) {
+                    out.write('[');
+                    for (int i = 0; i < hits.size(); i++) {
+                        if (i > 0) out.write(',');
+                        out.write("{\"score\":" + hits.get(i).getScore() + ",\"snippet\":");
+                        writeSnippet(out, hits.get(i).getSnippet());
+                        out.write('}');
+                    }
+                    out.write(']');
+                }
+                break;
+            }
+            case "substring":
+                streamSnippets(exchange, manager.searchSnippets(query));
+                break;
+            case "fuzzy":
+                streamSnippets(exchange, manager.fuzzySearch(query, limit(params, 10)));
+                break;
+            case "definition":
+                streamSnippets(exchange, manager.findDefinitions(query));
+                break;
+            default:
+                throw new HttpError(400, "Unknown search mode: " + mode);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        if (notModified(exchange)) return;
+        SnippetStatistics statistics = manager.getStatistics();
+        StringBuilder json = new StringBuilder();
+        json.append("{\"snippets\":").append(statistics.getSnippetCount());
+        json.append(",\"averageCodeLength\":").append(statistics.getAverageCodeLength());
+        json.append(",\"languages\":");
+        writeCounts(json, statistics.getLanguageCounts());
+        json.append(",\"tags\":");
+        writeCounts(json, statistics.getTagCounts());
+        json.append(",\"codeSizes\":");
+        writeCounts(json, statistics.getCodeSizeHistogram());
+        json.append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    // No ETag: the figures change with every read as well as every write
+    private void metrics(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        StringBuilder json = new StringBuilder();
+        manager.getMetrics().writeJson(json);
+        send(exchange, 200, json.toString());
+    }
+
+    private void codeMetrics(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        StringBuilder json = new StringBuilder();
+        manager.getCodeTiering().writeJson(json);
+        send(exchange, 200, json.toString());
+    }
+
+    private void export(HttpExchange exchange) throws IOException {
+        requireGet(exchange);
+        if (notModified(exchange)) return;
+        Map<String, String> params = params(exchange);
+        SnippetArchive.Format format = SnippetArchive.Format.forExtension(params.getOrDefault("format", "jsonl"));
+        String query = params.get("q");
+        List<CodeSnippet> snippets = query == null ? manager.getAllSnippets() : manager.searchSnippets(query);
+        exchange.getResponseHeaders().set("Content-Type", format.contentType());
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"snippets." + format.extension() + "\"");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            archive.export(snippets, out, format);
+        }
+    }
+
+    private void undo(HttpExchange exchange) throws IOException {
+        requirePost(exchange);
+        send(exchange, 200, "{\"done\":" + session(exchange).undo() + "}");
+    }
+
+    private void redo(HttpExchange exchange) throws IOException {
+        requirePost(exchange);
+        send(exchange, 200, "{\"done\":" + session(exchange).redo() + "}");
+    }
+
+    private SnippetSession session(HttpExchange exchange) {
+        String name = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        return sessions.computeIfAbsent(name == null ? "" : name, k -> manager.openSession());
+    }
+
+    // Sets the ETag, and answers 304 when the client already has this version
+    private boolean notModified(HttpExchange exchange) throws IOException {
+        String etag = "\"" + manager.getVersion() + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (match != null && (match.equals(etag) || match.equals("*"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private CodeSnippet find(long id) {
+        CodeSnippet snippet = manager.getSnippet(id);
+        if (snippet == null) throw new HttpError(404, "No snippet with id " + id);
+        return snippet;
+    }
+
+    private CodeSnippet readSnippet(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY) throw new HttpError(413, "Request body too large");
+        Object parsed = Json.parse(new String(body, StandardCharsets.UTF_8));
+        if (!(parsed instanceof Map)) throw new HttpError(400, "Expected a JSON object");
+        Map<?, ?> fields = (Map<?, ?>) parsed;
+        Set<String> tags = new HashSet<>();
+        Object tagList = fields.get("tags");
+        if (tagList instanceof List) {
+            for (Object tag : (List<?>) tagList) {
+                if (!(tag instanceof String)) throw new HttpError(400, "Tags must be strings");
+                tags.add(((String) tag).trim());
+            }
+        } else if (tagList != null) {
+            throw new HttpError(400, "tags must be an array");
+        }
+        return new CodeSnippet(field(fields, "title", true), field(fields, "description", false),
+            field(fields, "code", true), field(fields, "language", true), tags);
+    }
+
+    private static String field(Map<?, ?> fields, String name, boolean required) {
+        Object value = fields.get(name);
+        if (value instanceof String) return (String) value;
+        if (value == null && !required) return "";
+        throw new HttpError(400, "Field " + name + " must be a string");
+    }
+
+    private static void writeSnippet(Appendable out, CodeSnippet snippet) throws IOException {
+        out.append("{\"id\":").append(String.valueOf(snippet.getId()));
+        out.append(",\"title\":");
+        Json.writeString(out, snippet.getTitle());
+        out.append(",\"description\":");
+        Json.writeString(out, snippet.getDescription());
+        out.append(",\"code\":");
+        Json.writeString(out, snippet.getCode());
+        out.append(",\"language\":");
+        Json.writeString(out, snippet.getLanguage());
+        out.append(",\"tags\":[");
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            if (i > 0) out.append(',');
+            Json.writeString(out, snippet.getTag(i));
+        }
+        out.append("],\"createdAt\":\"").append(Instant.ofEpochMilli(snippet.getCreatedAtMillis()).toString());
+        out.append("\",\"lastModified\":\"").append(Instant.ofEpochMilli(snippet.getLastModifiedMillis()).toString());
+        out.append("\"}");
+    }
+
+    private static void writeCounts(StringBuilder json, Map<String, Long> counts) throws IOException {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            Json.writeString(json, entry.getKey());
+            json.append(':').append(entry.getValue());
+        }
+        json.append('}');
+    }
+
+    // Chunked response, so large results are written as they are produced
+    private static void streamSnippets(HttpExchange exchange, List<CodeSnippet> snippets) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = writer(exchange)) {
+            out.write('[');
+            for (int i = 0; i < snippets.size(); i++) {
+                if (i > 0) out.write(',');
+                writeSnippet(out, snippets.get(i));
+            }
+            out.write(']');
+        }
+    }
+
+    private static Writer writer(HttpExchange exchange) {
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        // Too late to change the status once a streamed body has started
+        if (exchange.getResponseCode() != -1) return;
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.writeString(json, message == null ? "" : message);
+        send(exchange, status, json.append('}').toString());
+    }
+
+    private static void requireGet(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) throw new HttpError(405, "Method not allowed");
+    }
+
+    private static void requirePost(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("POST")) throw new HttpError(405, "Method not allowed");
+    }
+
+    private static long parseId(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "No snippet with id " + text);
+        }
+    }
+
+    private static SortKey sortKey(String name) {
+        switch (name) {
+            case "title": return SortKey.TITLE;
+            case "language": return SortKey.LANGUAGE;
+            case "created": return SortKey.CREATED_AT;
+            case "modified": return SortKey.LAST_MODIFIED;
+            default: throw new HttpError(400, "Unknown sort key: " + name);
+        }
+    }
+
+    private static int limit(Map<String, String> params, int defaultLimit) {
+        String value = params.get("limit");
+        if (value == null) return defaultLimit;
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit > 0) return Math.min(limit, MAX_LIMIT);
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new HttpError(400, "limit must be a positive number");
+    }
+
+    private static Map<String, String> params(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Without TCP_NODELAY small responses wait out the peer's delayed ACK, about 40ms each.
+        // The JDK server reads this once, so it must be set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path dataDirectory = Paths.get(args.length > 1 ? args[1] : "data");
+        // -Dsnippets.shards=N spreads a new library over N shards; an existing one opens with its own count
+        int shards = Integer.getInteger("snippets.shards", ShardedSnippetManager.existingShards(dataDirectory));
+        SnippetManager manager = shards > 0 ? new ShardedSnippetManager(dataDirectory, shards)
+            : new SnippetManager(dataDirectory);
+        SnippetServer server = new SnippetServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        // Optionally keep the snippets of a source tree in step with it while serving
+        SnippetSync sync = args.length > 2 ? new SnippetSync(manager, Paths.get(args[2])) : null;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                if (sync != null) sync.close();
+                manager.close();
+            } catch (IOException e) {
+                System.err.println("Error saving snippets: " + e.getMessage());
+            }
+        }));
+        if (sync != null) System.out.println("Synced " + args[2] + ": " + sync.start());
+        server.start();
+        System.out.println("Serving snippets on http://" + server.getAddress().getHostString() + ":"
+            + server.getAddress().getPort());
+    }
+}
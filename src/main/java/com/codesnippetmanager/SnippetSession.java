@@ -0,0 +1,51 @@
+package com.codesnippetmanager;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * One client's view of a shared SnippetManager. Changes made through a session go into
+ * its own undo and redo history, so undo only ever reverts what this client did. A session
+ * is meant to be used by one thread at a time; the manager serializes it against others.
+ * The history is bounded by the manager's HistoryLimits; close a session to release it.
+ */
+public class SnippetSession implements Closeable {
+    private final SnippetManager manager;
+    final UndoHistory history;
+
+    SnippetSession(SnippetManager manager) {
+        this.manager = manager;
+        history = manager.newHistory();
+    }
+
+    public long addSnippet(CodeSnippet snippet) {
+        return manager.addSnippet(this, snippet);
+    }
+
+    public List<Long> addAll(Collection<CodeSnippet> batch) {
+        return manager.addAll(this, batch);
+    }
+
+    public void editSnippet(long id, CodeSnippet draft) {
+        manager.editSnippet(this, id, draft);
+    }
+
+    public void deleteSnippet(long id) {
+        manager.deleteSnippet(this, id);
+    }
+
+    public boolean undo() {
+        return manager.undo(this);
+    }
+
+    public boolean redo() {
+        return manager.redo(this);
+    }
+
+    // Forgets the history and deletes its spill file; the session stays usable afterwards
+    @Override
+    public void close() {
+        manager.closeSession(this);
+    }
+}
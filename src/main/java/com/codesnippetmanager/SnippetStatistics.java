@@ -0,0 +1,190 @@
+package com.codesnippetmanager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Library statistics kept exact by applying a +1/-1 delta for every snippet the store
+ * adds, replaces or removes, whether that comes from a command, its undo or a redo.
+ * Reading any single counter is O(1) and never walks the library. The maps are concurrent
+ * so a reader on another thread always sees a consistent per-key count.
+ */
+public class SnippetStatistics implements SnippetIndex {
+    // Code size buckets: under 64 chars, then doubling up to 64K and over
+    private static final int SIZE_BUCKETS = 12;
+    private static final int SMALLEST_BUCKET_BITS = 6;
+
+    private final AtomicLong snippetCount;
+    private final AtomicLong totalCodeLength;
+    private final AtomicLongArray codeSizes;
+    private final Map<String, Long> languages;
+    private final Map<String, Long> tags;
+    private final Map<String, Map<LocalDate, Long>> languageDays;
+    private final Map<String, Map<String, Long>> tagPairs;
+
+    public SnippetStatistics() {
+        snippetCount = new AtomicLong();
+        totalCodeLength = new AtomicLong();
+        codeSizes = new AtomicLongArray(SIZE_BUCKETS);
+        languages = new ConcurrentHashMap<>();
+        tags = new ConcurrentHashMap<>();
+        languageDays = new ConcurrentHashMap<>();
+        tagPairs = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        apply(Collections.singletonList(snippet), 1);
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        apply(Collections.singletonList(snippet), -1);
+    }
+
+    @Override
+    public void addAll(Collection<CodeSnippet> snippets) {
+        apply(snippets, 1);
+    }
+
+    @Override
+    public void removeAll(Collection<CodeSnippet> snippets) {
+        apply(snippets, -1);
+    }
+
+    // Sums the deltas of the whole batch first so each shared counter is updated once
+    private void apply(Collection<CodeSnippet> snippets, long delta) {
+        long codeLength = 0;
+        long[] sizes = new long[SIZE_BUCKETS];
+        Map<String, Long> languageDeltas = new HashMap<>();
+        Map<String, Long> tagDeltas = new HashMap<>();
+        Map<String, Map<LocalDate, Long>> dayDeltas = new HashMap<>();
+        Map<String, Map<String, Long>> pairDeltas = new HashMap<>();
+        for (CodeSnippet snippet : snippets) {
+            int length = snippet.getCodeLength();
+            codeLength += length;
+            sizes[sizeBucket(length)]++;
+            languageDeltas.merge(snippet.getLanguage(), delta, Long::sum);
+            dayDeltas.computeIfAbsent(snippet.getLanguage(), k -> new HashMap<>())
+                .merge(snippet.getCreatedAt().toLocalDate(), delta, Long::sum);
+            for (int i = 0; i < snippet.getTagCount(); i++) {
+                String tag = snippet.getTag(i);
+                tagDeltas.merge(tag, delta, Long::sum);
+                for (int j = 0; j < snippet.getTagCount(); j++) {
+                    if (i != j) {
+                        pairDeltas.computeIfAbsent(tag, k -> new HashMap<>()).merge(snippet.getTag(j), delta, Long::sum);
+                    }
+                }
+            }
+        }
+
+        snippetCount.addAndGet(delta * snippets.size());
+        totalCodeLength.addAndGet(delta * codeLength);
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            if (sizes[i] != 0) codeSizes.addAndGet(i, delta * sizes[i]);
+        }
+        languageDeltas.forEach((language, change) -> adjust(languages, language, change));
+        tagDeltas.forEach((tag, change) -> adjust(tags, tag, change));
+        dayDeltas.forEach((language, days) -> {
+            Map<LocalDate, Long> counts = languageDays.computeIfAbsent(language, k -> new ConcurrentHashMap<>());
+            days.forEach((day, change) -> adjust(counts, day, change));
+        });
+        pairDeltas.forEach((tag, others) -> {
+            Map<String, Long> counts = tagPairs.computeIfAbsent(tag, k -> new ConcurrentHashMap<>());
+            others.forEach((other, change) -> adjust(counts, other, change));
+        });
+    }
+
+    // A copy holding the sum of every part's counters as of the call; ShardedSnippetManager reports its shards this way
+    static SnippetStatistics sum(Collection<SnippetStatistics> parts) {
+        SnippetStatistics total = new SnippetStatistics();
+        for (SnippetStatistics part : parts) {
+            total.snippetCount.addAndGet(part.snippetCount.get());
+            total.totalCodeLength.addAndGet(part.totalCodeLength.get());
+            for (int i = 0; i < SIZE_BUCKETS; i++) {
+                total.codeSizes.addAndGet(i, part.codeSizes.get(i));
+            }
+            part.languages.forEach((language, count) -> adjust(total.languages, language, count));
+            part.tags.forEach((tag, count) -> adjust(total.tags, tag, count));
+            part.languageDays.forEach((language, days) -> {
+                Map<LocalDate, Long> counts = total.languageDays.computeIfAbsent(language, k -> new ConcurrentHashMap<>());
+                days.forEach((day, count) -> adjust(counts, day, count));
+            });
+            part.tagPairs.forEach((tag, others) -> {
+                Map<String, Long> counts = total.tagPairs.computeIfAbsent(tag, k -> new ConcurrentHashMap<>());
+                others.forEach((other, count) -> adjust(counts, other, count));
+            });
+        }
+        return total;
+    }
+
+    // Adds delta to the count for key, dropping the key once it reaches zero
+    private static <K> void adjust(Map<K, Long> counts, K key, long delta) {
+        counts.compute(key, (k, count) -> {
+            long updated = (count == null ? 0 : count) + delta;
+            return updated == 0 ? null : updated;
+        });
+    }
+
+    private static int sizeBucket(int length) {
+        int bits = 32 - Integer.numberOfLeadingZeros(length);
+        return Math.min(Math.max(bits - SMALLEST_BUCKET_BITS, 0), SIZE_BUCKETS - 1);
+    }
+
+    public long getSnippetCount() { return snippetCount.get(); }
+    public long getTotalCodeLength() { return totalCodeLength.get(); }
+
+    public double getAverageCodeLength() {
+        long count = snippetCount.get();
+        return count == 0 ? 0 : (double) totalCodeLength.get() / count;
+    }
+
+    public long getLanguageCount(String language) {
+        return languages.getOrDefault(language, 0L);
+    }
+
+    public long getTagCount(String tag) {
+        return tags.getOrDefault(tag, 0L);
+    }
+
+    // Snippets carrying both tags
+    public long getTagPairCount(String tag, String other) {
+        Map<String, Long> pairs = tagPairs.get(tag);
+        return pairs == null ? 0 : pairs.getOrDefault(other, 0L);
+    }
+
+    public Map<String, Long> getLanguageCounts() {
+        return new HashMap<>(languages);
+    }
+
+    public Map<String, Long> getTagCounts() {
+        return new HashMap<>(tags);
+    }
+
+    // How many snippets of the language were created on each day, oldest first
+    public NavigableMap<LocalDate, Long> getLanguageByDay(String language) {
+        Map<LocalDate, Long> days = languageDays.get(language);
+        return days == null ? new TreeMap<>() : new TreeMap<>(days);
+    }
+
+    // Tags that appear together with tag, and on how many snippets
+    public Map<String, Long> getCoOccurringTags(String tag) {
+        Map<String, Long> pairs = tagPairs.get(tag);
+        return pairs == null ? new HashMap<>() : new HashMap<>(pairs);
+    }
+
+    // Bucket label (e.g. "128-255") to number of snippets whose code length falls in it
+    public Map<String, Long> getCodeSizeHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            long low = i == 0 ? 0 : 1L << (i + SMALLEST_BUCKET_BITS - 1);
+            long high = (1L << (i + SMALLEST_BUCKET_BITS)) - 1;
+            String label = i == SIZE_BUCKETS - 1 ? low + "+" : low + "-" + high;
+            histogram.put(label, codeSizes.get(i));
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,171 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Primary storage for snippets, keyed by their stable id.
+ *
+ * Ids are handed out in increasing order and an edit keeps the id of the snippet it
+ * replaces, so id order is also the order snippets were added in. Every change is
+ * forwarded to the registered indexes, so they stay in step with the command that made it.
+ * Changes must come from one thread at a time; get, contains and size may be called from
+ * any thread at any time.
+ *
+ * The indexes' posting lists hold doc ids rather than snippet ids: small ints handed to a
+ * snippet id when it enters the store and reused once it leaves, so they stay below the
+ * number of snippets however large the ids grow. Doc ids are not in id order. Like the
+ * indexes, they may only be read while no change is being made.
+ */
+public class SnippetStore {
+    private final Map<Long, CodeSnippet> byId;
+    private final NavigableMap<Long, CodeSnippet> ordered;
+    private final List<SnippetIndex> indexes;
+    private final Map<Long, Integer> docIds;
+    private CodeSnippet[] byDocId;
+    private int[] freeDocIds;
+    private int freeCount;
+    private int nextDocId;
+
+    public SnippetStore() {
+        byId = new ConcurrentHashMap<>();
+        ordered = new TreeMap<>();
+        indexes = new ArrayList<>();
+        docIds = new HashMap<>();
+        byDocId = new CodeSnippet[16];
+        freeDocIds = new int[16];
+    }
+
+    public void addIndex(SnippetIndex index) {
+        indexes.add(index);
+        for (CodeSnippet snippet : ordered.values()) {
+            index.add(snippet);
+        }
+    }
+
+    public CodeSnippet get(long id) {
+        return byId.get(id);
+    }
+
+    public boolean contains(long id) {
+        return byId.containsKey(id);
+    }
+
+    // The doc id of a stored snippet
+    public int docId(CodeSnippet snippet) {
+        return docIds.get(snippet.getId());
+    }
+
+    public CodeSnippet getByDocId(int docId) {
+        return byDocId[docId];
+    }
+
+    // Inserts the snippet, or replaces the current version with the same id
+    public void put(CodeSnippet snippet) {
+        CodeSnippet previous = byId.put(snippet.getId(), snippet);
+        ordered.put(snippet.getId(), snippet);
+        assignDocId(snippet);
+        for (SnippetIndex index : indexes) {
+            if (previous == null) {
+                index.add(snippet);
+            } else {
+                index.replace(previous, snippet);
+            }
+        }
+    }
+
+    // Like put for each snippet, but new snippets reach each index as one batch
+    public void putAll(Collection<CodeSnippet> snippets) {
+        List<CodeSnippet> added = new ArrayList<>(snippets.size());
+        for (CodeSnippet snippet : snippets) {
+            if (byId.containsKey(snippet.getId())) {
+                put(snippet);
+            } else {
+                byId.put(snippet.getId(), snippet);
+                ordered.put(snippet.getId(), snippet);
+                assignDocId(snippet);
+                added.add(snippet);
+            }
+        }
+        for (SnippetIndex index : indexes) {
+            index.addAll(added);
+        }
+    }
+
+    public void removeAll(Collection<Long> ids) {
+        List<CodeSnippet> removed = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CodeSnippet snippet = byId.remove(id);
+            if (snippet != null) {
+                ordered.remove(id);
+                removed.add(snippet);
+            }
+        }
+        for (SnippetIndex index : indexes) {
+            index.removeAll(removed);
+        }
+        for (CodeSnippet snippet : removed) {
+            releaseDocId(snippet);
+        }
+    }
+
+    public CodeSnippet remove(long id) {
+        CodeSnippet removed = byId.remove(id);
+        if (removed != null) {
+            ordered.remove(id);
+            for (SnippetIndex index : indexes) {
+                index.remove(removed);
+            }
+            releaseDocId(removed);
+        }
+        return removed;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    // Live view in id order
+    public Collection<CodeSnippet> values() {
+        return Collections.unmodifiableCollection(ordered.values());
+    }
+
+    // Live view of the snippets with ids above afterId, in id order
+    public Collection<CodeSnippet> valuesAfter(long afterId) {
+        return Collections.unmodifiableCollection(ordered.tailMap(afterId, false).values());
+    }
+
+    public List<CodeSnippet> toList() {
+        return new ArrayList<>(ordered.values());
+    }
+
+    // Gives a new snippet id a doc id, or points its doc id at the new version
+    private void assignDocId(CodeSnippet snippet) {
+        Integer current = docIds.get(snippet.getId());
+        int docId;
+        if (current != null) {
+            docId = current;
+        } else {
+            docId = freeCount > 0 ? freeDocIds[--freeCount] : nextDocId++;
+            docIds.put(snippet.getId(), docId);
+            if (docId == byDocId.length) {
+                byDocId = Arrays.copyOf(byDocId, docId * 2);
+            }
+        }
+        byDocId[docId] = snippet;
+    }
+
+    // Called once the indexes have dropped the snippet
+    private void releaseDocId(CodeSnippet snippet) {
+        int docId = docIds.remove(snippet.getId());
+        byDocId[docId] = null;
+        if (freeCount == freeDocIds.length) {
+            freeDocIds = Arrays.copyOf(freeDocIds, freeCount * 2);
+        }
+        freeDocIds[freeCount++] = docId;
+    }
+}
@@ -0,0 +1,442 @@
+package com.codesnippetmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * Keeps the snippets imported from a source tree in step with it. Each source file maps to
+ * the snippet SnippetImporter would make of it: titled with its path relative to the root
+ * and tagged with the root's name, so a tree imported before is picked up without
+ * duplicates. A snippet whose title has since been changed no longer counts as that file.
+ *
+ * start() compares the whole tree with the library once, then a WatchService reports
+ * changes. Events are coalesced until the tree has been quiet for QUIET_PERIOD_MS (or at
+ * most MAX_DELAY_MS after the first), and only the paths they name are looked at. A file
+ * whose size and modification time are unchanged is not read; one that is read and hashes
+ * the same as the snippet's code is skipped. Changes are applied through the manager as
+ * ordinary commands, new files as one batch, so the indexes and statistics stay consistent
+ * and every change is journaled. They go through a session of their own, whose history is
+ * dropped after each round, so the user's undo never reverts a sync.
+ *
+ * If the watch service drops events, the whole tree is compared again, and so it is after a
+ * round that failed. A failed round is retried after RETRY_MIN_MS even if nothing else
+ * changes. The wait doubles up to RETRY_MAX_MS while it keeps failing. Edits keep the
+ * snippet's current title, description and tags and replace only its code.
+ */
+public class SnippetSync implements Closeable {
+    private static final long QUIET_PERIOD_MS = 200;
+    private static final long MAX_DELAY_MS = 2000;
+    private static final long RETRY_MIN_MS = 1000;
+    private static final long RETRY_MAX_MS = 60_000;
+
+    // What a round of syncing changed
+    public static final class Changes {
+        private int added;
+        private int edited;
+        private int deleted;
+        private int unchanged;
+        private int skipped;
+
+        public int getAdded() { return added; }
+        public int getEdited() { return edited; }
+        public int getDeleted() { return deleted; }
+        public int getUnchanged() { return unchanged; }
+        public int getSkipped() { return skipped; }
+
+        public boolean isEmpty() {
+            return added == 0 && edited == 0 && deleted == 0;
+        }
+
+        @Override
+        public String toString() {
+            return added + " added, " + edited + " edited, " + deleted + " deleted, " + unchanged + " unchanged, "
+                + skipped + " skipped";
+        }
+    }
+
+    // The snippet a file maps to, and what the file looked like when last synced
+    private static final class Tracked {
+        final long id;
+        final long hash;
+        long size;
+        long modified;
+
+        Tracked(long id, long hash, long size, long modified) {
+            this.id = id;
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    private final SnippetManager manager;
+    private final SnippetSession session;
+    private final Path root;
+    private final String tag;
+    // By relative path with '/' separators, sorted so a directory's files form a range
+    private final TreeMap<String, Tracked> tracked;
+    private final Map<WatchKey, Path> directories;
+    private final MessageDigest digest;
+    private volatile Consumer<Changes> listener;
+    private WatchService watcher;
+    private Thread thread;
+
+    public SnippetSync(SnippetManager manager, Path root) {
+        this.manager = manager;
+        this.root = root.toAbsolutePath().normalize();
+        Path name = this.root.getFileName();
+        tag = name == null ? "imported" : name.toString();
+        session = manager.openSession();
+        tracked = new TreeMap<>();
+        directories = new HashMap<>();
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Called on the watch thread after every round that changed the library
+    public void setListener(Consumer<Changes> listener) {
+        this.listener = listener;
+    }
+
+    // Brings the library up to date with the tree, then watches it on a daemon thread
+    public synchronized Changes start() throws IOException {
+        if (watcher != null) throw new IllegalStateException("Already started");
+        watcher = root.getFileSystem().newWatchService();
+        adoptSnippets();
+        registerTree(root);
+        Changes changes = syncAll();
+        thread = new Thread(this::watch, "snippet-sync");
+        thread.setDaemon(true);
+        thread.start();
+        return changes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread running;
+        synchronized (this) {
+            running = thread;
+            if (watcher != null) watcher.close();
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        session.close();
+    }
+
+    // Compares every file under the root with its snippet, and deletes snippets whose file is gone
+    public synchronized Changes syncAll() throws IOException {
+        Changes changes = new Changes();
+        Map<String, PendingAdd> adds = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Path file : sourceFiles(root)) {
+            seen.add(relative(file));
+            update(file, changes, adds);
+        }
+        List<String> gone = new ArrayList<>();
+        for (String path : tracked.keySet()) {
+            if (!seen.contains(path)) gone.add(path);
+        }
+        for (String path : gone) {
+            delete(path, changes, adds);
+        }
+        finish(changes, adds);
+        return changes;
+    }
+
+    // Looks only at the given paths: files, directories, or either that no longer exists
+    synchronized Changes sync(Collection<Path> paths) throws IOException {
+        Changes changes = new Changes();
+        // By relative path: a new directory's files are named by its own event and by its parents'
+        Map<String, PendingAdd> adds = new LinkedHashMap<>();
+        for (Path path : paths) {
+            if (!path.startsWith(root) || path.equals(root) || isHidden(path)) continue;
+            if (Files.isDirectory(path)) {
+                for (Path file : sourceFiles(path)) {
+                    update(file, changes, adds);
+                }
+            } else if (Files.isRegularFile(path)) {
+                update(path, changes, adds);
+            } else {
+                String prefix = relative(path);
+                delete(prefix, changes, adds);
+                for (String under : new ArrayList<>(tracked.subMap(prefix + "/", prefix + "0").keySet())) {
+                    delete(under, changes, adds);
+                }
+                adds.keySet().removeIf(pending -> pending.startsWith(prefix + "/"));
+            }
+        }
+        finish(changes, adds);
+        return changes;
+    }
+
+    private void watch() {
+        boolean failed = false;
+        long retry = RETRY_MIN_MS;
+        try {
+            while (true) {
+                // After a failed round, retry once the wait is up even if nothing changes
+                WatchKey key = failed ? watcher.poll(retry, TimeUnit.MILLISECONDS) : watcher.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = failed;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MS);
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) break;
+                    key = watcher.poll(Math.min(QUIET_PERIOD_MS, remaining), TimeUnit.MILLISECONDS);
+                }
+                Changes changes;
+                try {
+                    changes = overflow ? syncAll() : sync(changed);
+                    failed = false;
+                    retry = RETRY_MIN_MS;
+                } catch (ClosedWatchServiceException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    // I/O errors, or anything else such as a sharded manager refusing a change
+                    System.err.println("Error syncing " + root + ": " + e.getMessage());
+                    if (!(e instanceof IOException || e instanceof UncheckedIOException)) e.printStackTrace();
+                    retry = failed ? Math.min(retry * 2, RETRY_MAX_MS) : RETRY_MIN_MS;
+                    // Paths this round named may be left behind, so the next round compares everything
+                    failed = true;
+                    continue;
+                }
+                Consumer<Changes> current = listener;
+                if (current != null && !changes.isEmpty()) current.accept(changes);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    // Adds the paths key reports to changed, watching new directories; true if events were lost
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        Path directory;
+        synchronized (this) {
+            directory = directories.get(key);
+        }
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path child = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child) && !isHidden(child)) {
+                try {
+                    registerTree(child);
+                } catch (IOException e) {
+                    overflow = true;
+                }
+            }
+            changed.add(child);
+        }
+        if (!key.reset()) {
+            synchronized (this) {
+                directories.remove(key);
+            }
+        }
+        return overflow;
+    }
+
+    private synchronized void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(root) && isHidden(dir)) return FileVisitResult.SKIP_SUBTREE;
+                directories.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Takes over the snippets an earlier import or sync of this tree made
+    private void adoptSnippets() {
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            if (!snippet.getTags().contains(tag) || tracked.containsKey(snippet.getTitle())) continue;
+            if (SnippetImporter.languageOf(Paths.get(snippet.getTitle())) == null) continue;
+            tracked.put(snippet.getTitle(), new Tracked(snippet.getId(),
+                hash(snippet.peekCode().getBytes(StandardCharsets.UTF_8)), -1, -1));
+        }
+    }
+
+    private static final class PendingAdd {
+        final String path;
+        final CodeSnippet snippet;
+        final Tracked state;
+
+        PendingAdd(String path, CodeSnippet snippet, Tracked state) {
+            this.path = path;
+            this.snippet = snippet;
+            this.state = state;
+        }
+    }
+
+    private void update(Path file, Changes changes, Map<String, PendingAdd> adds) throws IOException {
+        String language = SnippetImporter.languageOf(file);
+        if (language == null) return;
+        String path = relative(file);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            delete(path, changes, adds);
+            return;
+        }
+        long modified = attrs.lastModifiedTime().toMillis();
+        Tracked state = tracked.get(path);
+        CodeSnippet current = state == null ? null : manager.getSnippet(state.id);
+        if (current != null && state.size == attrs.size() && state.modified == modified) {
+            changes.unchanged++;
+            return;
+        }
+        String code = attrs.size() > SnippetImporter.MAX_FILE_SIZE ? null : read(file);
+        if (code == null) {
+            changes.skipped++;
+            return;
+        }
+        long hash = hash(code.getBytes(StandardCharsets.UTF_8));
+        if (current != null && state.hash == hash) {
+            state.size = attrs.size();
+            state.modified = modified;
+            changes.unchanged++;
+        } else if (current != null) {
+            session.editSnippet(state.id, new CodeSnippet(current.getTitle(), current.getDescription(), code,
+                current.getLanguage(), current.getTags()));
+            tracked.put(path, new Tracked(state.id, hash, attrs.size(), modified));
+            changes.edited++;
+        } else {
+            // New, or its snippet was deleted from the library since
+            tracked.remove(path);
+            adds.put(path, new PendingAdd(path, new CodeSnippet(path, "Imported from " + path, code, language,
+                Collections.singleton(tag)), new Tracked(0, hash, attrs.size(), modified)));
+        }
+    }
+
+    private void delete(String path, Changes changes, Map<String, PendingAdd> adds) {
+        adds.remove(path);
+        Tracked state = tracked.remove(path);
+        if (state == null || manager.getSnippet(state.id) == null) return;
+        session.deleteSnippet(state.id);
+        changes.deleted++;
+    }
+
+    private void finish(Changes changes, Map<String, PendingAdd> adds) {
+        if (!adds.isEmpty()) {
+            List<PendingAdd> pending = new ArrayList<>(adds.values());
+            List<CodeSnippet> batch = new ArrayList<>(pending.size());
+            for (PendingAdd add : pending) {
+                batch.add(add.snippet);
+            }
+            List<Long> ids = session.addAll(batch);
+            for (int i = 0; i < pending.size(); i++) {
+                Tracked state = pending.get(i).state;
+                tracked.put(pending.get(i).path, new Tracked(ids.get(i), state.hash, state.size, state.modified));
+            }
+            changes.added += pending.size();
+        }
+        // Nothing to undo here; forget the steps rather than hold them
+        session.close();
+    }
+
+    // Regular source files under start, skipping dot-directories
+    private List<Path> sourceFiles(Path start) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && SnippetImporter.languageOf(file) != null) files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    // Whether path is inside a dot-directory below the root, or is one
+    private boolean isHidden(Path path) {
+        Path relative = root.relativize(path);
+        for (int i = 0; i < relative.getNameCount() - (Files.isDirectory(path) ? 0 : 1); i++) {
+            if (relative.getName(i).toString().startsWith(".")) return true;
+        }
+        return false;
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    // Null when the file is gone or not UTF-8 text
+    private static String read(Path file) throws IOException {
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file))).toString();
+        } catch (NoSuchFileException | CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    private long hash(byte[] bytes) {
+        byte[] sum = digest.digest(bytes);
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = hash << 8 | (sum[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java -cp target/classes com.codesnippetmanager.SnippetSync <source-directory> [data-directory]");
+            return;
+        }
+        Path dataDirectory = Paths.get(args.length == 2 ? args[1] : "data");
+        SnippetManager manager = new SnippetManager(dataDirectory);
+        SnippetSync sync = new SnippetSync(manager, Paths.get(args[0]));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                sync.close();
+                manager.close();
+            } catch (IOException e) {
+                System.err.println("Error saving snippets: " + e.getMessage());
+            }
+        }));
+        sync.setListener(changes -> System.out.println("Synced: " + changes));
+        System.out.println("Synced: " + sync.start());
+        System.out.println("Watching " + args[0] + " for changes; press Ctrl+C to stop");
+    }
+}
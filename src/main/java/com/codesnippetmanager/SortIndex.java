@@ -0,0 +1,65 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Keeps every snippet pre-sorted by each SortKey, and by id, so browsing never copies or
+ * re-sorts. New snippets take the highest id, so the id order grows at its end. Changes
+ * become visible to readers at publish(), which the manager calls once per change.
+ */
+public class SortIndex implements SnippetIndex {
+    private final Map<SortKey, SnippetOrder> orders;
+    private final SnippetOrder byId;
+
+    public SortIndex() {
+        orders = new EnumMap<>(SortKey.class);
+        for (SortKey key : SortKey.values()) {
+            orders.put(key, new SnippetOrder(key.comparator()));
+        }
+        byId = new SnippetOrder(Comparator.comparingLong(CodeSnippet::getId));
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        for (SnippetOrder order : orders.values()) {
+            order.add(snippet);
+        }
+        byId.add(snippet);
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        for (SnippetOrder order : orders.values()) {
+            order.remove(snippet);
+        }
+        byId.remove(snippet);
+    }
+
+    public void publish() {
+        for (SnippetOrder order : orders.values()) {
+            order.publish();
+        }
+        byId.publish();
+    }
+
+    // Immutable list of the snippets in id order as of the last publish; may be read without a lock
+    public List<CodeSnippet> all() {
+        return byId.published();
+    }
+
+    // Up to limit snippets in id order after the cursor, or from the start when cursor is null
+    public SnippetPage page(SnippetPage.Cursor after, int limit) {
+        return byId.published().page(false, after == null ? null : after.getLast(), limit);
+    }
+
+    // Immutable list of the snippets as of the last publish; may be read without a lock
+    public List<CodeSnippet> sorted(SortKey key, boolean descending) {
+        SnippetOrder.Published order = orders.get(key).published();
+        return descending ? order.descending() : order;
+    }
+
+    // Up to limit snippets that sort after the cursor, or from the start when cursor is null
+    public SnippetPage page(SortKey key, boolean descending, SnippetPage.Cursor after, int limit) {
+        return orders.get(key).published().page(descending, after == null ? null : after.getLast(), limit);
+    }
+}
@@ -0,0 +1,21 @@
+package com.codesnippetmanager;
+
+import java.util.Comparator;
+
+public enum SortKey {
+    TITLE((a, b) -> a.getTitle().compareToIgnoreCase(b.getTitle())),
+    LANGUAGE((a, b) -> a.getLanguage().compareToIgnoreCase(b.getLanguage())),
+    CREATED_AT((a, b) -> Long.compare(a.getCreatedAtMillis(), b.getCreatedAtMillis())),
+    LAST_MODIFIED((a, b) -> Long.compare(a.getLastModifiedMillis(), b.getLastModifiedMillis()));
+
+    private final Comparator<CodeSnippet> comparator;
+
+    SortKey(Comparator<CodeSnippet> byKey) {
+        // Ties fall back to id order, which matches a stable sort of the library
+        this.comparator = byKey.thenComparingLong(CodeSnippet::getId);
+    }
+
+    public Comparator<CodeSnippet> comparator() {
+        return comparator;
+    }
+}
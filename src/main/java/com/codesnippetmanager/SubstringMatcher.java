@@ -0,0 +1,163 @@
+package com.codesnippetmanager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Case-insensitive substring search that allocates nothing per text: Boyer-Moore-Horspool
+ * over lowercased chars, so most of a long text is skipped rather than compared. The query
+ * must already be lowercased with String.toLowerCase, and a text matches exactly when its
+ * toLowerCase() contains the query. Char by char, Character.toLowerCase agrees with that
+ * everywhere except for a few cases String.toLowerCase treats specially: U+0130 (capital I
+ * with dot) becomes two chars, capital sigma becomes a final or medial sigma by context,
+ * surrogate pairs lowercase as one code point, and the Turkish, Azeri and Lithuanian
+ * locales have rules of their own. A text that could hit one of those is lowercased whole
+ * instead, and only when the query has a char such a match would need. ASCII lowercases
+ * through a table. The skip table is indexed by the low byte of the lowercased char and
+ * keeps the shortest shift of the chars sharing one, which is always safe.
+ * A query of ASCII digits and punctuation has no case, so it goes to String.indexOf, which
+ * the JIT vectorizes and which beats skipping when the shifts are only a char or two.
+ *
+ * scan tests a run of snippets and splits it across the common fork-join pool once it is
+ * long enough to pay for that.
+ */
+final class SubstringMatcher {
+    private static final int LEAF_SIZE = 1024;
+    private static final char[] ASCII_LOWER = new char[128];
+    private static final Set<String> SPECIAL_CASING_LANGUAGES = new HashSet<>(Arrays.asList("tr", "az", "lt"));
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII_LOWER[c] = Character.toLowerCase(c);
+        }
+    }
+
+    private final String query;
+    private final char[] pattern;
+    private final int[] shifts;
+    private final String caseless;
+    // Whether every text is lowercased whole, or only those holding U+0130 or capital sigma
+    private final boolean wholeText;
+    private final boolean dottedI;
+    private final boolean sigma;
+
+    SubstringMatcher(String lowerQuery) {
+        query = lowerQuery;
+        caseless = isCaseless(lowerQuery) ? lowerQuery : null;
+        pattern = lowerQuery.toCharArray();
+        shifts = new int[256];
+        Arrays.fill(shifts, Math.max(pattern.length, 1));
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shifts[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+        boolean surrogates = false;
+        boolean i = false;
+        boolean s = false;
+        for (char c : pattern) {
+            surrogates |= Character.isSurrogate(c);
+            i |= c == 'i' || c == '\u0307';
+            s |= c == '\u03c3' || c == '\u03c2';
+        }
+        wholeText = surrogates || SPECIAL_CASING_LANGUAGES.contains(Locale.getDefault().getLanguage());
+        dottedI = i;
+        sigma = s;
+    }
+
+    private static boolean isCaseless(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= 128 || Character.isLetter(c)) return false;
+        }
+        return true;
+    }
+
+    private static char lower(char c) {
+        return c < 128 ? ASCII_LOWER[c] : Character.toLowerCase(c);
+    }
+
+    // indexOf of a char past Latin-1 returns at once for a Latin-1 text, so the checks are cheap for most
+    private boolean needsWholeText(String text) {
+        return wholeText || dottedI && text.indexOf('\u0130') >= 0 || sigma && text.indexOf('\u03a3') >= 0;
+    }
+
+    boolean matches(String text) {
+        if (caseless != null) return text.contains(caseless);
+        if (needsWholeText(text)) return text.toLowerCase().contains(query);
+        int last = pattern.length - 1;
+        if (last < 0) return true;
+        char end = pattern[last];
+        for (int i = last; i < text.length(); ) {
+            char c = lower(text.charAt(i));
+            if (c == end) {
+                int j = last - 1;
+                int k = i - 1;
+                while (j >= 0 && lower(text.charAt(k)) == pattern[j]) {
+                    j--;
+                    k--;
+                }
+                if (j < 0) return true;
+            }
+            i += shifts[c & 0xFF];
+        }
+        return false;
+    }
+
+    // Whether any field of the snippet contains the query, the same test as CodeSnippet.contains
+    boolean matches(CodeSnippet snippet) {
+        if (matches(snippet.getTitle()) || matches(snippet.getDescription()) || matches(snippet.peekCode())
+            || matches(snippet.getLanguage())) {
+            return true;
+        }
+        for (int i = 0; i < snippet.getTagCount(); i++) {
+            if (matches(snippet.getTag(i))) return true;
+        }
+        return false;
+    }
+
+    // Sets hits[i - from] to whether snippets[i] matches, for every i in [from, to); null entries never match
+    void scan(CodeSnippet[] snippets, int from, int to, boolean[] hits) {
+        if (to - from <= LEAF_SIZE) {
+            scanRange(snippets, from, to, hits, from);
+        } else {
+            ForkJoinPool.commonPool().invoke(new Scan(snippets, from, to, hits, from));
+        }
+    }
+
+    private void scanRange(CodeSnippet[] snippets, int from, int to, boolean[] hits, int base) {
+        for (int i = from; i < to; i++) {
+            hits[i - base] = snippets[i] != null && matches(snippets[i]);
+        }
+    }
+
+    private final class Scan extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CodeSnippet[] snippets;
+        private final int from;
+        private final int to;
+        private final boolean[] hits;
+        private final int base;
+
+        Scan(CodeSnippet[] snippets, int from, int to, boolean[] hits, int base) {
+            this.snippets = snippets;
+            this.from = from;
+            this.to = to;
+            this.hits = hits;
+            this.base = base;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                scanRange(snippets, from, to, hits, base);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Scan(snippets, from, middle, hits, base), new Scan(snippets, middle, to, hits, base));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * The names a snippet's code declares, found by a lightweight scan rather than a parser: the
+ * code is split into tokens with comments and string literals dropped, and the tokens are
+ * matched against the shapes of declarations in the snippet's language.
+ *
+ *   Java                     classes, interfaces, enums, records and methods
+ *   Python                   classes and functions
+ *   JavaScript, TypeScript   classes, functions, methods, and functions assigned to a name
+ *                            (const f = () => ..., f = function ..., f: function ...)
+ *
+ * Other languages declare nothing. Calls are not declarations, so a snippet that only calls
+ * binarySearch does not declare it. Code that does not compile is scanned all the same.
+ */
+final class SymbolExtractor {
+    private enum Syntax { JAVA, PYTHON, JAVASCRIPT }
+
+    // Literals of any kind become this token, so they still separate the tokens around them
+    private static final String LITERAL = "0";
+    private static final String ARROW = "=>";
+    // Longer parameter lists are not looked through, which bounds the scan on unbalanced code
+    private static final int MAX_PARENTHESIZED = 512;
+    private static final String[] PUNCTUATION = new String[128];
+
+    private static final Set<String> JAVA_TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+    private static final Set<String> JAVA_PRIMITIVES = Set.of(
+        "boolean", "byte", "char", "double", "float", "int", "long", "short", "void");
+    private static final Set<String> JAVA_KEYWORDS = Set.of(
+        "abstract", "assert", "break", "case", "catch", "class", "const", "continue", "default", "do",
+        "else", "enum", "extends", "final", "finally", "for", "goto", "if", "implements", "import",
+        "instanceof", "interface", "native", "new", "package", "private", "protected", "public", "return",
+        "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient",
+        "try", "volatile", "while", "true", "false", "null", "var", "yield", "record", "sealed", "permits");
+    private static final Set<String> JAVA_METHOD_FOLLOWERS = Set.of("{", "throws", ";", "default");
+    // Keywords, plus constructor, which names no function of its own
+    private static final Set<String> JAVASCRIPT_KEYWORDS = Set.of(
+        "if", "for", "while", "switch", "catch", "function", "with", "return", "typeof", "new", "delete",
+        "void", "await", "yield", "do", "else", "super", "import", "export", "class", "constructor");
+    private static final Set<String> JAVASCRIPT_METHOD_PREFIXES = Set.of(
+        "{", "}", ";", "static", "async", "get", "set", "*", "public", "private", "protected", "override");
+
+    static {
+        for (char c = 0; c < PUNCTUATION.length; c++) {
+            PUNCTUATION[c] = String.valueOf(c);
+        }
+    }
+
+    private SymbolExtractor() {}
+
+    static Set<String> declaredNames(String language, String code) {
+        Syntax syntax = syntaxOf(language);
+        if (syntax == null) return Collections.emptySet();
+        List<String> tokens = tokens(code, syntax);
+        Set<String> names = new LinkedHashSet<>();
+        switch (syntax) {
+            case JAVA:
+                javaNames(tokens, names);
+                break;
+            case PYTHON:
+                pythonNames(tokens, names);
+                break;
+            case JAVASCRIPT:
+                javaScriptNames(tokens, names);
+                break;
+        }
+        return names;
+    }
+
+    private static Syntax syntaxOf(String language) {
+        switch (language.trim().toLowerCase()) {
+            case "java":
+                return Syntax.JAVA;
+            case "python":
+            case "py":
+                return Syntax.PYTHON;
+            case "javascript":
+            case "js":
+            case "typescript":
+            case "ts":
+                return Syntax.JAVASCRIPT;
+            default:
+                return null;
+        }
+    }
+
+    private static void javaNames(List<String> tokens, Set<String> names) {
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String next = tokens.get(i + 1);
+            String previous = i > 0 ? tokens.get(i - 1) : "";
+            if (JAVA_TYPE_KEYWORDS.contains(token)) {
+                // Foo.class is a literal, not a declaration
+                if (isIdentifier(next) && !previous.equals(".")) names.add(next);
+                continue;
+            }
+            // A method: a result type, then the name, then parameters, then a body or throws
+            if (!next.equals("(") || !isIdentifier(token) || JAVA_KEYWORDS.contains(token)) continue;
+            boolean typed = previous.equals(">") || previous.equals("]")
+                || (isIdentifier(previous) && (!JAVA_KEYWORDS.contains(previous) || JAVA_PRIMITIVES.contains(previous)));
+            if (!typed) continue;
+            int close = closing(tokens, i + 1);
+            if (close >= 0 && close + 1 < tokens.size() && JAVA_METHOD_FOLLOWERS.contains(tokens.get(close + 1))) {
+                names.add(token);
+            }
+        }
+    }
+
+    private static void pythonNames(List<String> tokens, Set<String> names) {
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if ((token.equals("def") || token.equals("class")) && isIdentifier(tokens.get(i + 1))) {
+                names.add(tokens.get(i + 1));
+            }
+        }
+    }
+
+    private static void javaScriptNames(List<String> tokens, Set<String> names) {
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String next = tokens.get(i + 1);
+            String previous = i > 0 ? tokens.get(i - 1) : "";
+            if (token.equals("class") || token.equals("function")) {
+                // function* name(...) is a generator
+                String name = next.equals("*") && i + 2 < tokens.size() ? tokens.get(i + 2) : next;
+                if (isIdentifier(name) && !previous.equals(".")) names.add(name);
+                continue;
+            }
+            if (!isIdentifier(token) || JAVASCRIPT_KEYWORDS.contains(token)) continue;
+            if ((next.equals("=") || next.equals(":")) && i + 2 < tokens.size()) {
+                if (isFunctionValue(tokens, i + 2, next.equals("="))) names.add(token);
+                continue;
+            }
+            // A method in a class or object literal: name(...) { or, in TypeScript, name(...): type {
+            if (next.equals("(") && (i == 0 || JAVASCRIPT_METHOD_PREFIXES.contains(previous))) {
+                int close = closing(tokens, i + 1);
+                if (close >= 0 && close + 1 < tokens.size()
+                    && (tokens.get(close + 1).equals("{") || tokens.get(close + 1).equals(":"))) {
+                    names.add(token);
+                }
+            }
+        }
+    }
+
+    // Whether the value starting at tokens[start] is a function; arrows only count after =
+    private static boolean isFunctionValue(List<String> tokens, int start, boolean assigned) {
+        int i = start;
+        if (tokens.get(i).equals("async") && i + 1 < tokens.size()) i++;
+        String first = tokens.get(i);
+        if (first.equals("function")) return true;
+        if (!assigned) return false;
+        if (isIdentifier(first)) return i + 1 < tokens.size() && tokens.get(i + 1).equals(ARROW);
+        if (!first.equals("(")) return false;
+        int close = closing(tokens, i);
+        if (close < 0 || close + 1 >= tokens.size()) return false;
+        if (tokens.get(close + 1).equals(ARROW)) return true;
+        // (x: number): string => ...
+        if (!tokens.get(close + 1).equals(":")) return false;
+        for (int j = close + 2; j < tokens.size() && j < close + 16; j++) {
+            if (tokens.get(j).equals(ARROW)) return true;
+            if (tokens.get(j).equals(";") || tokens.get(j).equals("{")) return false;
+        }
+        return false;
+    }
+
+    // Index of the ) matching the ( at open, or -1 if there is none within MAX_PARENTHESIZED tokens
+    private static int closing(List<String> tokens, int open) {
+        int depth = 0;
+        int end = Math.min(tokens.size(), open + MAX_PARENTHESIZED);
+        for (int i = open; i < end; i++) {
+            String token = tokens.get(i);
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")") && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifier(String token) {
+        return !token.isEmpty() && Character.isJavaIdentifierStart(token.charAt(0));
+    }
+
+    private static List<String> tokens(String code, Syntax syntax) {
+        List<String> tokens = new ArrayList<>();
+        int n = code.length();
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#' && syntax == Syntax.PYTHON) {
+                i = lineEnd(code, i);
+            } else if (c == '/' && syntax != Syntax.PYTHON && i + 1 < n && code.charAt(i + 1) == '/') {
+                i = lineEnd(code, i);
+            } else if (c == '/' && syntax != Syntax.PYTHON && i + 1 < n && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '"' || c == '\'' || (c == '`' && syntax == Syntax.JAVASCRIPT)) {
+                i = stringEnd(code, i, syntax);
+                tokens.add(LITERAL);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+                tokens.add(code.substring(start, i));
+            } else if (Character.isDigit(c)) {
+                while (i < n && (Character.isLetterOrDigit(code.charAt(i)) || code.charAt(i) == '.')) i++;
+                tokens.add(LITERAL);
+            } else if (c == '=' && i + 1 < n && code.charAt(i + 1) == '>') {
+                tokens.add(ARROW);
+                i += 2;
+            } else {
+                tokens.add(c < PUNCTUATION.length ? PUNCTUATION[c] : String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int lineEnd(String code, int from) {
+        int end = code.indexOf('\n', from);
+        return end < 0 ? code.length() : end;
+    }
+
+    /*
+     * Index just past the string literal starting at from. Triple-quoted strings (Java text
+     * blocks, Python) and JavaScript templates may span lines; other literals end at the line
+     * break at the latest, so an unbalanced quote cannot swallow the rest of the code.
+     */
+    private static int stringEnd(String code, int from, Syntax syntax) {
+        char quote = code.charAt(from);
+        boolean triple = syntax != Syntax.JAVASCRIPT && code.startsWith(String.valueOf(quote).repeat(3), from);
+        if (triple) {
+            int end = code.indexOf(String.valueOf(quote).repeat(3), from + 3);
+            return end < 0 ? code.length() : end + 3;
+        }
+        int i = from + 1;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' && quote != '`') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return code.length();
+    }
+}
@@ -0,0 +1,57 @@
+package com.codesnippetmanager;
+
+import java.util.*;
+
+/*
+ * Snippets by the names their code declares, from SymbolExtractor. Names are matched
+ * ignoring case, so a lookup is one hash probe. Removal extracts the names again from the
+ * outgoing version rather than keeping them per snippet.
+ */
+public class SymbolIndex implements SnippetIndex {
+    private final SnippetStore store;
+    private final Map<String, PostingList> symbols;
+
+    public SymbolIndex(SnippetStore store) {
+        this.store = store;
+        symbols = new HashMap<>();
+    }
+
+    @Override
+    public void add(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (String name : namesOf(snippet)) {
+            symbols.computeIfAbsent(name, k -> new PostingList()).add(docId);
+        }
+    }
+
+    @Override
+    public void remove(CodeSnippet snippet) {
+        int docId = store.docId(snippet);
+        for (String name : namesOf(snippet)) {
+            PostingList list = symbols.get(name);
+            if (list == null) continue;
+            list.remove(docId);
+            if (list.size() == 0) symbols.remove(name);
+        }
+    }
+
+    // Snippets declaring a class, function or method with this name, in id order
+    public List<CodeSnippet> definitions(String name) {
+        PostingList list = symbols.get(name.trim().toLowerCase());
+        if (list == null) return new ArrayList<>();
+        List<CodeSnippet> result = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            result.add(store.getByDocId(list.get(i)));
+        }
+        result.sort(Comparator.comparingLong(CodeSnippet::getId));
+        return result;
+    }
+
+    private static Set<String> namesOf(CodeSnippet snippet) {
+        Set<String> names = new HashSet<>();
+        for (String name : SymbolExtractor.declaredNames(snippet.getLanguage(), snippet.peekCode())) {
+            names.add(name.toLowerCase());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,53 @@
+package com.codesnippetmanager;
+
+import java.util.Arrays;
+
+// A posting list that also records how often the term occurs in each snippet
+public class TermPostings {
+    private int[] ids;
+    private int[] freqs;
+    private int size;
+
+    public TermPostings() {
+        ids = new int[4];
+        freqs = new int[4];
+    }
+
+    public int size() { return size; }
+
+    public void add(int id, int freq) {
+        int pos = size == 0 || id > ids[size - 1] ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0 && pos < size) {
+            freqs[pos] = freq;
+            return;
+        }
+        if (pos < 0) pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+        ids[pos] = id;
+        freqs[pos] = freq;
+        size++;
+    }
+
+    public void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+        size--;
+    }
+
+    // Term frequency in the given snippet, or 0 if the term does not occur there
+    public int freq(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        return pos >= 0 ? freqs[pos] : 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -0,0 +1,78 @@
+package com.codesnippetmanager;
+
+// Bounded min-heap that keeps the k best (score, id) pairs without allocating per offer
+public class TopK {
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopK(int k) {
+        ids = new long[k];
+        scores = new double[k];
+    }
+
+    public void offer(long id, double score) {
+        if (ids.length == 0) return;
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (better(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() { return size; }
+
+    // Drains the heap into ids and scores ordered best first
+    public long[] drainIds(double[] scoresOut) {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            scoresOut[i] = scores[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    // Higher score wins; equal scores keep the older (lower id) snippet first
+    private static boolean better(long id, double score, long otherId, double otherScore) {
+        return score > otherScore || score == otherScore && id < otherId;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(ids[parent], scores[parent], ids[i], scores[i])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && better(ids[worst], scores[worst], ids[left], scores[left])) worst = left;
+            if (right < size && better(ids[worst], scores[worst], ids[right], scores[right])) worst = right;
+            if (worst == i) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,203 @@
+package com.codesnippetmanager;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * One session's undo and redo stacks, kept within a HistoryLimits. The undo stack is the
+ * in-memory entries (newest first) followed by the spilled ones, which are all older; the
+ * spill file holds them oldest first, so the next one undo needs is always at its end and
+ * is truncated away once read. Forgetting a step always forgets every older step too, so
+ * undo never skips over a change it can no longer revert. Not thread-safe; SnippetManager
+ * calls it under its write lock.
+ */
+final class UndoHistory implements Closeable {
+    private final SnippetStore store;
+    private final Deque<Entry> undo;
+    private final Deque<Entry> spilled;
+    private final Deque<Entry> redo;
+    private long memoryBytes;
+    private FileChannel spillFile;
+    private long spillEnd;
+
+    UndoHistory(SnippetStore store) {
+        this.store = store;
+        undo = new ArrayDeque<>();
+        spilled = new ArrayDeque<>();
+        redo = new ArrayDeque<>();
+    }
+
+    // A newly executed command: it becomes the next undo step and the redo stack is cleared
+    void pushExecuted(Command command, HistoryLimits limits) {
+        for (Entry entry : redo) {
+            memoryBytes -= entry.size;
+        }
+        redo.clear();
+        pushUndo(command, limits);
+    }
+
+    void pushUndo(Command command, HistoryLimits limits) {
+        Entry entry = new Entry(command);
+        undo.push(entry);
+        memoryBytes += entry.size;
+        trim(limits);
+    }
+
+    void pushRedo(Command command, HistoryLimits limits) {
+        Entry entry = new Entry(command);
+        redo.push(entry);
+        memoryBytes += entry.size;
+        trim(limits);
+    }
+
+    // The most recent undo step, or null when there is none
+    Command pollUndo() {
+        Entry entry = undo.poll();
+        if (entry != null) {
+            memoryBytes -= entry.size;
+            return entry.command;
+        }
+        entry = spilled.poll();
+        return entry == null ? null : unspill(entry);
+    }
+
+    Command pollRedo() {
+        Entry entry = redo.poll();
+        if (entry == null) return null;
+        memoryBytes -= entry.size;
+        return entry.command;
+    }
+
+    // The most recent undo step if it is still in memory, else null
+    Command peekUndo() {
+        Entry entry = undo.peek();
+        return entry == null ? null : entry.command;
+    }
+
+    // Re-reads the size of the most recent undo step after the command has grown
+    void resizeNewest(HistoryLimits limits) {
+        Entry entry = undo.peek();
+        if (entry == null) return;
+        memoryBytes -= entry.size;
+        entry.size = entry.command.estimatedSize();
+        memoryBytes += entry.size;
+        trim(limits);
+    }
+
+    int getUndoDepth() { return undo.size() + spilled.size(); }
+    int getRedoDepth() { return redo.size(); }
+    int getSpilledDepth() { return spilled.size(); }
+    long getMemoryBytes() { return memoryBytes; }
+
+    @Override
+    public void close() {
+        discardSpilled();
+        undo.clear();
+        redo.clear();
+        memoryBytes = 0;
+    }
+
+    private void trim(HistoryLimits limits) {
+        while (getUndoDepth() > limits.getMaxDepth()) {
+            if (!spilled.isEmpty()) {
+                spilled.removeLast();
+                if (spilled.isEmpty()) discardSpilled();
+            } else {
+                memoryBytes -= undo.removeLast().size;
+            }
+        }
+        while (memoryBytes > limits.getMaxBytes()) {
+            if (!undo.isEmpty()) {
+                Entry oldest = undo.removeLast();
+                memoryBytes -= oldest.size;
+                if (!spill(oldest, limits)) {
+                    // Forgotten, and so is everything older
+                    discardSpilled();
+                }
+            } else if (!redo.isEmpty()) {
+                // The step furthest from the current state; the nearer ones can still be redone
+                memoryBytes -= redo.removeLast().size;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean spill(Entry entry, HistoryLimits limits) {
+        if (limits.getSpillDirectory() == null) return false;
+        try {
+            if (spillFile == null) {
+                Files.createDirectories(limits.getSpillDirectory());
+                spillFile = FileChannel.open(Files.createTempFile(limits.getSpillDirectory(), "undo-", ".history"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                spillEnd = 0;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            entry.command.writeState(new DataOutputStream(bytes));
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            entry.offset = spillEnd;
+            entry.length = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                spillFile.write(buffer, spillEnd + buffer.position());
+            }
+            spillEnd += entry.length;
+            entry.command = null;
+            spilled.push(entry);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Reads back the newest spilled entry, which sits at the end of the file
+    private Command unspill(Entry entry) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            while (buffer.hasRemaining()) {
+                if (spillFile.read(buffer, entry.offset + buffer.position()) < 0) throw new EOFException();
+            }
+            Command command = Command.readState(new DataInputStream(new ByteArrayInputStream(buffer.array())), store);
+            if (spilled.isEmpty()) {
+                discardSpilled();
+            } else {
+                spillEnd = entry.offset;
+                spillFile.truncate(spillEnd);
+            }
+            return command;
+        } catch (IOException e) {
+            // The rest of the spilled history is unreadable too; nothing older can be undone
+            discardSpilled();
+            return null;
+        }
+    }
+
+    private void discardSpilled() {
+        spilled.clear();
+        spillEnd = 0;
+        if (spillFile != null) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                // Deleted on close; nothing else to release
+            }
+            spillFile = null;
+        }
+    }
+
+    private static final class Entry {
+        Command command;
+        long size;
+        long offset;
+        int length;
+
+        Entry(Command command) {
+            this.command = command;
+            this.size = command.estimatedSize();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeIndexesTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void bodiesAreDecodedOnlyWhenTheIndexesAreFirstUsedAndThenOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        SnippetStore store = new SnippetStore();
+        CodeIndexes deferred = new CodeIndexes(store, 0.8);
+        store.addIndex(deferred);
+        for (int i = 1; i <= 50; i++) {
+            store.put(mapped(i, "def function" + i + "(): return " + (i % 5), loads));
+        }
+        store.remove(7);
+        store.put(mapped(8, "def replaced(): pass", loads));
+        assertEquals(0, loads.get(), "nothing decoded before the first query");
+        assertFalse(deferred.isBuilt());
+
+        SnippetStore eagerStore = new SnippetStore();
+        CodeIndexes eager = new CodeIndexes(eagerStore, 0.8);
+        eager.build();
+        eagerStore.addIndex(eager);
+        for (CodeSnippet snippet : store.values()) {
+            eagerStore.put(snippet);
+        }
+
+        loads.set(0);
+        SearchIndex search = deferred.search();
+        assertEquals(49, loads.get(), "each stored body decoded once for all four indexes");
+        assertEquals(ids(eager.search().search("return 3")), ids(search.search("return 3")));
+        assertEquals(ids(eager.symbols().definitions("replaced")), ids(deferred.symbols().definitions("replaced")));
+        assertTrue(deferred.symbols().definitions("function7").isEmpty());
+        assertEquals(eager.ranked().search(SnippetQuery.parse("function12"), 5).size(),
+            deferred.ranked().search(SnippetQuery.parse("function12"), 5).size());
+        assertEquals(eager.duplicates().clusters().size(), deferred.duplicates().clusters().size());
+
+        // Built, it follows every change again
+        store.put(mapped(100, "def latecomer(): pass", loads));
+        assertEquals(Collections.singletonList(100L), ids(deferred.symbols().definitions("latecomer")));
+    }
+
+    @Test
+    void reopenedLibraryAnswersQueriesAsBefore() throws Exception {
+        String body = "x".repeat(100_000);
+        Map<String, List<Long>> before = new HashMap<>();
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            // Past the compaction threshold, so the reopened bodies come from a mapped snapshot
+            for (int i = 0; i < 50; i++) {
+                manager.addSnippet(new CodeSnippet("big " + i, "", "def big" + i + "():\n  return '" + body + "'",
+                    "python", new HashSet<>()));
+            }
+            manager.addSnippet(new CodeSnippet("small", "", "class Small {}", "java", new HashSet<>()));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!hasSnapshot() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            describeQueries(manager, before);
+        }
+        assertTrue(hasSnapshot());
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            Map<String, List<Long>> after = new HashMap<>();
+            describeQueries(manager, after);
+            assertEquals(before, after);
+            manager.deleteSnippet(3);
+            manager.editSnippet(51, new CodeSnippet("small", "", "class Renamed {}", "java", new HashSet<>()));
+            assertTrue(manager.findDefinitions("small").isEmpty());
+            assertEquals(Collections.singletonList(51L), ids(manager.findDefinitions("renamed")));
+            assertTrue(manager.findDefinitions("big2").isEmpty());
+        }
+    }
+
+    private boolean hasSnapshot() throws java.io.IOException {
+        try (java.nio.file.DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            return stream.iterator().hasNext();
+        }
+    }
+
+    private static void describeQueries(SnippetManager manager, Map<String, List<Long>> results) {
+        results.put("search", ids(manager.searchSnippets("return 'xx")));
+        results.put("definitions", ids(manager.findDefinitions("big17")));
+        results.put("classes", ids(manager.findDefinitions("Small")));
+        List<Long> ranked = new ArrayList<>();
+        for (SearchHit hit : manager.rankedSearch("big17", 3)) {
+            ranked.add(hit.getSnippet().getId());
+        }
+        results.put("ranked", ranked);
+        results.put("clusters", Collections.singletonList((long) manager.findDuplicateClusters().size()));
+    }
+
+    private static CodeSnippet mapped(long id, String code, AtomicInteger loads) {
+        CodeBody body = new CodeBody() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                return code;
+            }
+
+            @Override
+            public byte[] bytes() {
+                return code.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public int length() {
+                return code.length();
+            }
+        };
+        return new CodeSnippet(id, "snippet " + id, "", body, "python", new String[0], 0, 0);
+    }
+
+    private static List<Long> ids(List<CodeSnippet> snippets) {
+        List<Long> ids = new ArrayList<>();
+        for (CodeSnippet snippet : snippets) {
+            ids.add(snippet.getId());
+        }
+        return ids;
+    }
+}
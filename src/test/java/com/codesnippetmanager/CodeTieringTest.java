@@ -0,0 +1,84 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeTieringTest {
+    @Test
+    void sweepExpandsHotBodiesWithoutTouchingTheCache() {
+        List<CodeSnippet> library = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            library.add(snippet(i));
+        }
+        try (CodeTiering tiering = new CodeTiering(() -> new ArrayList<>(library))) {
+            tiering.sweep();
+            assertEquals(3, tiering.getDeflatedCount());
+
+            // Cached on the first read, then hot enough to be expanded by the next sweep
+            CodeSnippet hot = library.get(0);
+            String code = hot.getCode();
+            for (int i = 1; i < 10; i++) {
+                assertEquals(code, hot.getCode());
+            }
+            assertEquals(1, tiering.getCacheMisses());
+            assertEquals(9, tiering.getCacheHits());
+            assertEquals(code.length(), tiering.getCacheChars());
+
+            tiering.sweep();
+            assertEquals(code, hot.getCodeHolder());
+            assertEquals(2, tiering.getDeflatedCount());
+            assertEquals(1, tiering.getCacheMisses(), "sweeping is not a read");
+            assertEquals(9, tiering.getCacheHits());
+            assertEquals(0, tiering.getCacheChars(), "an expanded body leaves the cache");
+        }
+    }
+
+    @Test
+    void sweepEvictsBodiesNoSnippetHolds() {
+        List<CodeSnippet> library = new ArrayList<>();
+        library.add(snippet(0));
+        library.add(snippet(1));
+        try (CodeTiering tiering = new CodeTiering(() -> new ArrayList<>(library))) {
+            tiering.sweep();
+            library.get(0).getCode();
+            library.get(1).getCode();
+            long cached = tiering.getCacheChars();
+            assertTrue(cached > 0);
+
+            // An edit replaces the snippet, and a delete drops it
+            library.set(0, snippet(2));
+            library.remove(1);
+            tiering.sweep();
+            assertEquals(0, tiering.getCacheChars());
+            assertEquals(library.get(0).getCodeLength(), library.get(0).getCode().length());
+            assertEquals(library.get(0).getCodeLength(), tiering.getCacheChars());
+        }
+    }
+
+    @Test
+    void sweepLeavesBodiesWithUnpairedSurrogatesPlain() {
+        List<CodeSnippet> library = new ArrayList<>();
+        String lone = snippet(0).getCode() + "String broken = \"\uD83D\";\n";
+        String paired = snippet(1).getCode() + "String smile = \"\uD83D\uDE00\";\n";
+        library.add(new CodeSnippet(0, "lone", "", lone, "java", new HashSet<>(), 0, 0));
+        library.add(new CodeSnippet(1, "paired", "", paired, "java", new HashSet<>(), 0, 0));
+        try (CodeTiering tiering = new CodeTiering(() -> new ArrayList<>(library))) {
+            tiering.sweep();
+            assertEquals(1, tiering.getDeflatedCount());
+            assertEquals(lone, library.get(0).getCodeHolder(), "a lone surrogate would come back as '?'");
+            assertEquals(lone, library.get(0).getCode());
+            assertEquals(paired, library.get(1).getCode());
+        }
+    }
+
+    private static CodeSnippet snippet(long id) {
+        StringBuilder code = new StringBuilder();
+        for (int line = 0; line < 100; line++) {
+            code.append("    int value").append(line).append(" = compute(").append(id).append(", ").append(line).append(");\n");
+        }
+        return new CodeSnippet(id, "snippet " + id, "", code.toString(), "java", new HashSet<>(), 0, 0);
+    }
+}
@@ -0,0 +1,231 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopeningReplaysEveryChange() throws IOException {
+        List<String> before;
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            long first = manager.addSnippet(snippet("first", "a"));
+            long second = manager.addSnippet(snippet("second", "b"));
+            manager.addAll(Arrays.asList(snippet("third", "c"), snippet("fourth", "d")));
+            manager.editSnippet(first, snippet("first, edited", "a2"));
+            manager.deleteSnippet(second);
+            manager.undo();
+            manager.undo();
+            manager.redo();
+            before = describe(manager);
+        }
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+            assertEquals(5, manager.addSnippet(snippet("fifth", "e")), "ids continue after the highest used");
+        }
+    }
+
+    @Test
+    void tornTailIsDroppedAndAppendsContinue() throws IOException {
+        List<String> before;
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            manager.addSnippet(snippet("kept", "a"));
+            manager.addSnippet(snippet("also kept", "b"));
+            before = describe(manager);
+        }
+        // A crash in the middle of a record: a length prefix and part of the payload
+        Files.write(newestJournal(), new byte[] {0, 0, 1, 0, 7, 7, 7}, StandardOpenOption.APPEND);
+
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+            manager.addSnippet(snippet("after the crash", "c"));
+            before = describe(manager);
+        }
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+        }
+    }
+
+    @Test
+    void recordWithBadChecksumEndsReplay() throws IOException {
+        List<String> before;
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            manager.addSnippet(snippet("kept", "a"));
+            before = describe(manager);
+            manager.addSnippet(snippet("torn", "b"));
+        }
+        Path journal = newestJournal();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The last byte of the file is part of the last record's CRC
+            channel.truncate(channel.size() - 1);
+        }
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+        }
+    }
+
+    @Test
+    void compactionWritesASnapshotAndDropsOldGenerations() throws Exception {
+        String body = "x".repeat(100_000);
+        List<String> before;
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            // Enough to pass the 4 MB compaction threshold
+            for (int i = 0; i < 50; i++) {
+                manager.addSnippet(snippet("big " + i, body + i));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (files("snapshot-").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            manager.deleteSnippet(3);
+            manager.editSnippet(4, snippet("edited after the snapshot", "y"));
+            before = describe(manager);
+        }
+        assertEquals(1, files("snapshot-").size(), "one snapshot");
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+            assertEquals(body + 0, manager.getSnippet(1).getCode());
+        }
+        for (String name : files("")) {
+            assertFalse(name.contains("000001"), "generation 1 was deleted: " + name);
+        }
+    }
+
+    @Test
+    void deletedHighestIdIsNotReusedAfterCompaction() throws Exception {
+        String body = "x".repeat(100_000);
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            manager.addSnippet(snippet("kept", "a"));
+            manager.deleteSnippet(manager.addSnippet(snippet("deleted", "b")));
+            // Enough to pass the 4 MB compaction threshold, so the snapshot replaces the add of id 2
+            for (int i = 0; i < 50; i++) {
+                manager.editSnippet(1, snippet("kept", body + i));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (files("journal-000001").size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+        assertEquals(Collections.emptyList(), files("journal-000001"));
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(3, manager.addSnippet(snippet("new", "c")));
+        }
+    }
+
+    @Test
+    void syncRacingJournalRollsNeverFails() throws Exception {
+        SnippetStore store = new SnippetStore();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean done = new AtomicBoolean();
+        try (CommandJournal journal = new CommandJournal(directory, store::toList, () -> 1, 4096)) {
+            Thread syncer = new Thread(() -> {
+                while (!done.get()) {
+                    try {
+                        journal.sync();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            syncer.start();
+            // A roll every few dozen records, each one closing the channel a sync may be forcing
+            for (long id = 1; id <= 2000; id++) {
+                AddSnippetCommand command = new AddSnippetCommand(store, snippet("s" + id, "code " + id).withId(id));
+                command.execute();
+                journal.append(CommandJournal.ORIGIN_EXECUTE, command, false);
+            }
+            done.set(true);
+            syncer.join();
+        }
+        assertEquals(Collections.emptyList(), failures);
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(2000, manager.size());
+        }
+    }
+
+    @Test
+    void unpairedSurrogatesSurviveARestartAndASnapshot() throws IOException {
+        List<String> before;
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            manager.addSnippet(new CodeSnippet("half \uD83D", "\uDE00 low", "String s = \"\uD83D\";", "Java",
+                new HashSet<>(Arrays.asList("\uDBFF", "ok"))));
+            manager.addSnippet(snippet("paired \uD83D\uDE00", "char c = '\uDC00';"));
+            manager.addSnippet(snippet("plain", "int x;"));
+            before = describe(manager);
+        }
+        try (SnippetManager manager = new SnippetManager(directory)) {
+            assertEquals(before, describe(manager));
+
+            Path file = directory.resolve("copy.bin");
+            SnapshotFile.write(file, manager.getAllSnippets(), 4);
+            SnapshotFile.Contents contents = SnapshotFile.read(file);
+            assertEquals(4, contents.nextId);
+            assertEquals(manager.getAllSnippets(), contents.snippets);
+            for (int i = 0; i < contents.snippets.size(); i++) {
+                assertEquals(manager.getAllSnippets().get(i).getCode(), contents.snippets.get(i).getCode());
+            }
+        }
+    }
+
+    @Test
+    void timestampsSurviveAChangeOfTimeZone() throws IOException {
+        TimeZone zone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            try (SnippetManager manager = new SnippetManager(directory)) {
+                // 01:30 on the day clocks go back happens twice in New York
+                manager.addSnippet(new CodeSnippet(0, "twice", "", "a", "java", Collections.emptyList(),
+                    1699162200000L, 1699165800000L));
+            }
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            try (SnippetManager manager = new SnippetManager(directory)) {
+                CodeSnippet snippet = manager.getSnippet(1);
+                assertEquals(1699162200000L, snippet.getCreatedAtMillis());
+                assertEquals(1699165800000L, snippet.getLastModifiedMillis());
+            }
+        } finally {
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    private Path newestJournal() throws IOException {
+        List<String> journals = files("journal-");
+        return directory.resolve(journals.get(journals.size() - 1));
+    }
+
+    private List<String> files(String prefix) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path path : stream) {
+                names.add(path.getFileName().toString());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    static CodeSnippet snippet(String title, String code) {
+        return new CodeSnippet(title, "about " + title, code, "java", new HashSet<>(Arrays.asList("tag", title)));
+    }
+
+    // Everything persisted about each snippet, in id order
+    static List<String> describe(SnippetManager manager) {
+        List<String> result = new ArrayList<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            result.add(snippet.getId() + "|" + snippet.getTitle() + "|" + snippet.getDescription() + "|"
+                + snippet.getCode() + "|" + snippet.getLanguage() + "|" + new TreeSet<>(snippet.getTags()) + "|"
+                + snippet.getCreatedAtMillis() + "|" + snippet.getLastModifiedMillis());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Writers on their own sessions change the library while readers query it. Every result a
+ * reader gets must be consistent on its own, and once the writers stop, the indexes, the
+ * statistics and the store must all describe the same library.
+ */
+class ConcurrencyTest {
+    private static final String[] LANGUAGES = {"Java", "Python", "Go", "Rust"};
+
+    @Test
+    void readersSeeConsistentResultsWhileWritersRun() throws Exception {
+        stress(new SnippetManager());
+    }
+
+    @Test
+    void shardedReadersSeeConsistentResultsWhileWritersRun() throws Exception {
+        try (ShardedSnippetManager manager = new ShardedSnippetManager(3)) {
+            stress(manager);
+        }
+    }
+
+    private static void stress(SnippetManager manager) throws Exception {
+        for (int i = 0; i < 200; i++) {
+            manager.addSnippet(snippet(new Random(i)));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService threads = Executors.newFixedThreadPool(6);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            int seed = w;
+            tasks.add(threads.submit(() -> write(manager, new Random(seed), 1500)));
+        }
+        for (int r = 0; r < 3; r++) {
+            tasks.add(threads.submit(() -> {
+                while (running.get()) {
+                    read(manager);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> writer : tasks.subList(0, 3)) {
+                writer.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            for (Future<?> reader : tasks.subList(3, 6)) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+            threads.shutdownNow();
+        }
+
+        List<CodeSnippet> all = manager.getAllSnippets();
+        assertEquals(manager.size(), all.size());
+        for (SortKey key : SortKey.values()) {
+            List<CodeSnippet> expected = new ArrayList<>(all);
+            expected.sort(key.comparator());
+            assertEquals(expected, manager.getSortedSnippets(key, false), key.name());
+            Collections.reverse(expected);
+            assertEquals(expected, manager.getSortedSnippets(key, true), key.name() + " descending");
+        }
+        SnippetStatistics statistics = manager.getStatistics();
+        assertEquals(all.size(), statistics.getSnippetCount());
+        Map<String, Long> languages = new HashMap<>();
+        long codeLength = 0;
+        for (CodeSnippet snippet : all) {
+            languages.merge(snippet.getLanguage(), 1L, Long::sum);
+            codeLength += snippet.getCode().length();
+        }
+        assertEquals(languages, new HashMap<>(statistics.getLanguageCounts()));
+        assertEquals(codeLength, statistics.getTotalCodeLength());
+        SearchIndexTest.assertMatchesScan(manager, "code", "java", "word1", "7", "title 3", "");
+    }
+
+    private static Void write(SnippetManager manager, Random random, int steps) {
+        SnippetSession session = manager.openSession();
+        List<Long> mine = new ArrayList<>();
+        for (int step = 0; step < steps; step++) {
+            int op = random.nextInt(10);
+            if (op < 3 || mine.isEmpty()) {
+                mine.add(session.addSnippet(snippet(random)));
+            } else if (op < 5) {
+                session.editSnippet(mine.get(random.nextInt(mine.size())), snippet(random));
+            } else if (op < 6) {
+                session.deleteSnippet(mine.remove(random.nextInt(mine.size())));
+            } else if (op < 7) {
+                mine.addAll(session.addAll(Arrays.asList(snippet(random), snippet(random))));
+            } else if (op < 9) {
+                session.undo();
+            } else {
+                session.redo();
+            }
+        }
+        return null;
+    }
+
+    private static void read(SnippetManager manager) {
+        List<CodeSnippet> all = manager.getAllSnippets();
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId(), "getAllSnippets is in id order");
+        }
+        for (SortKey key : SortKey.values()) {
+            List<CodeSnippet> sorted = manager.getSortedSnippets(key, key.ordinal() % 2 == 0);
+            Comparator<CodeSnippet> order = key.ordinal() % 2 == 0 ? key.comparator().reversed() : key.comparator();
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < sorted.size(); i++) {
+                assertTrue(ids.add(sorted.get(i).getId()), "no snippet twice");
+                if (i > 0) assertTrue(order.compare(sorted.get(i - 1), sorted.get(i)) < 0, key.name() + " is sorted");
+            }
+        }
+        for (CodeSnippet hit : manager.searchSnippets("word1")) {
+            assertTrue(hit.contains("word1"));
+        }
+        SnippetStatistics statistics = manager.getStatistics();
+        assertTrue(statistics.getSnippetCount() >= 0);
+        manager.rankedSearch("code java", 5);
+    }
+
+    private static CodeSnippet snippet(Random random) {
+        StringBuilder code = new StringBuilder("code");
+        for (int i = random.nextInt(8); i > 0; i--) {
+            code.append(" word").append(random.nextInt(20));
+        }
+        return new CodeSnippet("title " + random.nextInt(50), "", code.toString(),
+            LANGUAGES[random.nextInt(LANGUAGES.length)], new HashSet<>(Collections.singleton("t" + random.nextInt(5))));
+    }
+}
@@ -0,0 +1,153 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedSearchTest {
+    @Test
+    void andBindsTighterThanOrAndParenthesesGroup() {
+        SnippetManager manager = library();
+        assertEquals(set(3, 4, 5), matches(manager, "binary tree OR sort"));
+        assertEquals(set(3, 4, 5), matches(manager, "binary AND tree OR sort"));
+        assertEquals(set(5), matches(manager, "binary (tree OR sort)"));
+        assertEquals(set(1, 3, 4, 5), matches(manager, "(binary OR sort) (tree OR search OR sort)"));
+
+        SnippetQuery.Or or = (SnippetQuery.Or) SnippetQuery.parse("a b OR c");
+        assertTrue(or.getClauses().get(0) instanceof SnippetQuery.And);
+        assertEquals("c", ((SnippetQuery.Term) or.getClauses().get(1)).getText());
+        SnippetQuery.And and = (SnippetQuery.And) SnippetQuery.parse("a (b OR c)");
+        assertTrue(and.getClauses().get(1) instanceof SnippetQuery.Or);
+    }
+
+    @Test
+    void notAndMinusExclude() {
+        SnippetManager manager = library();
+        assertEquals(set(2, 6), matches(manager, "search NOT binary"));
+        assertEquals(set(2, 6), matches(manager, "search -binary"));
+        assertEquals(set(2, 3, 4, 6), matches(manager, "-binary"));
+        assertEquals(set(2, 3, 4, 6), matches(manager, "NOT binary"));
+        assertEquals(set(1, 5), matches(manager, "search -(lang:python OR lang:go)"));
+        assertEquals(set(6), matches(manager, "search NOT NOT lang:go"));
+
+        // A hyphen inside a word is part of it, not an operator
+        SnippetQuery.Term term = (SnippetQuery.Term) SnippetQuery.parse("pre-order");
+        assertEquals("pre-order", term.getText());
+    }
+
+    @Test
+    void fieldFiltersMatchExactlyAndPhrasesInOrder() {
+        SnippetManager manager = library();
+        assertEquals(set(2, 4), matches(manager, "lang:python"));
+        assertEquals(set(3), matches(manager, "lang:Java sort"));
+        assertEquals(set(), matches(manager, "lang:jav"));
+        assertEquals(set(3, 4), matches(manager, "tag:sorting"));
+        assertEquals(set(3, 4), matches(manager, "TAG:Sorting"));
+        assertEquals(set(), matches(manager, "tag:sort"), "tags match whole");
+        assertEquals(set(1), matches(manager, "title:\"binary search\""));
+        assertEquals(set(), matches(manager, "title:\"search binary\""));
+        assertEquals(set(1, 2), matches(manager, "title:search"));
+        assertEquals(set(1, 2, 5, 6), matches(manager, "search"));
+        assertEquals(set(5), matches(manager, "desc:search"));
+        assertEquals(set(1, 6), matches(manager, "code:search lang:java OR code:buckets"));
+
+        SnippetQuery.Term phrase = (SnippetQuery.Term) SnippetQuery.parse("title:\"binary search\"");
+        assertEquals(SnippetQuery.Field.TITLE, phrase.getField());
+        assertEquals("binary search", phrase.getText());
+        assertTrue(phrase.isPhrase());
+        SnippetQuery.Term unknown = (SnippetQuery.Term) SnippetQuery.parse("std::map");
+        assertEquals(SnippetQuery.Field.ANY, unknown.getField());
+    }
+
+    @Test
+    void malformedQueriesAreRejectedWithAReason() {
+        SnippetManager manager = library();
+        assertRejected(manager, "", "Query ended unexpectedly");
+        assertRejected(manager, "sort OR", "Query ended unexpectedly");
+        assertRejected(manager, "NOT", "Query ended unexpectedly");
+        assertRejected(manager, "(binary OR sort", "Missing ')' in query");
+        assertRejected(manager, "binary)", "Unexpected ')' in query");
+        assertRejected(manager, "()", "Unexpected ')' in query");
+        assertRejected(manager, "title:", "Missing search term in query");
+        assertRejected(manager, "lang:\"\"", "Missing search term in query");
+    }
+
+    @Test
+    void scoresDescendAndSmallerLimitsArePrefixes() {
+        SnippetManager manager = library();
+        List<SearchHit> search = manager.rankedSearch("search", 10);
+        assertEquals(set(1, 2), ids(search.subList(0, 2)), "title hits outrank description and code hits");
+
+        Random random = new Random(3);
+        String[] words = {"binary", "search", "sort", "tree", "list", "map", "merge", "quick", "node", "key"};
+        for (int i = 0; i < 300; i++) {
+            StringBuilder code = new StringBuilder();
+            for (int w = random.nextInt(30); w >= 0; w--) {
+                code.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            manager.addSnippet(new CodeSnippet(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)],
+                "", code.toString(), random.nextBoolean() ? "java" : "go", new HashSet<>()));
+        }
+        for (String query : new String[] {"search", "binary search", "sort OR tree", "node -key", "lang:go merge", "lang:java"}) {
+            List<SearchHit> all = manager.rankedSearch(query, 1000);
+            assertFalse(all.isEmpty(), query);
+            for (int i = 1; i < all.size(); i++) {
+                assertTrue(all.get(i - 1).getScore() >= all.get(i).getScore(), query);
+            }
+            for (int k : new int[] {0, 1, 2, 5, 17, all.size()}) {
+                List<SearchHit> top = manager.rankedSearch(query, k);
+                assertEquals(order(all.subList(0, Math.min(k, all.size()))), order(top), query + " limit " + k);
+            }
+        }
+    }
+
+    private static SnippetManager library() {
+        SnippetManager manager = new SnippetManager();
+        add(manager, "Binary search", "Find a key in a sorted array", "int binarySearch(int[] a, int key) {}", "Java", "search", "arrays");
+        add(manager, "Linear search", "", "def linear_search(items, key): pass", "Python", "search");
+        add(manager, "Quick sort", "", "void quickSort(int[] a) {}", "Java", "sorting");
+        add(manager, "Merge sort", "", "def merge_sort(items): pass", "Python", "sorting");
+        add(manager, "Binary tree", "A search tree", "class Node {}", "Java", "trees");
+        add(manager, "Hash map", "", "// search in buckets", "Go");
+        return manager;
+    }
+
+    private static void add(SnippetManager manager, String title, String description, String code, String language, String... tags) {
+        manager.addSnippet(new CodeSnippet(title, description, code, language, new LinkedHashSet<>(Arrays.asList(tags))));
+    }
+
+    private static void assertRejected(SnippetManager manager, String query, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> manager.rankedSearch(query, 10));
+        assertEquals(message, e.getMessage(), query);
+    }
+
+    private static Set<Long> matches(SnippetManager manager, String query) {
+        return ids(manager.rankedSearch(query, 100));
+    }
+
+    private static Set<Long> ids(List<SearchHit> hits) {
+        Set<Long> ids = new TreeSet<>();
+        for (SearchHit hit : hits) {
+            ids.add(hit.getSnippet().getId());
+        }
+        return ids;
+    }
+
+    private static List<Long> order(List<SearchHit> hits) {
+        List<Long> ids = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            ids.add(hit.getSnippet().getId());
+        }
+        return ids;
+    }
+
+    private static Set<Long> set(long... ids) {
+        Set<Long> set = new TreeSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
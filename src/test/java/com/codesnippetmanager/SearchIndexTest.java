@@ -0,0 +1,186 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * searchSnippets must return exactly what the original full scan did: every snippet with
+ * a field whose toLowerCase() contains the lowercased query, in id order. Each test keeps
+ * the index in step through adds, edits, deletes, batches, undo and redo, and compares it
+ * with that scan after every few changes.
+ */
+class SearchIndexTest {
+    private static final String[] WORDS = {
+        "Binary", "search", "sort", "QuickSort", "list", "map", "HashMap", "print", "def", "class",
+        "x", "i", "io", "a1", "fooBar", "SELECT", "from", "where", "->", "::", "{}", "()", "a.b", "2024", "_tmp"
+    };
+    private static final String[] QUERIES = {
+        "", "a", "i", "x", "io", "so", "sor", "sort", "SORT", "quicksort", "map", "hashmap", "shm", "ck", "->",
+        "::", "{", "()", ".", "a.b", "20", "2024", "_t", "r s", "binary search", "missing", "zzz", " "
+    };
+
+    @Test
+    void matchesFullScanThroughEveryKindOfChange() {
+        Random random = new Random(1);
+        SnippetManager manager = new SnippetManager();
+        SnippetSession other = manager.openSession();
+        for (int step = 0; step < 600; step++) {
+            List<CodeSnippet> all = manager.getAllSnippets();
+            int op = random.nextInt(12);
+            if (op < 4 || all.isEmpty()) {
+                manager.addSnippet(randomSnippet(random));
+            } else if (op < 6) {
+                manager.editSnippet(all.get(random.nextInt(all.size())).getId(), randomSnippet(random));
+            } else if (op < 7) {
+                manager.deleteSnippet(all.get(random.nextInt(all.size())).getId());
+            } else if (op < 8) {
+                other.addAll(Arrays.asList(randomSnippet(random), randomSnippet(random), randomSnippet(random)));
+            } else if (op < 10) {
+                if (random.nextBoolean()) {
+                    other.undo();
+                } else {
+                    manager.undo();
+                }
+            } else if (random.nextBoolean()) {
+                other.redo();
+            } else {
+                manager.redo();
+            }
+            if (step % 20 == 0) {
+                assertMatchesScan(manager, QUERIES);
+            }
+        }
+        assertMatchesScan(manager, QUERIES);
+    }
+
+    @Test
+    void pagesConcatenateToTheFullResult() {
+        Random random = new Random(2);
+        SnippetManager manager = new SnippetManager();
+        for (int i = 0; i < 300; i++) {
+            manager.addSnippet(randomSnippet(random));
+        }
+        for (int i = 0; i < 60; i++) {
+            manager.deleteSnippet(1 + random.nextInt(300));
+        }
+        for (String query : QUERIES) {
+            List<CodeSnippet> paged = new ArrayList<>();
+            SnippetPage page = manager.searchPage(query, null, 7);
+            paged.addAll(page.getSnippets());
+            while (page.hasMore()) {
+                page = manager.searchPage(query, page.getNextCursor(), 7);
+                paged.addAll(page.getSnippets());
+            }
+            assertEquals(manager.searchSnippets(query), paged, "paging '" + query + "'");
+        }
+    }
+
+    @Test
+    void idsPastTheIntRangeAreFoundByEveryIndex() {
+        SnippetManager manager = new SnippetManager();
+        SnippetSession session = manager.openSession();
+        long big = Integer.MAX_VALUE + 10L;
+        manager.addSnippet(session, new CodeSnippet("small", "", "int binarySearch() {}", "java", new HashSet<>()), 5);
+        manager.addSnippet(session, new CodeSnippet("large", "", "int binarySearch() {}", "java", new HashSet<>()), big);
+        manager.addSnippet(session, new CodeSnippet("larger", "", "def quickSort(): pass", "python", new HashSet<>()), big * 2);
+
+        assertEquals(Arrays.asList(5L, big), ids(manager.searchSnippets("binarysearch")));
+        assertEquals(Collections.singletonList(big * 2), ids(manager.searchSnippets("quicksort")));
+        assertEquals(2, manager.rankedSearch("binarySearch", 10).size());
+        assertEquals(Collections.singletonList(big * 2), ids(manager.fuzzySearch("lrager", 10)));
+        assertEquals(Arrays.asList(5L, big), ids(manager.findDefinitions("binarySearch")));
+        assertEquals(1, manager.findDuplicateClusters().size());
+
+        session.deleteSnippet(big);
+        assertEquals(Collections.singletonList(5L), ids(manager.searchSnippets("binarysearch")));
+        session.undo();
+        assertMatchesScan(manager, "binary", "sort", "large", "");
+    }
+
+    @Test
+    void specialCasingMatchesWholeTextLowercasing() {
+        // Capital I with dot lowercases to two chars, capital sigma by context, the Kelvin
+        // sign to k and surrogate pairs as one code point, while long s and dotless i stay put
+        String[] texts = {
+            "\u0130stanbul", "istanbul", "ISTANBUL", "i\u0307stanbul", "\u03a3\u039f\u03a6\u0399\u0391\u03a3 x",
+            "\u03c3\u03bf\u03c6\u03af\u03b1", "\u017ftrong", "strong", "\u212a kelvin", "\ud801\udc00 deseret",
+            "\u0131\u0130", "plain ascii"
+        };
+        String[] queries = {
+            "\u0130", "i", "istanbul", "\u0130stanbul", "ISTANBUL", "i\u0307", "\u0307s", "\u03c3", "\u03c2",
+            "\u03c3 x", "\u03c2 x", "\u03a3\u039f", "\u017f", "s", "st", "k", "k kel", "\u212a", "\ud801\udc28",
+            "\ud801\udc28 des", "\u0131", "ascii", "sci"
+        };
+        Locale locale = Locale.getDefault();
+        try {
+            // The index lowercases as snippets are added, so each locale gets its own library
+            for (Locale each : new Locale[] {Locale.ROOT, new Locale("tr", "TR")}) {
+                Locale.setDefault(each);
+                SnippetManager manager = new SnippetManager();
+                for (String text : texts) {
+                    manager.addSnippet(new CodeSnippet(text, "", "code", "text", new HashSet<>()));
+                }
+                assertMatchesScan(manager, queries);
+                for (CodeSnippet snippet : manager.getAllSnippets()) {
+                    for (String query : queries) {
+                        String q = query.toLowerCase();
+                        assertEquals(snippet.getTitle().toLowerCase().contains(q), snippet.contains(q),
+                            () -> each + ": '" + snippet.getTitle() + "' contains '" + query + "'");
+                    }
+                }
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    static void assertMatchesScan(SnippetManager manager, String... queries) {
+        for (String query : queries) {
+            assertEquals(scan(manager.getAllSnippets(), query), manager.searchSnippets(query), "query '" + query + "'");
+        }
+    }
+
+    // The search the index replaced
+    static List<CodeSnippet> scan(List<CodeSnippet> snippets, String query) {
+        String q = query.toLowerCase();
+        List<CodeSnippet> results = new ArrayList<>();
+        for (CodeSnippet snippet : snippets) {
+            if (snippet.getTitle().toLowerCase().contains(q) ||
+                snippet.getDescription().toLowerCase().contains(q) ||
+                snippet.getCode().toLowerCase().contains(q) ||
+                snippet.getLanguage().toLowerCase().contains(q) ||
+                snippet.getTags().stream().anyMatch(tag -> tag.toLowerCase().contains(q))) {
+                results.add(snippet);
+            }
+        }
+        return results;
+    }
+
+    private static List<Long> ids(List<CodeSnippet> snippets) {
+        List<Long> ids = new ArrayList<>();
+        for (CodeSnippet snippet : snippets) {
+            ids.add(snippet.getId());
+        }
+        return ids;
+    }
+
+    private static CodeSnippet randomSnippet(Random random) {
+        Set<String> tags = new HashSet<>();
+        for (int i = random.nextInt(3); i > 0; i--) {
+            tags.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return new CodeSnippet(text(random, 3), text(random, 6), text(random, 40),
+            random.nextBoolean() ? "Java" : "python", tags);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = random.nextInt(words + 1); i > 0; i--) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(4) == 0 ? "\n" : " ");
+        }
+        return text.toString();
+    }
+}
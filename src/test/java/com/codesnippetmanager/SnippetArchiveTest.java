@@ -0,0 +1,116 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetArchiveTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void jsonLinesRoundTripExactly() throws IOException {
+        List<CodeSnippet> library = library();
+        // UTF-8 has no encoding for a lone surrogate, so only JSON Lines can carry one
+        library.add(new CodeSnippet(0, "lone surrogate", "", "String broken = \"\uD83D\";", "Java",
+            new HashSet<>(), 1_000, 2_000));
+        assertRoundTrip(library, SnippetArchive.Format.JSON_LINES, "library.jsonl");
+        assertRoundTrip(library, SnippetArchive.Format.JSON_LINES_GZIP, "library.jsonl.gz");
+    }
+
+    @Test
+    void zipRoundTrips() throws IOException {
+        assertRoundTrip(library(), SnippetArchive.Format.ZIP, "library.zip");
+    }
+
+    @Test
+    void zipEntriesOutsideTheManifestAreIgnored() throws IOException {
+        Path file = directory.resolve("hand-made.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            put(zip, "manifest/000000.jsonl", "{\"title\":\"hello\",\"path\":\"Python/1-hello.py\",\"language\":\"Python\","
+                + "\"tags\":[\"greeting\"],\"createdAt\":\"2024-01-02T03:04:05Z\"}\n");
+            put(zip, "README.md", "Not a snippet");
+            put(zip, "Python/1-hello.py", "print('hello')\n");
+        }
+        SnippetManager manager = new SnippetManager();
+        assertEquals(1, new SnippetArchive(manager, 2).importFile(file));
+        CodeSnippet snippet = manager.getAllSnippets().get(0);
+        assertEquals("print('hello')\n", snippet.getCode());
+        assertEquals("", snippet.getDescription());
+        assertEquals(Collections.singleton("greeting"), snippet.getTags());
+        assertEquals(1_704_164_645_000L, snippet.getCreatedAtMillis());
+        assertEquals(snippet.getCreatedAtMillis(), snippet.getLastModifiedMillis(), "lastModified defaults to createdAt");
+    }
+
+    @Test
+    void malformedLineIsReportedByNumber() throws IOException {
+        Path file = directory.resolve("broken.jsonl");
+        Files.write(file, Arrays.asList(
+            "{\"title\":\"fine\",\"code\":\"x\",\"language\":\"Go\"}",
+            "",
+            "{\"title\":\"no code\",\"language\":\"Go\"}"), StandardCharsets.UTF_8);
+        SnippetManager manager = new SnippetManager();
+        IOException e = assertThrows(IOException.class, () -> new SnippetArchive(manager, 2).importFile(file));
+        assertTrue(e.getMessage().startsWith("Line 3: "), e.getMessage());
+        assertTrue(e.getMessage().contains("code"), e.getMessage());
+    }
+
+    private void assertRoundTrip(List<CodeSnippet> library, SnippetArchive.Format format, String name) throws IOException {
+        SnippetManager source = new SnippetManager();
+        source.addAll(library);
+        Path file = directory.resolve(name);
+        assertEquals(library.size(), new SnippetArchive(source, 3).exportFile(source.getAllSnippets(), file, format));
+        assertEquals(format, SnippetArchive.Format.forFile(file));
+
+        SnippetManager target = new SnippetManager();
+        assertEquals(library.size(), new SnippetArchive(target, 3).importFile(file));
+        assertEquals(describe(source), describe(target), format.toString());
+
+        // Every batch of the import undoes in one step
+        assertTrue(target.undo());
+        assertEquals(0, target.size(), format.toString());
+        assertFalse(target.undo());
+    }
+
+    // Enough snippets for several batches, with text that needs escaping
+    private static List<CodeSnippet> library() {
+        List<CodeSnippet> library = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            String code = "print(\"snippet " + i + "\")\n\tif a \\ b:\r\n    pass\n";
+            Set<String> tags = new LinkedHashSet<>(Arrays.asList("tag" + (i % 5), "shared"));
+            library.add(new CodeSnippet(0, "Snippet \"" + i + "\"", "line one\nline two", code, "Python", tags,
+                1_600_000_000_000L + i, 1_700_000_000_000L + i));
+        }
+        library.add(new CodeSnippet(0, "Gr\u00FC\u00DFe, \u65E5\u672C\u8A9E \uD83D\uDE00", "na\u00EFve caf\u00E9",
+            "// \u00BD \u2192 \u221E \uD83D\uDE00\nlet s = \"\u00FC\";", "Rust",
+            new LinkedHashSet<>(Arrays.asList("\u00FCn\u00EFcode", "\u7D75\u6587\u5B57")), 1_000, 2_000));
+        library.add(new CodeSnippet(0, "no tags", "", "", "", new HashSet<>(), 3_000, 3_000));
+        return library;
+    }
+
+    // Everything an export carries about each snippet, in id order
+    private static List<String> describe(SnippetManager manager) {
+        List<String> result = new ArrayList<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            result.add(snippet.getTitle() + "|" + snippet.getDescription() + "|" + snippet.getCode() + "|"
+                + snippet.getLanguage() + "|" + snippet.getTags() + "|" + snippet.getCreatedAtMillis() + "|"
+                + snippet.getLastModifiedMillis());
+        }
+        return result;
+    }
+
+    private static void put(ZipOutputStream zip, String name, String text) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(text.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
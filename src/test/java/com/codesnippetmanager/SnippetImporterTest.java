@@ -0,0 +1,93 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void importsEverySourceFileAsOneUndoStep() throws IOException {
+        Path root = directory.resolve("project");
+        // More than two batches, so reads, adds and the walk overlap
+        int files = 1300;
+        for (int i = 0; i < files; i++) {
+            write(root.resolve("src/p" + (i % 7) + "/F" + i + ".java"), "class F" + i + " {}");
+        }
+        write(root.resolve(".git/hidden.java"), "not imported");
+        write(root.resolve("notes.txt"), "no language");
+        Files.createDirectories(root);
+        Files.write(root.resolve("binary.c"), new byte[] {(byte) 0xff, (byte) 0xfe, 0});
+        write(root.resolve("big.py"), "x".repeat((int) SnippetImporter.MAX_FILE_SIZE + 1));
+
+        SnippetManager manager = new SnippetManager();
+        long before = manager.addSnippet(CommandJournalTest.snippet("already there", "a"));
+        SnippetImporter importer = new SnippetImporter(manager, 3);
+        importer.importDirectory(root);
+
+        assertEquals(files, importer.getImported());
+        assertEquals(2, importer.getSkipped());
+        assertEquals(files + 1, manager.size());
+        Set<String> titles = new HashSet<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            titles.add(snippet.getTitle());
+        }
+        assertTrue(titles.contains("src/p3/F10.java"));
+        assertEquals(Collections.singletonList("project"),
+            new ArrayList<>(manager.getSnippet(before + files).getTags()));
+
+        assertTrue(manager.undo(), "the whole import is one step");
+        assertEquals(Collections.singletonList(before), ids(manager));
+        assertTrue(manager.redo());
+        assertEquals(files + 1, manager.size());
+        assertTrue(manager.undo());
+        assertTrue(manager.undo(), "the add before the import is the next step");
+        assertTrue(manager.getAllSnippets().isEmpty());
+    }
+
+    @Test
+    void importsIntoAShardedLibrary() throws IOException {
+        Path root = directory.resolve("project");
+        // More than two batches, each split over every shard
+        for (int i = 0; i < 1100; i++) {
+            write(root.resolve("F" + i + ".go"), "package f" + i);
+        }
+        try (ShardedSnippetManager manager = new ShardedSnippetManager(3)) {
+            SnippetImporter importer = new SnippetImporter(manager, 2);
+            importer.importDirectory(root);
+            assertEquals(1100, importer.getImported());
+            assertEquals(1100, manager.size());
+            assertEquals(1, manager.searchSnippets("package f599").size());
+
+            assertTrue(manager.undo(), "the whole import is one step");
+            assertEquals(0, manager.size());
+            assertFalse(manager.undo());
+            assertTrue(manager.redo());
+            assertEquals(1100, manager.size());
+            assertTrue(manager.undo());
+            assertEquals(0, manager.size());
+        }
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> ids(SnippetManager manager) {
+        List<Long> ids = new ArrayList<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            ids.add(snippet.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,146 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void unchangedLibraryAnswersIfNoneMatchWith304() throws Exception {
+        SnippetManager manager = new SnippetManager();
+        SnippetServer server = start(manager);
+        try {
+            long id = manager.addSnippet(new CodeSnippet("first", "", "a", "Java", new HashSet<>()));
+            HttpResponse<String> first = get(server, "/snippets/" + id, null);
+            assertEquals(200, first.statusCode());
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+
+            HttpResponse<String> again = get(server, "/snippets/" + id, etag);
+            assertEquals(304, again.statusCode());
+            assertEquals("", again.body());
+            assertEquals(304, get(server, "/snippets", etag).statusCode(), "one version covers every GET");
+
+            manager.addSnippet(new CodeSnippet("second", "", "b", "Java", new HashSet<>()));
+            HttpResponse<String> changed = get(server, "/snippets/" + id, etag);
+            assertEquals(200, changed.statusCode());
+            assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void cursorPagesWalkTheSortedLibrary() throws Exception {
+        SnippetManager manager = new SnippetManager();
+        SnippetServer server = start(manager);
+        try {
+            List<String> titles = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                String title = "title " + (char) ('g' - i);
+                manager.addSnippet(new CodeSnippet(title, "", "code", "Go", new HashSet<>()));
+                titles.add(title);
+            }
+            Collections.sort(titles);
+
+            List<String> paged = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                String path = "/snippets?sort=title&limit=3" + (cursor == null ? ""
+                    : "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+                HttpResponse<String> page = get(server, path, null);
+                assertEquals(200, page.statusCode());
+                for (Object snippet : (List<?>) Json.parse(page.body())) {
+                    paged.add((String) ((Map<?, ?>) snippet).get("title"));
+                }
+                cursor = page.headers().firstValue("X-Next-Cursor").orElse(null);
+                pages++;
+            } while (cursor != null);
+            assertEquals(titles, paged);
+            assertEquals(3, pages);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void undoOnlyRevertsTheSessionsOwnChanges() throws Exception {
+        SnippetManager manager = new SnippetManager();
+        SnippetServer server = start(manager);
+        try {
+            assertEquals(201, post(server, "/snippets", "alice", snippetJson("from alice")).statusCode());
+            assertEquals(201, post(server, "/snippets", "bob", snippetJson("from bob")).statusCode());
+
+            assertEquals("{\"done\":true}", post(server, "/undo", "alice", "").body());
+            assertEquals(Collections.singletonList("from bob"), titles(manager));
+            assertEquals("{\"done\":false}", post(server, "/undo", "alice", "").body());
+            assertEquals(Collections.singletonList("from bob"), titles(manager));
+
+            assertEquals("{\"done\":true}", post(server, "/redo", "alice", "").body());
+            assertEquals("{\"done\":true}", post(server, "/undo", "bob", "").body());
+            assertEquals(Collections.singletonList("from alice"), titles(manager));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void deeplyNestedBodyIsABadRequest() throws Exception {
+        SnippetServer server = start(new SnippetManager());
+        try {
+            HttpResponse<String> response = post(server, "/snippets", null, "[".repeat(100_000));
+            assertEquals(400, response.statusCode());
+            assertTrue(response.body().contains("Nesting deeper than"), response.body());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static SnippetServer start(SnippetManager manager) throws IOException {
+        SnippetServer server = new SnippetServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        return server;
+    }
+
+    private HttpResponse<String> get(SnippetServer server, String path, String etag) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(server, path)).GET();
+        if (etag != null) request.header("If-None-Match", etag);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(SnippetServer server, String path, String session, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(server, path))
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (session != null) request.header("X-Session", session);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(SnippetServer server, String path) {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path);
+    }
+
+    private static String snippetJson(String title) {
+        return "{\"title\":\"" + title + "\",\"code\":\"x\",\"language\":\"Java\",\"tags\":[]}";
+    }
+
+    private static List<String> titles(SnippetManager manager) {
+        List<String> titles = new ArrayList<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            titles.add(snippet.getTitle());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,80 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnippetSyncTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void fileInANewNestedDirectoryIsAddedOnce() throws IOException {
+        Path root = directory.resolve("project");
+        write(root.resolve("A.java"), "class A {}");
+        SnippetManager manager = new SnippetManager();
+        try (SnippetSync sync = new SnippetSync(manager, root)) {
+            assertEquals(1, sync.syncAll().getAdded());
+
+            // What the watcher reports for mkdir -p sub/deep and a file written into it
+            Path sub = root.resolve("sub");
+            Path deep = sub.resolve("deep");
+            write(deep.resolve("C.js"), "let c = 1;");
+            write(sub.resolve("B.py"), "b = 2");
+            SnippetSync.Changes changes = sync.sync(Arrays.asList(sub, deep, deep.resolve("C.js"), sub.resolve("B.py")));
+            assertEquals(2, changes.getAdded());
+            assertEquals(Arrays.asList("A.java", "sub/B.py", "sub/deep/C.js"), titles(manager));
+
+            changes = sync.sync(Arrays.asList(sub, deep, deep.resolve("C.js")));
+            assertTrue(changes.isEmpty());
+            assertEquals(3, manager.size());
+        }
+    }
+
+    @Test
+    void failedRoundIsRetriedWithoutAnotherChange() throws Exception {
+        Path root = directory.resolve("project");
+        Files.createDirectories(root);
+        AtomicBoolean refuse = new AtomicBoolean(true);
+        SnippetManager manager = new SnippetManager() {
+            @Override
+            List<Long> addAll(SnippetSession session, Collection<CodeSnippet> batch) {
+                // What a sharded manager does when a shard rejects its part
+                if (refuse.getAndSet(false)) throw new IllegalStateException("Refused");
+                return super.addAll(session, batch);
+            }
+        };
+        try (SnippetSync sync = new SnippetSync(manager, root)) {
+            sync.start();
+            write(root.resolve("A.java"), "class A {}");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (manager.size() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertFalse(refuse.get(), "the first round failed");
+            assertEquals(Collections.singletonList("A.java"), titles(manager));
+        }
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> titles(SnippetManager manager) {
+        List<String> titles = new ArrayList<>();
+        for (CodeSnippet snippet : manager.getAllSnippets()) {
+            titles.add(snippet.getTitle());
+        }
+        Collections.sort(titles);
+        return titles;
+    }
+}
@@ -0,0 +1,125 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortIndexTest {
+    private static final String[] TITLES = {"alpha", "Beta", "gamma", "delta", "Epsilon", "zeta"};
+    private static final String[] LANGUAGES = {"java", "Python", "go", "C", "rust"};
+
+    @Test
+    void cursorPagesMatchAFullSortThroughChanges() {
+        Random random = new Random(4);
+        SnippetManager manager = new SnippetManager();
+        // Several thousand, so every order is split over many chunks
+        for (int i = 0; i < 3000; i++) {
+            manager.addSnippet(randomSnippet(random));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (SortKey key : SortKey.values()) {
+                for (boolean descending : new boolean[] {false, true}) {
+                    List<CodeSnippet> expected = new ArrayList<>(manager.getAllSnippets());
+                    expected.sort(descending ? key.comparator().reversed() : key.comparator());
+                    assertEquals(expected, manager.getSortedSnippets(key, descending), key + " " + descending);
+                    assertEquals(expected, pageThrough(manager, key, descending, 1 + random.nextInt(200)),
+                        key + " " + descending);
+                }
+            }
+            List<CodeSnippet> all = manager.getAllSnippets();
+            for (int i = 0; i < 500; i++) {
+                long id = all.get(random.nextInt(all.size())).getId();
+                if (random.nextBoolean()) {
+                    manager.editSnippet(id, randomSnippet(random));
+                } else {
+                    manager.deleteSnippet(id);
+                }
+            }
+            manager.addAll(Arrays.asList(randomSnippet(random), randomSnippet(random)));
+            manager.undo();
+        }
+    }
+
+    @Test
+    void publishedListsAndCursorsOutliveChanges() {
+        SnippetManager manager = new SnippetManager();
+        for (int i = 0; i < 10; i++) {
+            manager.addSnippet(new CodeSnippet("title " + i, "", "code", "java", new HashSet<>()));
+        }
+        List<CodeSnippet> before = manager.getSortedSnippets(SortKey.TITLE, false);
+        List<CodeSnippet> copy = new ArrayList<>(before);
+
+        SnippetPage first = manager.getSortedPage(SortKey.TITLE, false, null, 4);
+        assertEquals(copy.subList(0, 4), first.getSnippets());
+        // Editing or deleting the cursor's snippet does not move the cursor
+        manager.editSnippet(4, new CodeSnippet("a new first title", "", "code", "java", new HashSet<>()));
+        manager.deleteSnippet(5);
+        SnippetPage.Cursor cursor = SnippetPage.Cursor.decode(first.getNextCursor().encode());
+        SnippetPage second = manager.getSortedPage(SortKey.TITLE, false, cursor, 4);
+        assertEquals(Arrays.asList(copy.get(5), copy.get(6), copy.get(7), copy.get(8)), second.getSnippets());
+        SnippetPage third = manager.getSortedPage(SortKey.TITLE, false, second.getNextCursor(), 4);
+        assertEquals(Collections.singletonList(copy.get(9)), third.getSnippets());
+        assertFalse(third.hasMore());
+
+        assertEquals(copy, before, "a published list never changes");
+        assertThrows(UnsupportedOperationException.class, () -> before.remove(0));
+        assertEquals("a new first title", manager.getSortedSnippets(SortKey.TITLE, false).get(0).getTitle());
+        assertEquals(0, manager.getSortedPage(SortKey.TITLE, true, null, 0).getSnippets().size());
+    }
+
+    @Test
+    void idOrderIsPublishedAndPagedThroughChanges() {
+        assertIdOrder(new SnippetManager());
+        assertIdOrder(new ShardedSnippetManager(3));
+    }
+
+    private static void assertIdOrder(SnippetManager manager) {
+        Random random = new Random(5);
+        for (int i = 0; i < 1500; i++) {
+            manager.addSnippet(randomSnippet(random));
+        }
+        for (long id = 1; id <= 1500; id += 3) {
+            manager.deleteSnippet(id);
+        }
+        manager.undo();
+        List<CodeSnippet> all = manager.getAllSnippets();
+        assertEquals(manager.size(), all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId());
+        }
+        assertSame(all, manager.getAllSnippets(), "unchanged calls share one list");
+
+        List<CodeSnippet> paged = new ArrayList<>();
+        SnippetPage.Cursor cursor = null;
+        do {
+            SnippetPage page = manager.getPage(cursor, 128);
+            paged.addAll(page.getSnippets());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(all, paged);
+
+        manager.addSnippet(randomSnippet(random));
+        assertEquals(paged, all, "a published list never changes");
+        assertEquals(all.size() + 1, manager.getAllSnippets().size());
+    }
+
+    private static List<CodeSnippet> pageThrough(SnippetManager manager, SortKey key, boolean descending, int limit) {
+        List<CodeSnippet> result = new ArrayList<>();
+        SnippetPage.Cursor cursor = null;
+        do {
+            SnippetPage page = manager.getSortedPage(key, descending, cursor, limit);
+            assertTrue(page.getSnippets().size() == limit || !page.hasMore());
+            result.addAll(page.getSnippets());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return result;
+    }
+
+    private static CodeSnippet randomSnippet(Random random) {
+        long created = 1_700_000_000_000L + random.nextInt(1000) * 1000L;
+        return new CodeSnippet(0, TITLES[random.nextInt(TITLES.length)] + " " + random.nextInt(50), "", "code",
+            LANGUAGES[random.nextInt(LANGUAGES.length)], new HashSet<>(), created, created + random.nextInt(1000) * 1000L);
+    }
+}
@@ -0,0 +1,107 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolExtractorTest {
+    @Test
+    void javaCallsAreNotDeclarations() {
+        assertEquals(set("foo"), names("Java",
+            "int foo(int x) {",
+            "    if (check(x)) return foo(x - 1) + bar(x);",
+            "    String s = format(x);",
+            "    list.add(x);",
+            "    print(x);",
+            "    throw error(x);",
+            "}"));
+        assertEquals(set(), names("Java", "return foo(x);"));
+        assertEquals(set(), names("Java", "Runnable r = new Task(x) {", "};"));
+        assertEquals(set(), names("Java", "// void hidden() {}", "String s = \"void quoted() {}\";"));
+    }
+
+    @Test
+    void javaClassLiteralIsNotADeclaration() {
+        assertEquals(set(), names("Java", "Class<?> type = Foo.class;", "log(Bar.class);"));
+        assertEquals(set("Foo", "Shape", "Color", "Point"), names("Java",
+            "class Foo {}", "interface Shape {}", "enum Color { RED }", "record Point(int x, int y) {}"));
+    }
+
+    @Test
+    void javaGenericMethods() {
+        assertEquals(set("max", "swap", "names", "index"), names("Java",
+            "public static <T extends Comparable<T>> T max(List<T> items) {",
+            "    return items.get(0);",
+            "}",
+            "static <T> void swap(T[] a, int i, int j) {}",
+            "List<String> names() { return List.of(); }",
+            "Map<String, List<Integer>> index(String[] words) throws IOException {}"));
+    }
+
+    @Test
+    void javaInterfaceMethodsEndInASemicolon() {
+        assertEquals(set("Shape", "area", "name", "sides", "draw"), names("Java",
+            "interface Shape {",
+            "    double area();",
+            "    String name(int n);",
+            "    default int sides() { return 0; }",
+            "}",
+            "abstract void draw();"));
+    }
+
+    @Test
+    void javaScriptArrowsAndFunctionValues() {
+        assertEquals(set("add", "square", "later", "click", "run", "gen"), names("JavaScript",
+            "const add = (a, b) => a + b;",
+            "const square = x => x * x;",
+            "let later = async () => {};",
+            "const handlers = { click: function (e) {}, hover: (e) => e, label: 'x' };",
+            "obj.run = function () {};",
+            "function* gen() {}",
+            "render(items);",
+            "items.map(x => x * 2);"));
+    }
+
+    @Test
+    void typeScriptReturnTypedMethods() {
+        assertEquals(set("Repo", "find", "load", "count", "parse"), names("TypeScript",
+            "class Repo {",
+            "  find(id: number): Item | undefined {",
+            "    return this.items.get(id);",
+            "  }",
+            "  async load(): Promise<void> {}",
+            "  private count(): number { return 0; }",
+            "}",
+            "const parse = (text: string): number => Number(text);"));
+    }
+
+    @Test
+    void pythonDeclarationsInStringsAndCommentsAreIgnored() {
+        assertEquals(set("real", "Real"), names("Python",
+            "# def commented(): pass",
+            "doc = \"\"\"",
+            "class InString:",
+            "    def method(self): pass",
+            "\"\"\"",
+            "s = 'def single(): pass'",
+            "def real(x):",
+            "    return f\"def fake(): {x}\"",
+            "class Real:",
+            "    pass"));
+    }
+
+    @Test
+    void otherLanguagesDeclareNothing() {
+        assertEquals(set(), names("Go", "func main() {}"));
+    }
+
+    private static Set<String> names(String language, String... lines) {
+        return SymbolExtractor.declaredNames(language, String.join("\n", lines));
+    }
+
+    private static Set<String> set(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,206 @@
+package com.codesnippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static com.codesnippetmanager.CommandJournalTest.describe;
+import static com.codesnippetmanager.CommandJournalTest.snippet;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Undo and redo must behave as the original stacks of full snippet copies did: undo
+ * returns the library to the state before the last change, redo reapplies it, and any new
+ * change clears the redo stack. The model here keeps every whole library state instead.
+ */
+class UndoHistoryTest {
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void undoAndRedoMatchAStackOfLibraryStates() {
+        Random random = new Random(3);
+        SnippetManager manager = new SnippetManager();
+        Deque<List<String>> undone = new ArrayDeque<>();
+        Deque<List<String>> redone = new ArrayDeque<>();
+        for (int step = 0; step < 500; step++) {
+            List<String> state = describe(manager);
+            List<CodeSnippet> all = manager.getAllSnippets();
+            int op = random.nextInt(10);
+            if (op < 3) {
+                boolean undid = manager.undo();
+                assertEquals(!undone.isEmpty(), undid, "undo at step " + step);
+                if (undid) {
+                    redone.push(state);
+                    assertEquals(undone.pop(), describe(manager), "state after undo at step " + step);
+                }
+            } else if (op < 5) {
+                boolean redid = manager.redo();
+                assertEquals(!redone.isEmpty(), redid, "redo at step " + step);
+                if (redid) {
+                    undone.push(state);
+                    assertEquals(redone.pop(), describe(manager), "state after redo at step " + step);
+                }
+            } else {
+                if (op < 7 || all.isEmpty()) {
+                    manager.addSnippet(snippet("s" + step, "code " + step));
+                } else if (op < 8) {
+                    manager.addAll(Arrays.asList(snippet("b" + step, "x"), snippet("c" + step, "y")));
+                } else if (op < 9) {
+                    CodeSnippet target = all.get(random.nextInt(all.size()));
+                    manager.editSnippet(target.getId(), snippet(target.getTitle() + "'", target.getCode() + step));
+                } else {
+                    manager.deleteSnippet(all.get(random.nextInt(all.size())).getId());
+                }
+                undone.push(state);
+                redone.clear();
+            }
+        }
+    }
+
+    @Test
+    void depthLimitForgetsTheOldestSteps() {
+        SnippetManager manager = new SnippetManager();
+        manager.setHistoryLimits(new HistoryLimits(5, Long.MAX_VALUE, null));
+        long id = manager.addSnippet(snippet("v0", "0"));
+        List<List<String>> states = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            states.add(describe(manager));
+            manager.editSnippet(id, snippet("v" + i, String.valueOf(i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(manager.undo());
+        }
+        assertFalse(manager.undo(), "only five steps are kept");
+        assertEquals(states.get(3), describe(manager));
+    }
+
+    @Test
+    void editsOfLargeBodiesHoldOnlyTheChange() {
+        SnippetManager manager = new SnippetManager();
+        SnippetSession session = manager.openSession();
+        String body = "line of code\n".repeat(80_000);
+        long id = session.addSnippet(snippet("large", body));
+        for (int i = 0; i < 20; i++) {
+            session.editSnippet(id, snippet("large", body.substring(0, 500_000) + i + body.substring(500_000)));
+        }
+        assertTrue(session.history.getMemoryBytes() < body.length(),
+            () -> "history holds " + session.history.getMemoryBytes() + " bytes for 20 small edits");
+        for (int i = 0; i < 20; i++) {
+            assertTrue(session.undo());
+        }
+        assertEquals(body, manager.getSnippet(id).getCode());
+    }
+
+    @Test
+    void overTheByteBudgetOldStepsSpillToDiskAndCanStillBeUndone() {
+        SnippetManager manager = new SnippetManager();
+        manager.setHistoryLimits(new HistoryLimits(1000, 64 * 1024, spillDirectory));
+        SnippetSession session = manager.openSession();
+        long id = session.addSnippet(snippet("s", ""));
+        List<String> initial = describe(manager);
+        // Each edit rewrites the whole body, so its delta is about 14 KB
+        for (int i = 0; i < 40; i++) {
+            session.editSnippet(id, snippet("s", ("body " + i + "\n").repeat(2000)));
+        }
+        assertTrue(session.history.getSpilledDepth() > 0, "some steps were spilled");
+        for (int i = 0; i < 40; i++) {
+            assertTrue(session.undo(), "undo " + i);
+        }
+        assertEquals(initial, describe(manager));
+        // The add itself was the oldest step and the first to be spilled
+        assertTrue(session.undo());
+        assertEquals(0, session.history.getSpilledDepth());
+        assertTrue(manager.getAllSnippets().isEmpty());
+    }
+
+    @Test
+    void overTheByteBudgetWithoutSpillingOldStepsAreForgottenInOrder() {
+        SnippetManager manager = new SnippetManager();
+        manager.setHistoryLimits(new HistoryLimits(1000, 64 * 1024, null));
+        long id = manager.addSnippet(snippet("s", ""));
+        List<List<String>> states = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            states.add(describe(manager));
+            manager.editSnippet(id, snippet("s", ("body " + i + "\n").repeat(2000)));
+        }
+        int undone = 0;
+        while (manager.undo()) {
+            undone++;
+        }
+        assertTrue(undone > 0 && undone < 40, "undid " + undone);
+        // Undo stopped where the history was cut, without skipping any change
+        assertEquals(states.get(40 - undone), describe(manager));
+    }
+
+    @Test
+    void shardedStepIsUndoneWholeOrNotAtAll() throws IOException {
+        try (ShardedSnippetManager manager = new ShardedSnippetManager(2)) {
+            SnippetSession session = manager.openSession();
+            long first = session.addSnippet(snippet("first", "0"));
+            // Ids 2 and 3, in shards 0 and 1; shard 1's part is undone first
+            List<Long> ids = session.addAll(Arrays.asList(snippet("a", "1"), snippet("b", "2")));
+            session.editSnippet(ids.get(1), snippet("b'", "3"));
+            // Another client edits the batch's snippet in shard 0
+            manager.editSnippet(ids.get(0), snippet("a'", "4"));
+
+            assertTrue(session.undo());
+            List<String> state = describe(manager);
+            assertFalse(session.undo(), "the batch cannot be undone in the shard changed since");
+            assertEquals(state, describe(manager));
+            // Dropped in every shard, so the next undo reverts the step before it
+            assertTrue(session.undo());
+            assertNull(manager.getSnippet(first));
+            assertEquals(ids, Arrays.asList(manager.getAllSnippets().get(0).getId(), manager.getAllSnippets().get(1).getId()));
+            assertFalse(session.undo());
+
+            // Failing in shard 1, the first undone: shard 0's part is dropped without being tried
+            state = describe(manager);
+            session.editSnippet(ids.get(0), snippet("a''", "5"));
+            List<Long> more = session.addAll(Arrays.asList(snippet("c", "6"), snippet("d", "7")));
+            manager.editSnippet(more.get(1), snippet("d'", "8"));
+            List<String> batched = describe(manager);
+            assertFalse(session.undo());
+            assertEquals(batched, describe(manager));
+            assertTrue(session.undo());
+            assertEquals(4, manager.size());
+            assertEquals("a'", manager.getSnippet(ids.get(0)).getTitle());
+            assertFalse(session.undo());
+            assertEquals(state.size() + 2, manager.size());
+        }
+    }
+
+    @Test
+    void shardedHistoryFollowsItsShardsOverTheByteBudget() throws IOException {
+        try (ShardedSnippetManager manager = new ShardedSnippetManager(2)) {
+            manager.setHistoryLimits(new HistoryLimits(1000, 64 * 1024, null));
+            List<Long> ids = manager.addAll(Arrays.asList(snippet("a", ""), snippet("b", "")));
+            // Only one shard's history goes over the budget and forgets the batch's part in it
+            long id = ids.get(0);
+            List<List<String>> states = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                states.add(describe(manager));
+                manager.editSnippet(id, snippet("a", ("body " + i + "\n").repeat(2000)));
+            }
+            int undone = 0;
+            while (manager.undo()) {
+                undone++;
+            }
+            assertTrue(undone > 0 && undone < 40, "undid " + undone);
+            List<String> cut = describe(manager);
+            assertEquals(states.get(40 - undone), cut);
+            // Past every forgotten edit, down to the batch
+            for (int i = 0; i < 50; i++) {
+                assertFalse(manager.undo(), "the batch is not half undone");
+            }
+            assertEquals(cut, describe(manager));
+            for (int i = 0; i < undone; i++) {
+                assertTrue(manager.redo(), "redo " + i);
+            }
+            assertFalse(manager.redo());
+        }
+    }
+}